@@ -1,54 +1,371 @@
 package app;
 
+import app.config.DatabaseConfig;
+import app.config.Migrations;
+import app.config.ServerConfig;
+import app.config.WarmUp;
+import app.controller.AdminController;
 import app.controller.AuthController;
 import app.controller.BookController;
+import app.controller.BookStreamController;
+import app.controller.HealthController;
+import app.controller.LoadShedder;
+import app.dto.ErrorDTO;
+import app.exceptions.ApiException;
+import app.logging.AccessLogWriter;
+import app.logging.AccessLogger;
+import app.profiling.JfrSummary;
+import app.profiling.RequestProfiler;
+import app.tracing.OtlpFileExporter;
+import app.tracing.Tracer;
+import app.tracing.TracingFilter;
+import app.repository.AuthorRepository;
 import app.repository.BookRepository;
+import app.repository.BookWriteBatcher;
+import app.repository.CircuitBreakingAuthorRepository;
+import app.repository.CircuitBreakingBookRepository;
+import app.repository.CircuitBreakingIdempotencyRepository;
+import app.repository.CircuitBreakingRevokedTokenRepository;
+import app.repository.CircuitBreakingUserRepository;
+import app.repository.DatabaseCircuit;
+import app.repository.IdempotencyRepository;
+import app.repository.JpaAuthorRepository;
+import app.repository.JpaBookRepository;
+import app.repository.JpaIdempotencyRepository;
+import app.repository.JpaRevokedTokenRepository;
+import app.repository.JpaUserRepository;
+import app.repository.ReadRouter;
+import app.repository.RevokedTokenRepository;
+import app.repository.memory.MemoryAuthorRepository;
+import app.repository.memory.MemoryBookRepository;
+import app.repository.memory.MemoryIdempotencyRepository;
+import app.repository.memory.MemoryRevokedTokenRepository;
+import app.repository.memory.MemoryStore;
+import app.repository.memory.MemoryUserRepository;
+import app.security.JwtAuthFilter;
+import app.security.PasswordUtil;
+import app.security.TokenDenylist;
 import app.repository.UserRepository;
+import app.service.AuthorCache;
+import app.service.BookEventBroker;
+import app.service.BookImportService;
 import app.service.BookService;
+import app.service.IdempotencyStore;
+import app.service.LibraryStats;
+import app.service.TagIndex;
 import app.service.UserService;
+import app.utils.AdaptiveLimiter;
+import app.utils.CircuitBreaker;
+import app.utils.Metrics;
+import app.utils.Utils;
 import io.javalin.Javalin;
+import io.javalin.json.JavalinJackson;
 import io.javalin.rendering.template.JavalinThymeleaf;
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.Persistence;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import io.javalin.plugin.bundled.RouteOverviewPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class Main {
+
+    private static final Logger log = LoggerFactory.getLogger(Main.class);
+
     public static void main(String[] args) {
 
-        // Initialize JPA EntityManagerFactory
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("bookshelfPU");
-        EntityManager em = emf.createEntityManager();
+        // Storage backend: Postgres (default) or the embedded in-memory store for single-node setups
+        EntityManagerFactory emf = null;
+        EntityManagerFactory readEmf = null;
+        MemoryStore memoryStore = null;
+        CircuitBreaker databaseBreaker = null;
+        UserRepository userRepository;
+        BookRepository bookRepository;
+        AuthorRepository authorRepository;
+        RevokedTokenRepository revokedTokenRepository;
+        IdempotencyRepository idempotencyRepository;
+        String storageBackend = Utils.getEnv("STORAGE_BACKEND", "postgres");
+        if (storageBackend.equals("memory")) {
+            memoryStore = MemoryStore.open(Path.of(Utils.getEnv("STORAGE_DIR", "data")),
+                    Boolean.parseBoolean(Utils.getEnv("STORAGE_FSYNC", "true")));
+            memoryStore.startPeriodicSnapshots(Utils.getEnvInt("STORAGE_SNAPSHOT_SECONDS", 300));
+            userRepository = new MemoryUserRepository(memoryStore);
+            bookRepository = new MemoryBookRepository(memoryStore);
+            authorRepository = new MemoryAuthorRepository(memoryStore);
+            revokedTokenRepository = new MemoryRevokedTokenRepository(memoryStore);
+            idempotencyRepository = new MemoryIdempotencyRepository();
+        } else if (storageBackend.equals("postgres")) {
+            // Initialize JPA EntityManagerFactory, plus an optional read replica (DB_READ_HOST)
+            emf = DatabaseConfig.createEntityManagerFactory();
+            readEmf = DatabaseConfig.createReadEntityManagerFactory();
+
+            // Data migrations on the primary; replicas pick them up through replication
+            new Migrations(emf).run();
+
+            ReadRouter readRouter = new ReadRouter(Utils.getEnvInt("DB_READ_YOUR_WRITES_MILLIS", 2000));
+
+            userRepository = new JpaUserRepository(emf, readEmf, readRouter);
+            bookRepository = new JpaBookRepository(emf, readEmf, readRouter);
+            authorRepository = new JpaAuthorRepository(emf);
+            revokedTokenRepository = new JpaRevokedTokenRepository(emf);
+            idempotencyRepository = new JpaIdempotencyRepository(emf);
+
+            // Fail fast with 503 while Postgres is unreachable instead of holding request threads in timeouts
+            if (Boolean.parseBoolean(Utils.getEnv("DB_CIRCUIT_BREAKER", "true"))) {
+                databaseBreaker = new CircuitBreaker(
+                        Utils.getEnvInt("DB_CIRCUIT_WINDOW", 50),
+                        Utils.getEnvInt("DB_CIRCUIT_MIN_CALLS", 20),
+                        Utils.getEnvInt("DB_CIRCUIT_FAILURE_PERCENT", 50) / 100.0,
+                        Utils.getEnvInt("DB_CIRCUIT_OPEN_MILLIS", 5000),
+                        Utils.getEnvInt("DB_CIRCUIT_PROBES", 3));
+                DatabaseCircuit circuit = new DatabaseCircuit(databaseBreaker);
+                userRepository = new CircuitBreakingUserRepository(userRepository, circuit);
+                bookRepository = new CircuitBreakingBookRepository(bookRepository, circuit);
+                authorRepository = new CircuitBreakingAuthorRepository(authorRepository, circuit);
+                revokedTokenRepository = new CircuitBreakingRevokedTokenRepository(revokedTokenRepository, circuit);
+                idempotencyRepository = new CircuitBreakingIdempotencyRepository(idempotencyRepository, circuit);
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown STORAGE_BACKEND '" + storageBackend + "': use postgres or memory");
+        }
 
-        // Initialize repositories
-        UserRepository userRepository = new UserRepository(em);
-        BookRepository bookRepository = new BookRepository(em);
+        // Token revocation: persisted by the storage backend, probed in memory on every request
+        TokenDenylist tokenDenylist = new TokenDenylist(revokedTokenRepository);
+        tokenDenylist.rebuild();
+        tokenDenylist.startPeriodicRebuild(Utils.getEnvInt("TOKEN_DENYLIST_REBUILD_SECONDS", 60));
+        JwtAuthFilter.setDenylist(tokenDenylist);
+
+        // bcrypt cost: pinned by PASSWORD_HASH_COST, otherwise calibrated to the hash latency target on this host
+        int pinnedCost = Utils.getEnvInt("PASSWORD_HASH_COST", 0);
+        if (pinnedCost != 0) {
+            try {
+                PasswordUtil.setCost(pinnedCost);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Environment variable PASSWORD_HASH_COST: " + e.getMessage());
+            }
+        } else {
+            PasswordUtil.calibrate(Utils.getEnvInt("PASSWORD_HASH_TARGET_MILLIS", 250),
+                    Utils.getEnvInt("PASSWORD_HASH_MIN_COST", PasswordUtil.MIN_COST),
+                    Utils.getEnvInt("PASSWORD_HASH_MAX_COST", 14));
+        }
 
         // Initialize services
         UserService userService = new UserService(userRepository);
-        BookService bookService = new BookService(bookRepository);
+        userService.seedPasswordCosts();
+        AuthorCache authorCache = new AuthorCache(authorRepository,
+                Utils.getEnvInt("AUTHOR_CACHE_SIZE", AuthorCache.DEFAULT_MAX_SIZE));
+        BookService bookService = new BookService(bookRepository, authorCache);
+        bookService.setTagIndex(new TagIndex(bookRepository,
+                Utils.getEnvInt("TAG_INDEX_MAX_USERS", TagIndex.DEFAULT_MAX_USERS),
+                Utils.getEnvInt("TAG_INDEX_MAX_AGE_SECONDS", 300) * 1000L));
+
+        // Admin statistics: seeded once, then maintained by the write paths
+        LibraryStats libraryStats = new LibraryStats(Utils.getEnvInt("STATS_TRACKED_AUTHORS", 1000));
+        libraryStats.seed(userRepository, bookRepository);
+        userService.setStats(libraryStats);
+        bookService.setStats(libraryStats);
+        bookService.setMaxLookupIds(Utils.getEnvInt("BOOK_LOOKUP_MAX_IDS", BookService.DEFAULT_MAX_LOOKUP_IDS));
+
+        // Change feed retention (BOOK_CHANGES_RETENTION_DAYS=0 keeps the whole log)
+        int changeRetentionDays = Utils.getEnvInt("BOOK_CHANGES_RETENTION_DAYS", 30);
+        if (changeRetentionDays > 0) {
+            bookService.startChangeLogPruning(Duration.ofDays(changeRetentionDays),
+                    Utils.getEnvInt("BOOK_CHANGES_PRUNE_SECONDS", 3600));
+        }
+
+        // Counters exposed at /api/admin/metrics
+        Metrics metrics = new Metrics();
+        if (memoryStore != null) {
+            metrics.register("storage.wal.entries", memoryStore::getLogEntries);
+            metrics.register("storage.wal.syncs", memoryStore::getLogSyncs);
+            metrics.register("storage.snapshots", memoryStore::getSnapshots);
+        }
+        if (databaseBreaker != null) {
+            CircuitBreaker breaker = databaseBreaker;
+            metrics.register("db.circuit.state", () -> breaker.getState().ordinal());
+            metrics.register("db.circuit.rejected", breaker::getRejected);
+            metrics.register("db.circuit.opened", breaker::getOpened);
+        }
+        userService.registerMetrics(metrics);
+        bookService.registerMetrics(metrics);
+
+        // Live change events for open SSE connections
+        BookEventBroker eventBroker = new BookEventBroker(
+                Utils.getEnvInt("SSE_BUFFER_SIZE", 256),
+                Utils.getEnvInt("SSE_HEARTBEAT_SECONDS", 15) * 1000L,
+                Utils.getEnvInt("SSE_DISPATCHER_THREADS", 4));
+        bookService.addListener(eventBroker);
+
+        // Group commit for concurrent book writes (opt-in)
+        BookWriteBatcher writeBatcher = null;
+        if (Boolean.parseBoolean(Utils.getEnv("BOOK_WRITE_BATCHING", "false"))) {
+            writeBatcher = new BookWriteBatcher(bookRepository,
+                    Utils.getEnvInt("BOOK_WRITE_BATCH_SIZE", 64),
+                    Utils.getEnvInt("BOOK_WRITE_LINGER_MICROS", 500));
+            bookService.setWriteBatcher(writeBatcher);
+        }
+
+        JavalinJackson jsonMapper = new JavalinJackson();
+
+        // Always-on JFR events, summarized in process for /api/admin/profile
+        JfrSummary jfrSummary = null;
+        if (Boolean.parseBoolean(Utils.getEnv("JFR_STREAMING", "true"))) {
+            jfrSummary = new JfrSummary(Utils.getEnvInt("JFR_SUMMARY_WINDOW_SECONDS", 60));
+            jfrSummary.start();
+        }
+
+        // Request tracing with tail sampling: slow and failed traces are kept, plus a small baseline
+        OtlpFileExporter traceExporter = null;
+        if (Boolean.parseBoolean(Utils.getEnv("TRACING_ENABLED", "true"))) {
+            traceExporter = new OtlpFileExporter(
+                    Path.of(Utils.getEnv("TRACE_FILE", "traces.otlp.jsonl")),
+                    "bookshelf-api",
+                    Utils.getEnvInt("TRACE_BUFFER_SIZE", 1024),
+                    Utils.getEnvInt("TRACE_BATCH_SIZE", 128),
+                    Utils.getEnvInt("TRACE_FLUSH_MILLIS", 1000));
+            Tracer.configure(traceExporter,
+                    Utils.getEnvInt("TRACE_SLOW_MILLIS", 500),
+                    Double.parseDouble(Utils.getEnv("TRACE_SAMPLE_RATE", "0.01")));
+            metrics.register("tracing.exported", traceExporter::getExported);
+            metrics.register("tracing.dropped", traceExporter::getDropped);
+        }
 
         // Initialize controllers
-        AuthController authController = new AuthController(userService);
-        BookController bookController = new BookController(bookService, userService);
+        AuthController authController = new AuthController(userService, tokenDenylist);
+        AdminController adminController = new AdminController(tokenDenylist, libraryStats, metrics, jfrSummary);
+        BookImportService importService = new BookImportService(bookService, jsonMapper.getMapper(),
+                Utils.getEnvInt("IMPORT_BATCH_SIZE", 500));
+        importService.setMaxLineLength(Utils.getEnvInt("IMPORT_MAX_LINE_CHARS", BookImportService.DEFAULT_MAX_LINE_LENGTH));
+        BookController bookController = new BookController(bookService, userService, importService, jsonMapper.getMapper());
+
+        // Idempotency-Key support for book mutations: responses kept in memory and in Postgres
+        IdempotencyStore idempotencyStore = new IdempotencyStore(idempotencyRepository, jsonMapper.getMapper(),
+                Duration.ofHours(Utils.getEnvInt("IDEMPOTENCY_TTL_HOURS", 24)),
+                Utils.getEnvInt("IDEMPOTENCY_WAIT_SECONDS", 30) * 1000L);
+        idempotencyStore.setMaxEntries(Utils.getEnvInt("IDEMPOTENCY_CACHE_SIZE", IdempotencyStore.DEFAULT_MAX_ENTRIES));
+        idempotencyStore.startPeriodicSweep(Utils.getEnvInt("IDEMPOTENCY_SWEEP_SECONDS", 60));
+        bookController.setIdempotencyStore(idempotencyStore);
+        metrics.register("idempotency.keys", idempotencyStore::size);
+        metrics.register("idempotency.executed", idempotencyStore::getExecuted);
+        metrics.register("idempotency.replayed", idempotencyStore::getReplayed);
+        BookStreamController bookStreamController = new BookStreamController(eventBroker, userService);
+        HealthController healthController = new HealthController();
+        healthController.setDatabaseBreaker(databaseBreaker);
+
+        // Adaptive concurrency limits; book and auth routes are separate priority classes
+        LoadShedder loadShedder = new LoadShedder(
+                new AdaptiveLimiter(
+                        Utils.getEnvInt("BOOK_LIMIT_INITIAL", 20),
+                        Utils.getEnvInt("BOOK_LIMIT_MIN", 2),
+                        Utils.getEnvInt("BOOK_LIMIT_MAX", 200),
+                        Utils.getEnvInt("BOOK_LIMIT_LATENCY_TARGET_MILLIS", 250),
+                        0.9),
+                new AdaptiveLimiter(
+                        Utils.getEnvInt("AUTH_LIMIT_INITIAL", 10),
+                        Utils.getEnvInt("AUTH_LIMIT_MIN", 2),
+                        Utils.getEnvInt("AUTH_LIMIT_MAX", 50),
+                        Utils.getEnvInt("AUTH_LIMIT_LATENCY_TARGET_MILLIS", 1000),
+                        0.9),
+                Utils.getEnvInt("LOAD_SHED_RETRY_AFTER_SECONDS", 1));
+        loadShedder.registerMetrics(metrics);
+
+        // Structured access log, written in batches off the request thread
+        AccessLogWriter accessLog = null;
+        if (Boolean.parseBoolean(Utils.getEnv("ACCESS_LOG_ENABLED", "true"))) {
+            Path accessLogFile = Path.of(Utils.getEnv("ACCESS_LOG_FILE", "logs/access.log"));
+            try {
+                Files.createDirectories(accessLogFile.toAbsolutePath().getParent());
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot create access log directory for " + accessLogFile, e);
+            }
+            accessLog = new AccessLogWriter(
+                    accessLogFile,
+                    Utils.getEnvInt("ACCESS_LOG_BUFFER_SIZE", 8192),
+                    Utils.getEnvInt("ACCESS_LOG_BATCH_SIZE", 256),
+                    Utils.getEnvInt("ACCESS_LOG_FLUSH_MILLIS", 200),
+                    Utils.getEnvInt("ACCESS_LOG_MAX_FILE_MB", 50) * 1024L * 1024L,
+                    Utils.getEnvInt("ACCESS_LOG_MAX_FILES", 5));
+            metrics.register("accesslog.written", accessLog::getWritten);
+            metrics.register("accesslog.dropped", accessLog::getDropped);
+        }
+        AccessLogWriter accessLogWriter = accessLog;
+
+        // Jetty thread pool, connector and h2c settings (SERVER_* variables)
+        ServerConfig serverConfig = ServerConfig.fromEnv();
+        log.info("Server profile: {}", serverConfig);
 
         // Initializing Javalin and Jetty webserver with JWT Access Manager
         Javalin app = Javalin.create(config -> {
+            serverConfig.apply(config);
+            config.jsonMapper(jsonMapper);
+            if (accessLogWriter != null) {
+                config.requestLogger.http(new AccessLogger(accessLogWriter));
+            }
             config.registerPlugin(new RouteOverviewPlugin(pluginConfig -> {
                 pluginConfig.path = "/api/routes";
             }));
 
 
-        }).start(7070);
+        }).start(serverConfig.getPort());
+
+        // Map domain exceptions centrally instead of try/catch in every handler
+        app.exception(ApiException.class, (e, ctx) -> ctx.status(e.getCode()).json(new ErrorDTO(e.getMessage())));
+        app.exception(Exception.class, (e, ctx) -> {
+            Tracer.currentSpan().recordError(e);
+            log.error("Unhandled exception on {} {}", ctx.method(), ctx.path(), e);
+            ctx.status(500).json(new ErrorDTO("Internal server error"));
+        });
 
         // Register API routes
+        new TracingFilter().registerRoutes(app);
+        new RequestProfiler().registerRoutes(app);
+        loadShedder.registerRoutes(app);
+        healthController.registerRoutes(app);
         authController.registerRoutes(app);
+        adminController.registerRoutes(app);
+        bookStreamController.registerRoutes(app);
         bookController.registerRoutes(app);
 
+        // Warm up the JIT, serializers and query plans before reporting ready (WARMUP_ITERATIONS=0 disables)
+        new WarmUp(bookRepository, userRepository, bookService, jsonMapper)
+                .run(Utils.getEnvInt("WARMUP_ITERATIONS", 0));
+        healthController.markReady();
+
         // shutdown
+        BookWriteBatcher batcherToStop = writeBatcher;
+        JfrSummary summaryToStop = jfrSummary;
+        OtlpFileExporter exporterToStop = traceExporter;
+        EntityManagerFactory emfToClose = emf;
+        EntityManagerFactory readEmfToClose = readEmf;
+        MemoryStore storeToClose = memoryStore;
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            em.close();
-            emf.close();
+            eventBroker.shutdown();
+            bookService.shutdown();
+            tokenDenylist.shutdown();
+            idempotencyStore.shutdown();
+            if (batcherToStop != null) {
+                batcherToStop.shutdown();
+            }
+            if (summaryToStop != null) {
+                summaryToStop.shutdown();
+            }
+            if (exporterToStop != null) {
+                exporterToStop.shutdown();
+            }
+            if (accessLogWriter != null) {
+                accessLogWriter.shutdown();
+            }
+            if (readEmfToClose != null) {
+                readEmfToClose.close();
+            }
+            if (emfToClose != null) {
+                emfToClose.close();
+            }
+            if (storeToClose != null) {
+                storeToClose.close();
+            }
         }));
     }
-}
\ No newline at end of file
+}
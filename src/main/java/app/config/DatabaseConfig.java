@@ -2,6 +2,8 @@ package app.config;
 
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -9,6 +11,8 @@ import java.util.Map;
 
 public class DatabaseConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(DatabaseConfig.class);
+
     public static EntityManagerFactory createEntityManagerFactory() {
         Map<String, String> properties = new HashMap<>();
 
@@ -23,10 +27,53 @@ public class DatabaseConfig {
         properties.put("jakarta.persistence.jdbc.url", jdbcUrl);
         properties.put("jakarta.persistence.jdbc.user", dbUser);
         properties.put("jakarta.persistence.jdbc.password", dbPassword);
+        if (System.getenv("DB_SCHEMA") != null) {
+            properties.put("hibernate.default_schema", System.getenv("DB_SCHEMA"));
+        }
 
-        System.out.println("Connecting to database: " + jdbcUrl);
-        System.out.println("Database user: " + dbUser);
+        log.info("Connecting to database {} as {}", jdbcUrl, dbUser);
 
         return Persistence.createEntityManagerFactory("bookshelfPU", properties);
     }
-}
\ No newline at end of file
+
+    /**
+     * Read-only pool against a replica, configured with DB_READ_* variables that fall back to the
+     * primary's values. Returns null when DB_READ_HOST is not set, in which case reads use the primary.
+     * For a local setup, point DB_READ_HOST at a second Postgres instance, or at the same instance
+     * with DB_READ_SCHEMA set to a copy of the schema.
+     */
+    public static EntityManagerFactory createReadEntityManagerFactory() {
+        String dbHost = System.getenv("DB_READ_HOST");
+        if (dbHost == null) {
+            return null;
+        }
+
+        Map<String, String> properties = new HashMap<>();
+
+        String dbPort = env("DB_READ_PORT", env("DB_PORT", "5432"));
+        String dbName = env("DB_READ_NAME", env("DB_NAME", "bookshelf"));
+        String dbUser = env("DB_READ_USER", env("DB_USER", "postgres"));
+        String dbPassword = env("DB_READ_PASSWORD", env("DB_PASSWORD", "postgres"));
+
+        String jdbcUrl = String.format("jdbc:postgresql://%s:%s/%s", dbHost, dbPort, dbName);
+
+        properties.put("jakarta.persistence.jdbc.url", jdbcUrl);
+        properties.put("jakarta.persistence.jdbc.user", dbUser);
+        properties.put("jakarta.persistence.jdbc.password", dbPassword);
+        properties.put("hibernate.hikari.readOnly", "true");
+        properties.put("hibernate.hikari.maximumPoolSize", env("DB_READ_POOL_SIZE", "10"));
+        // The replica follows the primary's schema; never migrate it from here
+        properties.put("hibernate.hbm2ddl.auto", "none");
+        if (System.getenv("DB_READ_SCHEMA") != null) {
+            properties.put("hibernate.default_schema", System.getenv("DB_READ_SCHEMA"));
+        }
+
+        log.info("Connecting to read replica {}", jdbcUrl);
+
+        return Persistence.createEntityManagerFactory("bookshelfPU", properties);
+    }
+
+    private static String env(String name, String defaultValue) {
+        return System.getenv(name) != null ? System.getenv(name) : defaultValue;
+    }
+}
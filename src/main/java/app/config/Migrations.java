@@ -0,0 +1,135 @@
+package app.config;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Data migrations that hbm2ddl cannot express. Runs once at startup against the primary, after
+ * Hibernate has created any new tables and columns. Every step checks the current schema first,
+ * so running it again is a no-op.
+ */
+public class Migrations {
+
+    private static final Logger log = LoggerFactory.getLogger(Migrations.class);
+
+    // Keep in sync with Author.normalize
+    private static final String NORMALIZED_AUTHOR = "lower(regexp_replace(btrim(b.author), '\\s+', ' ', 'g'))";
+
+    private final EntityManagerFactory emf;
+    private final String schema;
+
+    public Migrations(EntityManagerFactory emf) {
+        this.emf = emf;
+        Object configured = emf.getProperties().get("hibernate.default_schema");
+        this.schema = configured != null ? configured.toString() : null;
+    }
+
+    public void run() {
+        inTransaction(this::normalizeAuthors);
+        inTransaction(this::createListingIndexes);
+        inTransaction(this::createUsernameIndex);
+    }
+
+    /**
+     * Links books to the authors table: one row per normalized name, keeping the most common
+     * spelling as the shared name. books.author then keeps only spellings that differ from the
+     * shared name and is null for the rest, so a row holds little more than author_id. Linking
+     * touches only unlinked books, including any an older instance wrote during a rollout; the
+     * spellings those carry are dropped on the next start. Before rolling back to a release
+     * without the authors table, restore the column with
+     * {@code UPDATE books b SET author = a.name FROM authors a WHERE b.author IS NULL AND b.author_id = a.id}.
+     */
+    private void normalizeAuthors(EntityManager em) {
+        Number unlinked = (Number) em.createNativeQuery("SELECT COUNT(*) FROM " + table("books") + " b "
+                + "WHERE b.author_id IS NULL AND b.author IS NOT NULL").getSingleResult();
+        if (unlinked.intValue() > 0) {
+            log.info("Linking {} books to the authors table", unlinked);
+
+            em.createNativeQuery("INSERT INTO " + table("authors") + " (name, normalized_name) "
+                    + "SELECT DISTINCT ON (normalized) name, normalized FROM ("
+                    + "  SELECT btrim(b.author) AS name, " + NORMALIZED_AUTHOR + " AS normalized, COUNT(*) AS uses"
+                    + "  FROM " + table("books") + " b WHERE b.author_id IS NULL AND b.author IS NOT NULL GROUP BY 1, 2"
+                    + ") spellings ORDER BY normalized, uses DESC, name "
+                    + "ON CONFLICT (normalized_name) DO NOTHING").executeUpdate();
+
+            int updated = em.createNativeQuery("UPDATE " + table("books") + " b SET author_id = a.id "
+                    + "FROM " + table("authors") + " a "
+                    + "WHERE b.author_id IS NULL AND a.normalized_name = " + NORMALIZED_AUTHOR).executeUpdate();
+            log.info("Linked {} books to their authors", updated);
+        }
+
+        // A null author now means the shared name
+        em.createNativeQuery("ALTER TABLE " + table("books") + " ALTER COLUMN author DROP NOT NULL").executeUpdate();
+        int compacted = em.createNativeQuery("UPDATE " + table("books") + " b SET author = NULL FROM "
+                + table("authors") + " a WHERE b.author_id = a.id AND b.author = a.name").executeUpdate();
+        if (compacted > 0) {
+            log.info("Dropped {} author spellings equal to the shared name", compacted);
+        }
+        em.createNativeQuery("CREATE INDEX IF NOT EXISTS idx_books_author_id ON " + table("books") + " (author_id)")
+                .executeUpdate();
+    }
+
+    /**
+     * One composite index per filter/sort combination of the book listing, each led by user_id and
+     * ending in id for the tie-break, so a listing is a single index range scan with no sort step.
+     */
+    private void createListingIndexes(EntityManager em) {
+        createIndex(em, "idx_books_user_id", "books", "user_id, id");
+        createIndex(em, "idx_books_user_author", "books", "user_id, author_id, id");
+        // Byte order rather than the database collation: a LIKE prefix can only bound a "C" index
+        createIndex(em, "idx_books_user_title", "books", "user_id, (lower(title) COLLATE \"C\"), id");
+        createIndex(em, "idx_books_user_created", "books", "user_id, created_at, id");
+    }
+
+    /**
+     * Usernames are unique regardless of case. Registration relies on this index instead of checking
+     * first, and login looks users up through it. Existing names that differ only in case stop
+     * startup, listing the clashes: which account keeps a name is for an operator to decide, and
+     * starting without the index would let more duplicates in.
+     */
+    private void createUsernameIndex(EntityManager em) {
+        if (em.createNativeQuery("SELECT CAST(to_regclass(:index) AS text)")
+                .setParameter("index", table("idx_users_username_lower"))
+                .getSingleResult() != null) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<String> clashes = em.createNativeQuery("SELECT string_agg(username, ', ' ORDER BY id) FROM "
+                + table("users") + " GROUP BY lower(username) HAVING COUNT(*) > 1 ORDER BY 1 LIMIT 20").getResultList();
+        if (!clashes.isEmpty()) {
+            throw new IllegalStateException("Cannot create idx_users_username_lower: usernames differ only in case: ["
+                    + String.join("], [", clashes) + "]. Rename or merge these accounts and restart");
+        }
+        em.createNativeQuery("CREATE UNIQUE INDEX IF NOT EXISTS idx_users_username_lower ON " + table("users")
+                + " (lower(username))").executeUpdate();
+    }
+
+    private void createIndex(EntityManager em, String name, String table, String columns) {
+        em.createNativeQuery("CREATE INDEX IF NOT EXISTS " + name + " ON " + table(table) + " (" + columns + ")")
+                .executeUpdate();
+    }
+
+    private String table(String name) {
+        return schema != null ? schema + "." + name : name;
+    }
+
+    private void inTransaction(Consumer<EntityManager> work) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                work.accept(em);
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+}
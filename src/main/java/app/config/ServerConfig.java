@@ -0,0 +1,107 @@
+package app.config;
+
+import app.utils.Utils;
+import io.javalin.config.JavalinConfig;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * Jetty server profile, read from SERVER_* environment variables. Every value defaults to what
+ * Jetty would use on its own, except h2c, which is enabled so Caddy can multiplex requests over a
+ * few long-lived HTTP/2 connections instead of opening one HTTP/1.1 connection per in-flight request.
+ * HTTP/1.1 stays available on the same port for health checks and local clients.
+ */
+public class ServerConfig {
+
+    private final int port;
+    private final int minThreads;
+    private final int maxThreads;
+    private final int threadIdleTimeoutMillis;
+    private final int acceptors;
+    private final int selectors;
+    private final int acceptQueueSize;
+    private final int idleTimeoutMillis;
+    private final int requestHeaderSize;
+    private final int responseHeaderSize;
+    private final boolean h2c;
+    private final int h2cMaxConcurrentStreams;
+
+    public ServerConfig(int port, int minThreads, int maxThreads, int threadIdleTimeoutMillis, int acceptors,
+                        int selectors, int acceptQueueSize, int idleTimeoutMillis, int requestHeaderSize,
+                        int responseHeaderSize, boolean h2c, int h2cMaxConcurrentStreams) {
+        this.port = port;
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.threadIdleTimeoutMillis = threadIdleTimeoutMillis;
+        this.acceptors = acceptors;
+        this.selectors = selectors;
+        this.acceptQueueSize = acceptQueueSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.requestHeaderSize = requestHeaderSize;
+        this.responseHeaderSize = responseHeaderSize;
+        this.h2c = h2c;
+        this.h2cMaxConcurrentStreams = h2cMaxConcurrentStreams;
+    }
+
+    public static ServerConfig fromEnv() {
+        return new ServerConfig(
+                Utils.getEnvInt("SERVER_PORT", 7070),
+                Utils.getEnvInt("SERVER_MIN_THREADS", 8),
+                Utils.getEnvInt("SERVER_MAX_THREADS", 200),
+                Utils.getEnvInt("SERVER_THREAD_IDLE_TIMEOUT_MILLIS", 60_000),
+                // -1 lets Jetty size acceptors and selectors from the CPU count
+                Utils.getEnvInt("SERVER_ACCEPTORS", -1),
+                Utils.getEnvInt("SERVER_SELECTORS", -1),
+                Utils.getEnvInt("SERVER_ACCEPT_QUEUE_SIZE", 0),
+                Utils.getEnvInt("SERVER_IDLE_TIMEOUT_MILLIS", 30_000),
+                Utils.getEnvInt("SERVER_REQUEST_HEADER_SIZE", 8192),
+                Utils.getEnvInt("SERVER_RESPONSE_HEADER_SIZE", 8192),
+                Boolean.parseBoolean(Utils.getEnv("SERVER_H2C", "true")),
+                Utils.getEnvInt("SERVER_H2C_MAX_CONCURRENT_STREAMS", 128));
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void apply(JavalinConfig config) {
+        QueuedThreadPool threadPool = new QueuedThreadPool(maxThreads, minThreads, threadIdleTimeoutMillis);
+        threadPool.setName("jetty-http");
+        config.jetty.threadPool = threadPool;
+
+        config.jetty.modifyHttpConfiguration(httpConfig -> {
+            httpConfig.setRequestHeaderSize(requestHeaderSize);
+            httpConfig.setResponseHeaderSize(responseHeaderSize);
+            httpConfig.setSendServerVersion(false);
+        });
+
+        config.jetty.addConnector((server, httpConfig) -> {
+            ServerConnector connector = new ServerConnector(server, acceptors, selectors, connectionFactories(httpConfig));
+            connector.setPort(port);
+            connector.setIdleTimeout(idleTimeoutMillis);
+            connector.setAcceptQueueSize(acceptQueueSize);
+            return connector;
+        });
+    }
+
+    private ConnectionFactory[] connectionFactories(HttpConfiguration httpConfig) {
+        HttpConnectionFactory http1 = new HttpConnectionFactory(httpConfig);
+        if (!h2c) {
+            return new ConnectionFactory[]{http1};
+        }
+        // Cleartext HTTP/2, either via prior knowledge (Caddy's h2c:// upstreams) or an Upgrade from HTTP/1.1
+        HTTP2CServerConnectionFactory http2 = new HTTP2CServerConnectionFactory(httpConfig);
+        http2.setMaxConcurrentStreams(h2cMaxConcurrentStreams);
+        return new ConnectionFactory[]{http1, http2};
+    }
+
+    @Override
+    public String toString() {
+        return String.format("port=%d threads=%d-%d acceptors=%d selectors=%d idleTimeout=%dms h2c=%s",
+                port, minThreads, maxThreads, acceptors, selectors, idleTimeoutMillis, h2c);
+    }
+}
@@ -0,0 +1,92 @@
+package app.config;
+
+import app.dto.AuthResponseDTO;
+import app.dto.BookDTO;
+import app.dto.ErrorDTO;
+import app.repository.BookRepository;
+import app.repository.UserRepository;
+import app.security.JwtUtil;
+import app.service.BookService;
+import io.javalin.json.JsonMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drives synthetic in-process calls through the hot request paths right after boot, so JIT
+ * compilation, Jackson serializer caches and Hibernate query plans are warm before the
+ * instance reports ready. Only read queries are issued; nothing is written to the database.
+ */
+public class WarmUp {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmUp.class);
+
+    private static final String WARMUP_USERNAME = "__warmup__";
+    private static final Long NO_SUCH_ID = -1L;
+
+    private final BookRepository bookRepository;
+    private final UserRepository userRepository;
+    private final BookService bookService;
+    private final JsonMapper jsonMapper;
+
+    public WarmUp(BookRepository bookRepository, UserRepository userRepository,
+                  BookService bookService, JsonMapper jsonMapper) {
+        this.bookRepository = bookRepository;
+        this.userRepository = userRepository;
+        this.bookService = bookService;
+        this.jsonMapper = jsonMapper;
+    }
+
+    public void run(int iterations) {
+        if (iterations <= 0) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<BookDTO> books = sampleBooks();
+
+        try {
+            for (int i = 0; i < iterations; i++) {
+                warmTokens(i);
+                warmSerialization(books);
+                warmQueries();
+            }
+            log.info("Warm-up finished: {} iterations in {} ms", iterations, (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            // A failing warm-up must never keep the instance out of rotation
+            log.warn("Warm-up aborted", e);
+        }
+    }
+
+    private void warmTokens(int i) {
+        String token = JwtUtil.generateToken(WARMUP_USERNAME + i, "USER");
+        JwtUtil.isTokenValid(token);
+        JwtUtil.getUsernameFromToken(token);
+        JwtUtil.getRoleFromToken(token);
+    }
+
+    private void warmSerialization(List<BookDTO> books) {
+        jsonMapper.toJsonString(books, List.class);
+        String single = jsonMapper.toJsonString(books.get(0), BookDTO.class);
+        jsonMapper.fromJsonString(single, BookDTO.class);
+        jsonMapper.toJsonString(new ErrorDTO("warm-up"), ErrorDTO.class);
+        jsonMapper.toJsonString(new AuthResponseDTO(WARMUP_USERNAME, single), AuthResponseDTO.class);
+    }
+
+    private void warmQueries() {
+        userRepository.findByUsername(WARMUP_USERNAME);
+        bookRepository.findByUserId(NO_SUCH_ID);
+        bookRepository.findByIdAndUserId(NO_SUCH_ID, NO_SUCH_ID);
+        bookService.getAllBooksByUser(NO_SUCH_ID);
+    }
+
+    private List<BookDTO> sampleBooks() {
+        List<BookDTO> books = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            books.add(new BookDTO(id, "Warm-up title " + id, "Warm-up author " + id));
+        }
+        return books;
+    }
+}
@@ -0,0 +1,104 @@
+package app.controller;
+
+import app.dto.AuthorCountDTO;
+import app.dto.RevokeTokenDTO;
+import app.exceptions.BadRequestException;
+import app.exceptions.NotFoundException;
+import app.profiling.JfrSummary;
+import app.security.JwtAuthFilter;
+import app.security.JwtUtil;
+import app.security.Role;
+import app.security.TokenDenylist;
+import app.service.LibraryStats;
+import app.utils.Metrics;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+import java.util.List;
+
+public class AdminController {
+
+    private static final int DEFAULT_TOP_AUTHORS = 10;
+    private static final int MAX_TOP_AUTHORS = 100;
+
+    private final TokenDenylist denylist;
+    private final LibraryStats stats;
+    private final Metrics metrics;
+    private final JfrSummary jfrSummary;
+
+    public AdminController(TokenDenylist denylist, LibraryStats stats, Metrics metrics, JfrSummary jfrSummary) {
+        this.denylist = denylist;
+        this.stats = stats;
+        this.metrics = metrics;
+        this.jfrSummary = jfrSummary;
+    }
+
+    public void registerRoutes(Javalin app) {
+        app.post("/api/admin/tokens/revoke", this::revokeToken);
+        app.get("/api/admin/stats", this::getStats);
+        app.get("/api/admin/stats/top-authors", this::getTopAuthors);
+        app.get("/api/admin/metrics", this::getMetrics);
+        app.get("/api/admin/profile", this::getProfile);
+    }
+
+    private void getProfile(Context ctx) {
+        JwtAuthFilter.authenticateWithRole(ctx, Role.ADMIN.name());
+        if (jfrSummary == null) {
+            throw new NotFoundException("JFR streaming is disabled (JFR_STREAMING=false)");
+        }
+        ctx.json(jfrSummary.snapshot());
+    }
+
+    private void getMetrics(Context ctx) {
+        JwtAuthFilter.authenticateWithRole(ctx, Role.ADMIN.name());
+        ctx.json(metrics.snapshot());
+    }
+
+    private void getStats(Context ctx) {
+        JwtAuthFilter.authenticateWithRole(ctx, Role.ADMIN.name());
+        ctx.json(stats.getStats());
+    }
+
+    private void getTopAuthors(Context ctx) {
+        JwtAuthFilter.authenticateWithRole(ctx, Role.ADMIN.name());
+        List<AuthorCountDTO> authors = stats.getTopAuthors(limit(ctx));
+        ctx.json(authors);
+    }
+
+    private int limit(Context ctx) {
+        String limit = ctx.queryParam("limit");
+        if (limit == null || limit.isEmpty()) {
+            return DEFAULT_TOP_AUTHORS;
+        }
+        try {
+            int parsed = Integer.parseInt(limit);
+            if (parsed >= 1 && parsed <= MAX_TOP_AUTHORS) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the error below
+        }
+        throw new BadRequestException("Limit must be a number between 1 and " + MAX_TOP_AUTHORS);
+    }
+
+    private void revokeToken(Context ctx) {
+        JwtAuthFilter.authenticateWithRole(ctx, Role.ADMIN.name());
+        RevokeTokenDTO request = ctx.bodyAsClass(RevokeTokenDTO.class);
+
+        if (request.getToken() != null && !request.getToken().isEmpty()) {
+            Claims claims = JwtUtil.validateToken(request.getToken());
+            if (claims == null || claims.getId() == null) {
+                throw new BadRequestException("Token is invalid, expired or has no id");
+            }
+            denylist.revoke(claims.getId(), claims.getExpiration().toInstant());
+        } else if (request.getJti() != null && !request.getJti().isEmpty()) {
+            // Without the token we can't know its expiry, so keep the entry for the longest possible lifetime
+            denylist.revoke(request.getJti(), Instant.now().plusMillis(JwtUtil.getMaxTokenLifetimeMillis()));
+        } else {
+            throw new BadRequestException("Token or jti is required");
+        }
+        ctx.status(204);
+    }
+}
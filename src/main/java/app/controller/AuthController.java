@@ -1,72 +1,67 @@
 package app.controller;
 
 import app.dto.AuthResponseDTO;
-import app.dto.ErrorDTO;
 import app.dto.UserDTO;
+import app.exceptions.BadRequestException;
+import app.security.JwtAuthFilter;
+import app.security.TokenDenylist;
 import app.service.UserService;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 
+import java.time.Instant;
+
 public class AuthController {
 
     private final UserService userService;
+    private final TokenDenylist denylist;
 
-    public AuthController(UserService userService) {
+    public AuthController(UserService userService, TokenDenylist denylist) {
         this.userService = userService;
+        this.denylist = denylist;
     }
 
     public void registerRoutes(Javalin app) {
         app.post("/api/auth/register", this::register);
         app.post("/api/auth/login", this::login);
+        app.post("/api/auth/logout", this::logout);
     }
 
     private void register(Context ctx) {
-        try {
-            UserDTO userDTO = ctx.bodyAsClass(UserDTO.class);
+        UserDTO userDTO = ctx.bodyAsClass(UserDTO.class);
+        validateCredentials(userDTO);
 
-            if (userDTO.getUsername() == null || userDTO.getUsername().isEmpty()) {
-                ctx.status(400).json(new ErrorDTO("Username is required"));
-                return;
-            }
+        UserDTO response = userService.register(userDTO);
+        ctx.status(201).json(response);
+    }
 
-            if (userDTO.getPassword() == null || userDTO.getPassword().isEmpty()) {
-                ctx.status(400).json(new ErrorDTO("Password is required"));
-                return;
-            }
+    private void login(Context ctx) {
+        UserDTO userDTO = ctx.bodyAsClass(UserDTO.class);
+        validateCredentials(userDTO);
 
-            UserDTO response = userService.register(userDTO);
-            ctx.status(201).json(response);
-        } catch (Exception e) {
-            if (e.getMessage().equals("Username already exists")) {
-                ctx.status(400).json(new ErrorDTO(e.getMessage()));
-            } else {
-                ctx.status(500).json(new ErrorDTO("Internal server error"));
-            }
-        }
+        AuthResponseDTO response = userService.login(userDTO);
+        ctx.status(200).json(response);
     }
 
-    private void login(Context ctx) {
-        try {
-            UserDTO userDTO = ctx.bodyAsClass(UserDTO.class);
+    private void logout(Context ctx) {
+        JwtAuthFilter.authenticate(ctx);
 
-            if (userDTO.getUsername() == null || userDTO.getUsername().isEmpty()) {
-                ctx.status(400).json(new ErrorDTO("Username is required"));
-                return;
-            }
+        String jti = ctx.attribute("jti");
+        if (jti == null) {
+            throw new BadRequestException("Token has no id and cannot be revoked");
+        }
+        Instant expiresAt = ctx.attribute("tokenExpiresAt");
+        denylist.revoke(jti, expiresAt);
+        ctx.status(204);
+    }
 
-            if (userDTO.getPassword() == null || userDTO.getPassword().isEmpty()) {
-                ctx.status(400).json(new ErrorDTO("Password is required"));
-                return;
-            }
+    private void validateCredentials(UserDTO userDTO) {
+        if (userDTO.getUsername() == null || userDTO.getUsername().isEmpty()) {
+            throw new BadRequestException("Username is required");
+        }
 
-            AuthResponseDTO response = userService.login(userDTO);
-            ctx.status(200).json(response);
-        } catch (Exception e) {
-            if (e.getMessage().equals("Invalid username or password")) {
-                ctx.status(401).json(new ErrorDTO(e.getMessage()));
-            } else {
-                ctx.status(500).json(new ErrorDTO("Internal server error"));
-            }
+        if (userDTO.getPassword() == null || userDTO.getPassword().isEmpty()) {
+            throw new BadRequestException("Password is required");
         }
     }
-}
\ No newline at end of file
+}
@@ -1,175 +1,237 @@
 package app.controller;
 
+import app.dto.BookChangesDTO;
 import app.dto.BookDTO;
-import app.dto.ErrorDTO;
+import app.dto.BookLookupDTO;
+import app.dto.BookLookupRequestDTO;
 import app.entities.User;
+import app.exceptions.BadRequestException;
+import app.exceptions.UnauthorizedException;
+import app.repository.BookFields;
+import app.repository.BookQuery;
+import app.service.BookImportService;
 import app.service.BookService;
+import app.service.IdempotencyStore;
+import app.service.TagIndex;
 import app.service.UserService;
+import app.tracing.Span;
+import app.tracing.Tracer;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.javalin.Javalin;
+import io.javalin.http.ContentType;
 import io.javalin.http.Context;
 import app.security.JwtAuthFilter;
-import io.javalin.http.HttpStatus;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class BookController {
 
+    // Filters, sorting and paging of the listing, none of which apply to a lookup by id
+    private static final List<String> LISTING_PARAMS =
+            List.of("author", "title", "sort", "order", "limit", "offset", "tags", "not");
+
     private final BookService bookService;
     private final UserService userService;
+    private final BookImportService importService;
+    private final BookFieldsWriter fieldsWriter;
+    private IdempotencyStore idempotencyStore;
 
-    public BookController(BookService bookService, UserService userService) {
+    // mapper is the app's configured JSON mapper, so sparse responses serialize like full ones
+    public BookController(BookService bookService, UserService userService, BookImportService importService,
+                          ObjectMapper mapper) {
         this.bookService = bookService;
         this.userService = userService;
+        this.importService = importService;
+        this.fieldsWriter = new BookFieldsWriter(mapper);
+    }
+
+    public void setIdempotencyStore(IdempotencyStore idempotencyStore) {
+        this.idempotencyStore = idempotencyStore;
     }
 
     public void registerRoutes(Javalin app) {
         app.get("/api/books", this::getAllBooks);
+        app.get("/api/books/changes", this::getChanges);
         app.get("/api/books/{id}", this::getBookById);
         app.post("/api/books", this::createBook);
+        app.post("/api/books/import", this::importBooks);
+        app.post("/api/books/lookup", this::lookupBooks);
         app.put("/api/books/{id}", this::updateBook);
         app.delete("/api/books/{id}", this::deleteBook);
     }
 
     private void getAllBooks(Context ctx) {
+        User user = currentUser(ctx);
+        if (ctx.queryParam("ids") != null) {
+            lookupBooks(ctx, user, ids(ctx));
+            return;
+        }
+        BookQuery query = BookQuery.parse(ctx.queryParam("author"), ctx.queryParam("title"),
+                ctx.queryParam("sort"), ctx.queryParam("order"), ctx.queryParam("limit"), ctx.queryParam("offset"));
+        query.setFields(BookFields.parse(ctx.queryParam("fields")));
+        String tags = ctx.queryParam("tags");
+        String not = ctx.queryParam("not");
+        TagIndex.Filter tagFilter = tags != null || not != null ? TagIndex.Filter.parse(tags, not) : null;
+
+        List<BookDTO> books;
+        if (!query.isDefault()) {
+            books = bookService.getBooks(user.getId(), query, tagFilter);
+        } else if (tagFilter != null) {
+            books = bookService.getBooksByTags(user.getId(), tagFilter);
+        } else {
+            books = bookService.getAllBooksByUser(user.getId());
+        }
+        json(ctx, books, query.getFields());
+    }
 
-        JwtAuthFilter.authenticate(ctx);
-        if (ctx.status() == HttpStatus.UNAUTHORIZED) return;
-
-        try {
-            String username =ctx.attribute("username");
+    private void lookupBooks(Context ctx) {
+        User user = currentUser(ctx);
+        BookLookupRequestDTO request = ctx.bodyAsClass(BookLookupRequestDTO.class);
+        lookupBooks(ctx, user, request.getIds());
+    }
 
-            User user = userService.findByUsername(username);
-            if (user == null) {
-                ctx.status(404).json(new ErrorDTO("Bruger ikke fundet"));
-                return;
+    private void lookupBooks(Context ctx, User user, List<Long> ids) {
+        for (String param : LISTING_PARAMS) {
+            if (ctx.queryParam(param) != null) {
+                throw new BadRequestException("Book IDs cannot be combined with '" + param + "'");
             }
-
-            List<BookDTO> books = bookService.getAllBooksByUser(user.getId());
-            ctx.status(200).json(books);
-        } catch (Exception e) {
-            ctx.status(500).json(new ErrorDTO("Server fejl: " + e.getMessage()));
         }
+        BookFields fields = BookFields.parse(ctx.queryParam("fields"));
+
+        List<BookLookupDTO> books = bookService.getBooksByIds(user.getId(), ids, fields);
+        json(ctx, books, fields);
     }
 
-    private void getBookById(Context ctx) {
-        JwtAuthFilter.authenticate(ctx);
-        if (ctx.status() == HttpStatus.UNAUTHORIZED) return;
+    private void getChanges(Context ctx) {
+        User user = currentUser(ctx);
+        Long since = cursor(ctx);
 
-        try {
-            Long bookId = Long.parseLong(ctx.pathParam("id"));
-            String username =ctx.attribute("username");
+        BookChangesDTO changes = bookService.getChangesSince(user.getId(), since);
+        ctx.status(200).json(changes);
+    }
 
-            User user = userService.findByUsername(username);
-            if (user == null) {
-                ctx.status(401).json(new ErrorDTO("User not found"));
-                return;
-            }
+    private void getBookById(Context ctx) {
+        User user = currentUser(ctx);
+        Long bookId = bookId(ctx);
+        BookFields fields = BookFields.parse(ctx.queryParam("fields"));
 
-            BookDTO book = bookService.getBookById(bookId, user.getId());
-            ctx.status(200).json(book);
-        } catch (NumberFormatException e) {
-            ctx.status(400).json(new ErrorDTO("Invalid book ID"));
-        } catch (Exception e) {
-            if (e.getMessage().equals("Book not found or does not belong to user")) {
-                ctx.status(404).json(new ErrorDTO(e.getMessage()));
-            } else {
-                ctx.status(500).json(new ErrorDTO("Internal server error"));
-            }
-        }
+        BookDTO book = bookService.getBookById(bookId, user.getId(), fields);
+        json(ctx, book, fields);
     }
 
     private void createBook(Context ctx) {
-        JwtAuthFilter.authenticate(ctx);
-        if (ctx.status() == HttpStatus.UNAUTHORIZED) return;
-        try {
-            BookDTO bookDTO = ctx.bodyAsClass(BookDTO.class);
-
-            if (bookDTO.getTitle() == null || bookDTO.getTitle().isEmpty()) {
-                ctx.status(400).json(new ErrorDTO("Title is required"));
-                return;
-            }
-
-            if (bookDTO.getAuthor() == null || bookDTO.getAuthor().isEmpty()) {
-                ctx.status(400).json(new ErrorDTO("Author is required"));
-                return;
-            }
+        User user = currentUser(ctx);
+        BookDTO bookDTO = ctx.bodyAsClass(BookDTO.class);
+        BookService.validate(bookDTO);
 
-            String username =ctx.attribute("username");
-            User user = userService.findByUsername(username);
+        respond(ctx, user, 201, () -> bookService.createBook(bookDTO, user), ctx.body());
+    }
 
-            if (user == null) {
-                ctx.status(401).json(new ErrorDTO("User not found"));
-                return;
-            }
+    private void importBooks(Context ctx) {
+        User user = currentUser(ctx);
+        String contentType = ctx.contentType();
+        BookImportService.Format format = contentType != null && contentType.startsWith("text/csv")
+                ? BookImportService.Format.CSV
+                : BookImportService.Format.NDJSON;
 
-            BookDTO createdBook = bookService.createBook(bookDTO, user);
-            ctx.status(201).json(createdBook);
-        } catch (Exception e) {
-            ctx.status(500).json(new ErrorDTO("Internal server error"));
-        }
+        // Read the raw stream rather than ctx.body(), which would buffer the whole upload; for the
+        // same reason a retried import is matched on its key and content type only
+        respond(ctx, user, 200, () -> importService.importBooks(ctx.bodyInputStream(), format, user), contentType);
     }
 
     private void updateBook(Context ctx) {
-        JwtAuthFilter.authenticate(ctx);
-        if (ctx.status() == HttpStatus.UNAUTHORIZED) return;
-        try {
-            Long bookId = Long.parseLong(ctx.pathParam("id"));
-            BookDTO bookDTO = ctx.bodyAsClass(BookDTO.class);
+        User user = currentUser(ctx);
+        Long bookId = bookId(ctx);
+        BookDTO bookDTO = ctx.bodyAsClass(BookDTO.class);
+        BookService.validate(bookDTO);
 
-            if (bookDTO.getTitle() == null || bookDTO.getTitle().isEmpty()) {
-                ctx.status(400).json(new ErrorDTO("Title is required"));
-                return;
-            }
+        respond(ctx, user, 200, () -> bookService.updateBook(bookId, bookDTO, user.getId()), ctx.body());
+    }
 
-            if (bookDTO.getAuthor() == null || bookDTO.getAuthor().isEmpty()) {
-                ctx.status(400).json(new ErrorDTO("Author is required"));
-                return;
-            }
+    private void deleteBook(Context ctx) {
+        User user = currentUser(ctx);
+        Long bookId = bookId(ctx);
 
-            String username =ctx.attribute("username");
-            User user = userService.findByUsername(username);
+        bookService.deleteBook(bookId, user.getId());
+        ctx.status(204);
+    }
 
-            if (user == null) {
-                ctx.status(401).json(new ErrorDTO("User not found"));
-                return;
-            }
+    /**
+     * Runs a mutation, or replays its stored response when the request carries an
+     * Idempotency-Key that was already used.
+     */
+    private void respond(Context ctx, User user, int status, Supplier<Object> action, String body) {
+        String key = ctx.header(IdempotencyStore.HEADER);
+        if (key == null || idempotencyStore == null) {
+            ctx.status(status).json(action.get());
+            return;
+        }
 
-            BookDTO updatedBook = bookService.updateBook(bookId, bookDTO, user.getId());
-            ctx.status(200).json(updatedBook);
-        } catch (NumberFormatException e) {
-            ctx.status(400).json(new ErrorDTO("Invalid book ID"));
-        } catch (Exception e) {
-            if (e.getMessage().equals("Book not found or does not belong to user")) {
-                ctx.status(404).json(new ErrorDTO(e.getMessage()));
-            } else {
-                ctx.status(500).json(new ErrorDTO("Internal server error"));
-            }
+        String fingerprint = IdempotencyStore.fingerprint(ctx.method().name(), ctx.path(), body);
+        IdempotencyStore.Response response = idempotencyStore.execute(user.getId(), key, fingerprint, status, action);
+        if (response.replayed()) {
+            ctx.header("Idempotent-Replayed", "true");
         }
+        ctx.status(response.status()).contentType(ContentType.APPLICATION_JSON).result(response.body());
     }
 
-    private void deleteBook(Context ctx) {
+    // Full responses go through Javalin's mapper as before; narrowed ones through the cached per-field-set writer
+    private void json(Context ctx, Object books, BookFields fields) {
+        if (fields.isAll()) {
+            ctx.status(200).json(books);
+        } else {
+            ctx.status(200).contentType(ContentType.APPLICATION_JSON).result(fieldsWriter.write(books, fields));
+        }
+    }
+
+    private User currentUser(Context ctx) {
         JwtAuthFilter.authenticate(ctx);
-        if (ctx.status() == HttpStatus.UNAUTHORIZED) return;
-        try {
-            Long bookId = Long.parseLong(ctx.pathParam("id"));
-            String username =ctx.attribute("username");
-            User user = userService.findByUsername(username);
 
+        String username = ctx.attribute("username");
+        try (Span span = Tracer.startSpan("user.lookup")) {
+            User user = userService.findByUsername(username);
             if (user == null) {
-                ctx.status(401).json(new ErrorDTO("User not found"));
-                return;
+                throw new UnauthorizedException("User not found");
             }
+            span.setAttribute("user.id", user.getId());
+            ctx.attribute("userId", user.getId());
+            return user;
+        }
+    }
 
-            bookService.deleteBook(bookId, user.getId());
-            ctx.status(204);
+    private Long bookId(Context ctx) {
+        try {
+            return Long.parseLong(ctx.pathParam("id"));
         } catch (NumberFormatException e) {
-            ctx.status(400).json(new ErrorDTO("Invalid book ID"));
-        } catch (Exception e) {
-            if (e.getMessage().equals("Book not found or does not belong to user")) {
-                ctx.status(404).json(new ErrorDTO(e.getMessage()));
-            } else {
-                ctx.status(500).json(new ErrorDTO("Internal server error"));
+            throw new BadRequestException("Invalid book ID");
+        }
+    }
+
+    private List<Long> ids(Context ctx) {
+        String[] values = ctx.queryParam("ids").split(",");
+        List<Long> ids = new ArrayList<>(values.length);
+        for (String value : values) {
+            try {
+                ids.add(Long.parseLong(value.trim()));
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid book ID '" + value + "'");
             }
         }
+        return ids;
+    }
+
+    private Long cursor(Context ctx) {
+        String since = ctx.queryParam("since");
+        if (since == null || since.isEmpty()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(since);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
     }
-}
\ No newline at end of file
+
+}
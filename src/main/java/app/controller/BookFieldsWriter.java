@@ -0,0 +1,46 @@
+package app.controller;
+
+import app.dto.BookDTO;
+import app.repository.BookFields;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import java.io.UncheckedIOException;
+
+/**
+ * Serializes book responses narrowed to a field set. The writers for all field sets are built
+ * once up front and share one mapper, so the bean serializer for {@link BookDTO} is introspected
+ * a single time; a request only picks its writer by mask.
+ */
+class BookFieldsWriter {
+
+    private static final String FILTER = "bookFields";
+
+    // Attached through a mix-in on a private copy of the mapper, so other BookDTO responses are untouched
+    @JsonFilter(FILTER)
+    private interface Filtered {
+    }
+
+    private final ObjectWriter[] writers = new ObjectWriter[BookFields.COMBINATIONS];
+
+    BookFieldsWriter(ObjectMapper mapper) {
+        ObjectMapper filtered = mapper.copy().addMixIn(BookDTO.class, Filtered.class);
+        for (int mask = 1; mask < writers.length; mask++) {
+            String[] properties = BookFields.ofMask(mask).getProperties();
+            writers[mask] = filtered.writer(new SimpleFilterProvider().addFilter(FILTER,
+                    SimpleBeanPropertyFilter.filterOutAllExcept(properties)));
+        }
+    }
+
+    String write(Object value, BookFields fields) {
+        try {
+            return writers[fields.getMask()].writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
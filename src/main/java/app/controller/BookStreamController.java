@@ -0,0 +1,62 @@
+package app.controller;
+
+import app.entities.User;
+import app.exceptions.UnauthorizedException;
+import app.security.JwtAuthFilter;
+import app.service.BookEventBroker;
+import app.service.UserService;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.sse.SseClient;
+
+public class BookStreamController {
+
+    private final BookEventBroker broker;
+    private final UserService userService;
+
+    public BookStreamController(BookEventBroker broker, UserService userService) {
+        this.broker = broker;
+        this.userService = userService;
+    }
+
+    // Must be registered before BookController, otherwise /api/books/{id} swallows the path
+    public void registerRoutes(Javalin app) {
+        // The SSE handler commits a 200 before it runs, so authentication happens in a before-handler
+        app.before("/api/books/stream", this::authenticate);
+        app.sse("/api/books/stream", this::stream);
+    }
+
+    private void authenticate(Context ctx) {
+        JwtAuthFilter.authenticate(ctx);
+
+        User user = userService.findByUsername(ctx.attribute("username"));
+        if (user == null) {
+            throw new UnauthorizedException("User not found");
+        }
+        ctx.attribute("userId", user.getId());
+    }
+
+    private void stream(SseClient client) {
+        Long userId = client.ctx().attribute("userId");
+
+        BookEventBroker.Subscriber subscriber = broker.subscribe(userId, new BookEventBroker.EventSink() {
+            @Override
+            public void send(String event, Object data) {
+                client.sendEvent(event, data);
+            }
+
+            @Override
+            public void heartbeat() {
+                client.sendComment("heartbeat");
+            }
+
+            @Override
+            public boolean isClosed() {
+                return client.terminated();
+            }
+        });
+
+        client.onClose(() -> broker.unsubscribe(subscriber));
+        client.keepAlive();
+    }
+}
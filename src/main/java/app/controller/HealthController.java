@@ -0,0 +1,50 @@
+package app.controller;
+
+import app.dto.HealthDTO;
+import app.utils.CircuitBreaker;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+import java.util.Locale;
+
+public class HealthController {
+
+    // Flipped once the warm-up phase has finished, so the load balancer only routes to a warm JVM
+    private volatile boolean ready = false;
+    private CircuitBreaker databaseBreaker;
+
+    public void registerRoutes(Javalin app) {
+        app.get("/health/live", this::live);
+        app.get("/health/ready", this::ready);
+    }
+
+    public void setDatabaseBreaker(CircuitBreaker databaseBreaker) {
+        this.databaseBreaker = databaseBreaker;
+    }
+
+    public void markReady() {
+        this.ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void live(Context ctx) {
+        ctx.status(200).json(new HealthDTO("alive", database()));
+    }
+
+    // An open circuit is reported but does not fail readiness: every instance shares the database,
+    // so taking them out of rotation would only turn fast 503s into no answer at all
+    private void ready(Context ctx) {
+        if (ready) {
+            ctx.status(200).json(new HealthDTO("ready", database()));
+        } else {
+            ctx.status(503).json(new HealthDTO("warming up", database()));
+        }
+    }
+
+    private String database() {
+        return databaseBreaker != null ? databaseBreaker.getState().name().toLowerCase(Locale.ROOT) : null;
+    }
+}
@@ -0,0 +1,84 @@
+package app.controller;
+
+import app.exceptions.ServiceUnavailableException;
+import app.utils.AdaptiveLimiter;
+import app.utils.Metrics;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+/**
+ * Admission control in front of the database-bound routes. Book routes and auth routes each have
+ * their own adaptive limit, so a book-traffic incident cannot starve logins and the CPU-heavy
+ * password hashing in auth cannot crowd out book reads. Requests over the limit get 503 with
+ * Retry-After straight away instead of queueing for a pool connection.
+ */
+public class LoadShedder {
+
+    private static final String PERMIT_ATTRIBUTE = "loadShedder.permit";
+    private static final String START_ATTRIBUTE = "loadShedder.start";
+
+    private final AdaptiveLimiter bookLimiter;
+    private final AdaptiveLimiter authLimiter;
+    private final int retryAfterSeconds;
+
+    public LoadShedder(AdaptiveLimiter bookLimiter, AdaptiveLimiter authLimiter, int retryAfterSeconds) {
+        this.bookLimiter = bookLimiter;
+        this.authLimiter = authLimiter;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public void registerMetrics(Metrics metrics) {
+        metrics.register("limiter.books.limit", bookLimiter::getLimit);
+        metrics.register("limiter.books.inflight", bookLimiter::getInFlight);
+        metrics.register("limiter.books.rejected", bookLimiter::getRejected);
+        metrics.register("limiter.auth.limit", authLimiter::getLimit);
+        metrics.register("limiter.auth.inflight", authLimiter::getInFlight);
+        metrics.register("limiter.auth.rejected", authLimiter::getRejected);
+    }
+
+    // Must be registered before the routes it protects, so it runs ahead of their before-handlers
+    public void registerRoutes(Javalin app) {
+        app.before(this::admit);
+        app.after(this::complete);
+    }
+
+    private void admit(Context ctx) {
+        AdaptiveLimiter limiter = limiterFor(ctx.path());
+        if (limiter == null) {
+            return;
+        }
+        if (!limiter.tryAcquire()) {
+            ctx.header("Retry-After", String.valueOf(retryAfterSeconds));
+            throw new ServiceUnavailableException("Server is busy, please retry");
+        }
+        ctx.attribute(PERMIT_ATTRIBUTE, limiter);
+        ctx.attribute(START_ATTRIBUTE, System.nanoTime());
+    }
+
+    // After-handlers also run when the request failed, so every permit is returned exactly once
+    private void complete(Context ctx) {
+        AdaptiveLimiter limiter = ctx.attribute(PERMIT_ATTRIBUTE);
+        if (limiter == null) {
+            return;
+        }
+        ctx.attribute(PERMIT_ATTRIBUTE, null);
+        if (ctx.path().equals("/api/books/import")) {
+            // An upload's duration depends on its size, not on how healthy the database is
+            limiter.release();
+            return;
+        }
+        long start = ctx.attribute(START_ATTRIBUTE);
+        limiter.release(System.nanoTime() - start, ctx.statusCode() >= 500);
+    }
+
+    private AdaptiveLimiter limiterFor(String path) {
+        if (path.startsWith("/api/auth/")) {
+            return authLimiter;
+        }
+        // Event streams stay open for minutes and would hold a permit the whole time
+        if (path.startsWith("/api/books") && !path.equals("/api/books/stream")) {
+            return bookLimiter;
+        }
+        return null;
+    }
+}
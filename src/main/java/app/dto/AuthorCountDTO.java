@@ -0,0 +1,20 @@
+package app.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class AuthorCountDTO {
+    private String author;
+    private long count;
+    private long maxError;
+
+    public AuthorCountDTO() {}
+
+    public AuthorCountDTO(String author, long count, long maxError) {
+        this.author = author;
+        this.count = count;
+        this.maxError = maxError;
+    }
+}
@@ -0,0 +1,26 @@
+package app.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class BookChangeDTO {
+    private Long cursor;
+    private String type;
+    private Long bookId;
+    private String title;
+    private String author;
+    private String changedAt;
+
+    public BookChangeDTO() {}
+
+    public BookChangeDTO(Long cursor, String type, Long bookId, String title, String author, String changedAt) {
+        this.cursor = cursor;
+        this.type = type;
+        this.bookId = bookId;
+        this.title = title;
+        this.author = author;
+        this.changedAt = changedAt;
+    }
+}
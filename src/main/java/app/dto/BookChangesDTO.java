@@ -0,0 +1,29 @@
+package app.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BookChangesDTO {
+    private List<BookChangeDTO> changes;
+    private Long cursor;
+    private boolean hasMore;
+    // The cursor predates the retained change log: reload the full list, then continue from cursor
+    private boolean resync;
+
+    public BookChangesDTO() {}
+
+    public BookChangesDTO(List<BookChangeDTO> changes, Long cursor, boolean hasMore) {
+        this(changes, cursor, hasMore, false);
+    }
+
+    public BookChangesDTO(List<BookChangeDTO> changes, Long cursor, boolean hasMore, boolean resync) {
+        this.changes = changes;
+        this.cursor = cursor;
+        this.hasMore = hasMore;
+        this.resync = resync;
+    }
+}
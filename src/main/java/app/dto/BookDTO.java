@@ -4,15 +4,25 @@ package app.dto;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.List;
+
 @Getter
 @Setter
 public class BookDTO {
     private Long id;
     private String title;
     private String author;
+    private List<String> tags;
 
     public BookDTO() {}
 
+    public BookDTO(Long id, String title, String author, List<String> tags) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.tags = tags;
+    }
+
     public BookDTO(Long id, String title, String author) {
         this.id = id;
         this.title = title;
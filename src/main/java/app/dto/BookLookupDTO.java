@@ -0,0 +1,25 @@
+package app.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * One entry of a multi-get response: the book, or why the requested id has none.
+ */
+@Getter
+@Setter
+public class BookLookupDTO {
+    private Long id;
+    private boolean found;
+    private BookDTO book;
+    private String error;
+
+    public BookLookupDTO() {}
+
+    public BookLookupDTO(Long id, BookDTO book, String error) {
+        this.id = id;
+        this.found = book != null;
+        this.book = book;
+        this.error = error;
+    }
+}
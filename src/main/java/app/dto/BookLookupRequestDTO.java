@@ -0,0 +1,18 @@
+package app.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BookLookupRequestDTO {
+    private List<Long> ids;
+
+    public BookLookupRequestDTO() {}
+
+    public BookLookupRequestDTO(List<Long> ids) {
+        this.ids = ids;
+    }
+}
@@ -0,0 +1,23 @@
+package app.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class HealthDTO {
+    private String status;
+    // Database circuit breaker state (closed, half_open, open); null when there is no breaker
+    private String database;
+
+    public HealthDTO() {}
+
+    public HealthDTO(String status) {
+        this.status = status;
+    }
+
+    public HealthDTO(String status, String database) {
+        this.status = status;
+        this.database = database;
+    }
+}
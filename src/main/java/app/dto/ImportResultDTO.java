@@ -0,0 +1,18 @@
+package app.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+public class ImportResultDTO {
+    private long imported;
+    private long failed;
+    private long batches;
+    private List<String> errors = new ArrayList<>();
+
+    public ImportResultDTO() {}
+}
@@ -0,0 +1,29 @@
+package app.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class LatencySummaryDTO {
+    private String name;
+    private long count;
+    private double meanMillis;
+    private double p50Millis;
+    private double p95Millis;
+    private double p99Millis;
+    private double maxMillis;
+
+    public LatencySummaryDTO() {}
+
+    public LatencySummaryDTO(String name, long count, double meanMillis, double p50Millis, double p95Millis,
+                             double p99Millis, double maxMillis) {
+        this.name = name;
+        this.count = count;
+        this.meanMillis = meanMillis;
+        this.p50Millis = p50Millis;
+        this.p95Millis = p95Millis;
+        this.p99Millis = p99Millis;
+        this.maxMillis = maxMillis;
+    }
+}
@@ -0,0 +1,25 @@
+package app.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class ProfileDTO {
+    private long windowSeconds;
+    private List<LatencySummaryDTO> routes;
+    private List<LatencySummaryDTO> queries;
+    private List<LatencySummaryDTO> passwordHashing;
+
+    public ProfileDTO() {}
+
+    public ProfileDTO(long windowSeconds, List<LatencySummaryDTO> routes, List<LatencySummaryDTO> queries,
+                      List<LatencySummaryDTO> passwordHashing) {
+        this.windowSeconds = windowSeconds;
+        this.routes = routes;
+        this.queries = queries;
+        this.passwordHashing = passwordHashing;
+    }
+}
@@ -0,0 +1,18 @@
+package app.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class RevokeTokenDTO {
+    private String token;
+    private String jti;
+
+    public RevokeTokenDTO() {}
+
+    public RevokeTokenDTO(String token, String jti) {
+        this.token = token;
+        this.jti = jti;
+    }
+}
@@ -0,0 +1,22 @@
+package app.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+@Getter
+@Setter
+public class StatsDTO {
+    private long totalUsers;
+    private long totalBooks;
+    private Map<String, Long> booksPerUser;
+
+    public StatsDTO() {}
+
+    public StatsDTO(long totalUsers, long totalBooks, Map<String, Long> booksPerUser) {
+        this.totalUsers = totalUsers;
+        this.totalBooks = totalBooks;
+        this.booksPerUser = booksPerUser;
+    }
+}
@@ -0,0 +1,42 @@
+package app.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Locale;
+
+/**
+ * An author referenced by id from every book by that author.
+ * The normalized name (trimmed, single-spaced, lower case) is the unique key, so spelling
+ * variants that differ only in case or whitespace share one row. Each book keeps its own
+ * spelling; the first one seen is the shared name used by statistics.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "authors")
+public class Author {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(name = "normalized_name", nullable = false, unique = true)
+    private String normalizedName;
+
+    public Author(String name) {
+        this.name = name.trim();
+        this.normalizedName = normalize(name);
+    }
+
+    // Must stay in sync with the SQL expression used by the author migration
+    public static String normalize(String name) {
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
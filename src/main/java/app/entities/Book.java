@@ -4,6 +4,12 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
 
 @NoArgsConstructor
 @Getter
@@ -19,16 +25,61 @@ public class Book {
     @Column(nullable = false)
     private String title;
 
-    @Column(nullable = false)
-    private String author;
+    // The author as this book was saved with it, when that differs from the author row's shared
+    // name; null otherwise, so most rows and loaded books carry only the shared author
+    @Column(name = "author")
+    private String authorSpelling;
+
+    // Groups spellings that differ only in case or whitespace; filters and statistics use this.
+    // Queries that return books fetch it, so books loaded together share one instance per author
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "author_id")
+    private Author author;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    public Book(String title, String author, User user) {
+    // Loaded with one extra query per result list rather than one per book
+    @ElementCollection(fetch = FetchType.EAGER)
+    @Fetch(FetchMode.SUBSELECT)
+    @CollectionTable(name = "book_tags", joinColumns = @JoinColumn(name = "book_id"))
+    @Column(name = "tag", nullable = false, length = 32)
+    private Set<String> tags = new HashSet<>();
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    // The author row is resolved from the name by the repository, in the same transaction as the book
+    public Book(String title, String authorName, User user) {
         this.title = title;
-        this.author = author;
+        this.authorSpelling = authorName;
         this.user = user;
     }
-}
\ No newline at end of file
+
+    /**
+     * The author as this book was saved with it: its own spelling if it has one, else the shared name.
+     */
+    public String getAuthorName() {
+        return authorSpelling != null || author == null ? authorSpelling : author.getName();
+    }
+
+    // Kept as the book's own spelling until the repository links the author row
+    public void setAuthorName(String authorName) {
+        this.authorSpelling = authorName;
+    }
+
+    @PrePersist
+    void onCreate() {
+        createdAt = Instant.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    void onUpdate() {
+        updatedAt = Instant.now();
+    }
+}
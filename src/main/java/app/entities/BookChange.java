@@ -0,0 +1,67 @@
+package app.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * One row in the append-only, per-user change log behind the delta sync endpoint.
+ * The generated id doubles as the sync cursor. Deletes are recorded as tombstones
+ * without title and author. Entries older than the retention period are pruned.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "book_changes", indexes = {
+        @Index(name = "idx_book_changes_user_cursor", columnList = "user_id, id"),
+        @Index(name = "idx_book_changes_changed_at", columnList = "changed_at")
+})
+public class BookChange {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Type type;
+
+    private String title;
+
+    private String author;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+
+    public BookChange(Type type, Long userId, Long bookId, String title, String author) {
+        this.type = type;
+        this.userId = userId;
+        this.bookId = bookId;
+        this.title = title;
+        this.author = author;
+        this.changedAt = Instant.now();
+    }
+
+    public static BookChange of(Type type, Book book) {
+        if (type == Type.DELETED) {
+            return new BookChange(type, book.getUser().getId(), book.getId(), null, null);
+        }
+        return new BookChange(type, book.getUser().getId(), book.getId(), book.getTitle(), book.getAuthorName());
+    }
+}
@@ -0,0 +1,54 @@
+package app.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * The stored outcome of a mutation sent with an {@code Idempotency-Key}. The id is the key scoped
+ * to its user. A row without a status is a request still in flight; its creation time is when
+ * the key was claimed, which also identifies the claim.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+public class IdempotencyRecord {
+
+    @Id
+    @Column(length = 300)
+    private String id;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    private Integer status;
+
+    @Column(columnDefinition = "text")
+    private String body;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public IdempotencyRecord(String id, String requestHash, Instant expiresAt) {
+        this.id = id;
+        this.requestHash = requestHash;
+        // The database keeps microseconds; claims are matched on this value
+        this.createdAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isCompleted() {
+        return status != null;
+    }
+}
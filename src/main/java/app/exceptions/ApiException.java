@@ -7,7 +7,14 @@ public class ApiException extends RuntimeException {
         super(msg);
         this.code = code;
     }
+
+    // Expected domain errors (404, 400, ...) skip the stack trace, which is the expensive part of throwing
+    protected ApiException(int code, String msg, boolean writableStackTrace){
+        super(msg, null, false, writableStackTrace);
+        this.code = code;
+    }
+
     public int getCode(){
         return code;
     }
-}
\ No newline at end of file
+}
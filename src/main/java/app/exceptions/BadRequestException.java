@@ -0,0 +1,8 @@
+package app.exceptions;
+
+public class BadRequestException extends ApiException {
+
+    public BadRequestException(String msg) {
+        super(400, msg, false);
+    }
+}
@@ -0,0 +1,8 @@
+package app.exceptions;
+
+public class ConflictException extends ApiException {
+
+    public ConflictException(String msg) {
+        super(409, msg, false);
+    }
+}
@@ -0,0 +1,8 @@
+package app.exceptions;
+
+public class ForbiddenException extends ApiException {
+
+    public ForbiddenException(String msg) {
+        super(403, msg, false);
+    }
+}
@@ -0,0 +1,8 @@
+package app.exceptions;
+
+public class PayloadTooLargeException extends ApiException {
+
+    public PayloadTooLargeException(String msg) {
+        super(413, msg, false);
+    }
+}
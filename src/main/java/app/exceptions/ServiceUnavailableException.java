@@ -0,0 +1,8 @@
+package app.exceptions;
+
+public class ServiceUnavailableException extends ApiException {
+
+    public ServiceUnavailableException(String msg) {
+        super(503, msg, false);
+    }
+}
@@ -0,0 +1,8 @@
+package app.exceptions;
+
+public class UnauthorizedException extends ApiException {
+
+    public UnauthorizedException(String msg) {
+        super(401, msg, false);
+    }
+}
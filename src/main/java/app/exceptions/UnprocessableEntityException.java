@@ -0,0 +1,8 @@
+package app.exceptions;
+
+public class UnprocessableEntityException extends ApiException {
+
+    public UnprocessableEntityException(String msg) {
+        super(422, msg, false);
+    }
+}
@@ -0,0 +1,30 @@
+package app.logging;
+
+import lombok.Getter;
+
+/**
+ * One access log line. Built on the request thread and serialized on the writer thread.
+ */
+@Getter
+public class AccessLogEntry {
+    private final String time;
+    private final String method;
+    private final String path;
+    private final int status;
+    private final double latencyMillis;
+    private final Long userId;
+    private final String username;
+    private final long bytes;
+
+    public AccessLogEntry(String time, String method, String path, int status, double latencyMillis,
+                          Long userId, String username, long bytes) {
+        this.time = time;
+        this.method = method;
+        this.path = path;
+        this.status = status;
+        this.latencyMillis = latencyMillis;
+        this.userId = userId;
+        this.username = username;
+        this.bytes = bytes;
+    }
+}
@@ -0,0 +1,179 @@
+package app.logging;
+
+import app.utils.RingBuffer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Structured access log, one JSON object per line. Request threads only offer to a lock-free ring
+ * buffer; a background thread serializes and writes in batches, so logging never blocks a request
+ * on disk I/O. When the buffer is full the entry is dropped and counted.
+ * The file rotates by size: {@code access.log} becomes {@code access.log.1}, and so on up to
+ * {@code maxFiles} old files.
+ */
+public class AccessLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLogWriter.class);
+
+    private final Path file;
+    private final RingBuffer<AccessLogEntry> buffer;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private BufferedWriter out;
+    private long fileBytes;
+
+    public AccessLogWriter(Path file, int bufferSize, int maxBatchSize, long flushIntervalMillis,
+                           long maxFileBytes, int maxFiles) {
+        this.file = file;
+        this.buffer = new RingBuffer<>(bufferSize);
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.writer = new Thread(this::run, "access-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public void log(AccessLogEntry entry) {
+        if (!buffer.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public void shutdown() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<AccessLogEntry> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            drainInto(batch);
+            if (batch.size() < maxBatchSize) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(flushIntervalNanos);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                drainInto(batch);
+            }
+            write(batch);
+        }
+        // Flush what is left on shutdown; clear the interrupt so the file writes are not aborted
+        Thread.interrupted();
+        do {
+            batch.clear();
+            drainInto(batch);
+            write(batch);
+        } while (!batch.isEmpty());
+        close();
+    }
+
+    private void drainInto(List<AccessLogEntry> batch) {
+        AccessLogEntry entry;
+        while (batch.size() < maxBatchSize && (entry = buffer.poll()) != null) {
+            batch.add(entry);
+        }
+    }
+
+    private void write(List<AccessLogEntry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder(batch.size() * 160);
+        for (AccessLogEntry entry : batch) {
+            try {
+                lines.append(mapper.writeValueAsString(entry)).append('\n');
+            } catch (JsonProcessingException e) {
+                dropped.increment();
+            }
+        }
+        try {
+            if (out == null || fileBytes >= maxFileBytes) {
+                rotate();
+            }
+            out.write(lines.toString());
+            out.flush();
+            // Counts chars, not bytes; close enough for a rotation threshold
+            fileBytes += lines.length();
+            written.add(batch.size());
+        } catch (IOException e) {
+            dropped.add(batch.size());
+            close();
+            log.warn("Access log write to {} failed", file, e);
+        }
+        batch.clear();
+    }
+
+    private void rotate() throws IOException {
+        if (out != null) {
+            close();
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                Path older = rotated(i);
+                if (Files.exists(older)) {
+                    Files.move(older, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (maxFiles > 0) {
+                Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(file);
+            }
+        }
+        out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = Files.size(file);
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            // Nothing left to flush into
+        }
+        out = null;
+    }
+}
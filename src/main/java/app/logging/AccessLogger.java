@@ -0,0 +1,43 @@
+package app.logging;
+
+import io.javalin.http.Context;
+import io.javalin.http.RequestLogger;
+import org.eclipse.jetty.server.Response;
+
+import java.time.Instant;
+
+/**
+ * Javalin request logger that hands every finished request to the {@link AccessLogWriter}.
+ * It runs after the response has been written, so status and byte count are final, and covers
+ * every route including rejected and failed requests.
+ */
+public class AccessLogger implements RequestLogger {
+
+    private final AccessLogWriter writer;
+
+    public AccessLogger(AccessLogWriter writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void handle(Context ctx, Float executionTimeMs) {
+        writer.log(new AccessLogEntry(
+                Instant.now().toString(),
+                ctx.method().name(),
+                ctx.path(),
+                ctx.statusCode(),
+                Math.round(executionTimeMs * 1000) / 1000.0,
+                ctx.attribute("userId"),
+                ctx.attribute("username"),
+                bytesWritten(ctx)));
+    }
+
+    private long bytesWritten(Context ctx) {
+        // Jetty counts what actually went to the connection, after compression
+        if (ctx.res() instanceof Response response) {
+            return response.getHttpOutput().getWritten();
+        }
+        String contentLength = ctx.res().getHeader("Content-Length");
+        return contentLength != null ? Long.parseLong(contentLength) : -1;
+    }
+}
@@ -0,0 +1,27 @@
+package app.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name(HttpRequestEvent.NAME)
+@Label("HTTP Request")
+@Description("One API request, from the first before-handler to the last after-handler")
+@Category({"Bookshelf", "HTTP"})
+@StackTrace(false)
+public class HttpRequestEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "bookshelf.HttpRequest";
+
+    @Label("Method")
+    String method;
+
+    // The route template, e.g. /api/books/{id}, so each route is one series
+    @Label("Route")
+    String route;
+
+    @Label("Status")
+    int status;
+}
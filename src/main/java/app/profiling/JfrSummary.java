@@ -0,0 +1,80 @@
+package app.profiling;
+
+import app.dto.LatencySummaryDTO;
+import app.dto.ProfileDTO;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Always-on, in-process consumer of the app's JFR events. A {@link RecordingStream} enables the
+ * custom events and folds them into rolling per-route, per-query and password-hashing latency
+ * windows, so the admin endpoint can show live percentiles without attaching JMC or jcmd.
+ * JFR flushes the stream about once a second, which is the summary's staleness.
+ */
+public class JfrSummary {
+
+    private static final int SLOTS = 6;
+
+    private final long slotMillis;
+    private final Map<String, LatencyWindow> routes = new ConcurrentHashMap<>();
+    private final Map<String, LatencyWindow> queries = new ConcurrentHashMap<>();
+    private final Map<String, LatencyWindow> passwordHashing = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+
+    public JfrSummary(int windowSeconds) {
+        this.slotMillis = Math.max(1000L, windowSeconds * 1000L / SLOTS);
+    }
+
+    public void start() {
+        stream = new RecordingStream();
+        // The on-disk chunks are only a buffer for this stream; keep them small
+        stream.setMaxAge(Duration.ofMinutes(2));
+        stream.enable(HttpRequestEvent.NAME).withoutStackTrace();
+        stream.enable(RepositoryQueryEvent.NAME).withoutStackTrace();
+        stream.enable(PasswordHashEvent.NAME).withoutStackTrace();
+        stream.onEvent(HttpRequestEvent.NAME,
+                event -> record(routes, event.getString("method") + " " + event.getString("route"), event));
+        stream.onEvent(RepositoryQueryEvent.NAME,
+                event -> record(queries, event.getString("query"), event));
+        stream.onEvent(PasswordHashEvent.NAME,
+                event -> record(passwordHashing, event.getString("operation"), event));
+        stream.startAsync();
+    }
+
+    public void shutdown() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    public ProfileDTO snapshot() {
+        long now = System.currentTimeMillis();
+        return new ProfileDTO(slotMillis * SLOTS / 1000,
+                summarize(routes, now), summarize(queries, now), summarize(passwordHashing, now));
+    }
+
+    private void record(Map<String, LatencyWindow> windows, String name, RecordedEvent event) {
+        windows.computeIfAbsent(name, key -> new LatencyWindow(SLOTS, slotMillis))
+                .record(event.getEndTime().toEpochMilli(), event.getDuration().toNanos());
+    }
+
+    private List<LatencySummaryDTO> summarize(Map<String, LatencyWindow> windows, long now) {
+        List<LatencySummaryDTO> summaries = new ArrayList<>();
+        windows.forEach((name, window) -> {
+            LatencySummaryDTO summary = window.summarize(name, now);
+            if (summary.getCount() > 0) {
+                summaries.add(summary);
+            }
+        });
+        // Where the time goes first: total time spent, not the slowest single call
+        summaries.sort(Comparator.comparingDouble((LatencySummaryDTO s) -> s.getMeanMillis() * s.getCount()).reversed());
+        return summaries;
+    }
+}
@@ -0,0 +1,117 @@
+package app.profiling;
+
+import app.dto.LatencySummaryDTO;
+
+import java.util.Arrays;
+
+/**
+ * Rolling latency distribution over a fixed time window, split into slots that are recycled as
+ * time moves on. Each slot keeps a log-scale histogram (four buckets per power of two of
+ * microseconds), so percentiles are accurate to within about 25% at constant memory.
+ */
+public class LatencyWindow {
+
+    private static final int BUCKETS = 4 + 61 * 4;
+
+    private final long slotMillis;
+    private final Slot[] slots;
+
+    public LatencyWindow(int slotCount, long slotMillis) {
+        this.slotMillis = slotMillis;
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    public synchronized void record(long timestampMillis, long durationNanos) {
+        long slotId = timestampMillis / slotMillis;
+        Slot slot = slots[(int) (slotId % slots.length)];
+        if (slot.id != slotId) {
+            slot.reset(slotId);
+        }
+        long micros = Math.max(0, durationNanos / 1000);
+        slot.count++;
+        slot.sumMicros += micros;
+        slot.maxMicros = Math.max(slot.maxMicros, micros);
+        slot.histogram[bucketOf(micros)]++;
+    }
+
+    public synchronized LatencySummaryDTO summarize(String name, long nowMillis) {
+        long oldestSlot = nowMillis / slotMillis - slots.length + 1;
+        long count = 0;
+        long sumMicros = 0;
+        long maxMicros = 0;
+        long[] histogram = new long[BUCKETS];
+        for (Slot slot : slots) {
+            if (slot.id < oldestSlot || slot.count == 0) {
+                continue;
+            }
+            count += slot.count;
+            sumMicros += slot.sumMicros;
+            maxMicros = Math.max(maxMicros, slot.maxMicros);
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] += slot.histogram[i];
+            }
+        }
+        if (count == 0) {
+            return new LatencySummaryDTO(name, 0, 0, 0, 0, 0, 0);
+        }
+        return new LatencySummaryDTO(name, count,
+                millis(sumMicros / count),
+                millis(percentile(histogram, count, 0.50, maxMicros)),
+                millis(percentile(histogram, count, 0.95, maxMicros)),
+                millis(percentile(histogram, count, 0.99, maxMicros)),
+                millis(maxMicros));
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < 4) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) ((micros >>> (exponent - 2)) & 3);
+        return 4 + (exponent - 2) * 4 + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < 4) {
+            return bucket;
+        }
+        int exponent = (bucket - 4) / 4 + 2;
+        int sub = (bucket - 4) % 4;
+        return ((4L + sub + 1) << (exponent - 2)) - 1;
+    }
+
+    private static long percentile(long[] histogram, long count, double quantile, long maxMicros) {
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static class Slot {
+        private long id = -1;
+        private long count;
+        private long sumMicros;
+        private long maxMicros;
+        private final long[] histogram = new long[BUCKETS];
+
+        private void reset(long id) {
+            this.id = id;
+            count = 0;
+            sumMicros = 0;
+            maxMicros = 0;
+            Arrays.fill(histogram, 0);
+        }
+    }
+}
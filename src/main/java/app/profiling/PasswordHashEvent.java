@@ -0,0 +1,27 @@
+package app.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name(PasswordHashEvent.NAME)
+@Label("Password Hash")
+@Category({"Bookshelf", "Security"})
+@StackTrace(false)
+public class PasswordHashEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "bookshelf.PasswordHash";
+
+    // "hash" or "verify"
+    @Label("Operation")
+    String operation;
+
+    @Label("Cost")
+    int cost;
+
+    public PasswordHashEvent(String operation, int cost) {
+        this.operation = operation;
+        this.cost = cost;
+    }
+}
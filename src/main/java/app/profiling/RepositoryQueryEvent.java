@@ -0,0 +1,64 @@
+package app.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+@Name(RepositoryQueryEvent.NAME)
+@Label("Repository Query")
+@Description("One repository call, including opening the EntityManager and committing")
+@Category({"Bookshelf", "Database"})
+@StackTrace(false)
+public class RepositoryQueryEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "bookshelf.RepositoryQuery";
+
+    @Label("Query")
+    String query;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Failed")
+    boolean failed;
+
+    /**
+     * Runs a repository call inside an event. When no recording has the event enabled, this is a
+     * plain call apart from one flag check.
+     */
+    public static <T> T time(String query, Supplier<T> call) {
+        RepositoryQueryEvent event = new RepositoryQueryEvent();
+        if (!event.isEnabled()) {
+            return call.get();
+        }
+        event.begin();
+        event.query = query;
+        event.failed = true;
+        try {
+            T result = call.get();
+            event.failed = false;
+            event.rows = rows(result);
+            return result;
+        } finally {
+            event.commit();
+        }
+    }
+
+    private static int rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Boolean found) {
+            return found ? 1 : 0;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,56 @@
+package app.profiling;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+/**
+ * Wraps every API request in an {@link HttpRequestEvent}. Costs one flag check per request when
+ * no recording has the event enabled.
+ */
+public class RequestProfiler {
+
+    private static final String EVENT_ATTRIBUTE = "profiler.event";
+
+    // Register first, so the event also covers authentication and load shedding
+    public void registerRoutes(Javalin app) {
+        app.before(this::begin);
+        app.after(this::end);
+    }
+
+    private void begin(Context ctx) {
+        if (!ctx.path().startsWith("/api/")) {
+            return;
+        }
+        HttpRequestEvent event = new HttpRequestEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.begin();
+        ctx.attribute(EVENT_ATTRIBUTE, event);
+    }
+
+    private void end(Context ctx) {
+        HttpRequestEvent event = ctx.attribute(EVENT_ATTRIBUTE);
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.method = ctx.method().name();
+            event.route = route(ctx);
+            event.status = ctx.statusCode();
+            event.commit();
+        }
+    }
+
+    // Never the raw path: ids in it would give every book its own series
+    private String route(Context ctx) {
+        try {
+            // Javalin reports a descriptive text instead of a path when no endpoint matched
+            String route = ctx.endpointHandlerPath();
+            return route != null && route.startsWith("/") ? route : "unmatched";
+        } catch (RuntimeException e) {
+            return "unmatched";
+        }
+    }
+}
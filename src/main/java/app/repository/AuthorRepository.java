@@ -0,0 +1,14 @@
+package app.repository;
+
+import app.entities.Author;
+
+/**
+ * Reads authors. New authors are only created by the book repository, in the transaction that
+ * writes the first book referencing them.
+ */
+public interface AuthorRepository {
+
+    Author findById(Long id);
+
+    Author findByNormalizedName(String normalizedName);
+}
@@ -0,0 +1,120 @@
+package app.repository;
+
+import app.exceptions.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The book fields a client asked for with {@code ?fields=id,title}. Repositories load only these
+ * columns and the response carries only these properties. There are few enough fields that every
+ * combination is a shared instance, identified by its bit mask.
+ */
+public final class BookFields {
+
+    public enum Field {
+        ID("id"),
+        TITLE("title"),
+        AUTHOR("author"),
+        TAGS("tags");
+
+        private final String property;
+
+        Field(String property) {
+            this.property = property;
+        }
+
+        public String property() {
+            return property;
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+    public static final int COMBINATIONS = 1 << FIELDS.length;
+    private static final BookFields[] INSTANCES = new BookFields[COMBINATIONS];
+
+    static {
+        for (int mask = 0; mask < COMBINATIONS; mask++) {
+            INSTANCES[mask] = new BookFields(mask);
+        }
+    }
+
+    public static final BookFields ALL = INSTANCES[COMBINATIONS - 1];
+
+    private final int mask;
+    private final String[] properties;
+
+    private BookFields(int mask) {
+        this.mask = mask;
+        List<String> names = new ArrayList<>(FIELDS.length);
+        for (Field field : FIELDS) {
+            if ((mask & bit(field)) != 0) {
+                names.add(field.property());
+            }
+        }
+        this.properties = names.toArray(new String[0]);
+    }
+
+    /**
+     * Parses a comma-separated list of field names; no value means all fields.
+     */
+    public static BookFields parse(String value) {
+        if (value == null || value.isBlank()) {
+            return ALL;
+        }
+        int mask = 0;
+        for (String name : value.split(",")) {
+            mask |= bit(field(name.trim()));
+        }
+        if (mask == 0) {
+            throw new BadRequestException("No fields requested");
+        }
+        return INSTANCES[mask];
+    }
+
+    public static BookFields of(Field... fields) {
+        int mask = 0;
+        for (Field field : fields) {
+            mask |= bit(field);
+        }
+        return INSTANCES[mask];
+    }
+
+    public static BookFields ofMask(int mask) {
+        return INSTANCES[mask];
+    }
+
+    public boolean contains(Field field) {
+        return (mask & bit(field)) != 0;
+    }
+
+    public boolean isAll() {
+        return this == ALL;
+    }
+
+    public int getMask() {
+        return mask;
+    }
+
+    public String[] getProperties() {
+        return properties.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", properties);
+    }
+
+    private static Field field(String name) {
+        for (Field field : FIELDS) {
+            if (field.property().equals(name)) {
+                return field;
+            }
+        }
+        throw new BadRequestException("Unknown field '" + name + "': use id, title, author or tags");
+    }
+
+    private static int bit(Field field) {
+        return 1 << field.ordinal();
+    }
+}
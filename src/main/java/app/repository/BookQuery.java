@@ -0,0 +1,131 @@
+package app.repository;
+
+import app.exceptions.BadRequestException;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Filter and sort options for listing a user's books. Every combination is served by one of the
+ * {@code (user_id, ..., id)} indexes created in {@code Migrations}, so the database reads only the
+ * user's range of the index, already in the requested order. With a {@code limit} the scan stops
+ * after that many rows; without one, the planner may instead fetch the whole range through a bitmap
+ * scan and sort it in memory, which is as cheap at library sizes.
+ */
+@Getter
+@Setter
+public class BookQuery {
+
+    public enum Sort {
+        ID,
+        TITLE,
+        CREATED_AT
+    }
+
+    public static final int MAX_LIMIT = 1000;
+    private static final int MAX_FILTER_LENGTH = 255;
+
+    private String author;
+    private Long authorId;
+    private String titlePrefix;
+    // Restricts the listing to these ids, such as a tag filter's matches; bound as one padded list parameter
+    private List<Long> ids;
+    private Sort sort = Sort.ID;
+    private boolean descending;
+    private Integer limit;
+    private int offset;
+    private BookFields fields = BookFields.ALL;
+
+    public BookQuery() {}
+
+    public BookQuery(String author, String titlePrefix, Sort sort, boolean descending, Integer limit, int offset) {
+        this.author = author;
+        this.titlePrefix = titlePrefix;
+        this.sort = sort;
+        this.descending = descending;
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    /**
+     * Parses {@code ?author=&title=&sort=title|createdAt|id&order=asc|desc&limit=&offset=};
+     * all parameters are optional.
+     */
+    public static BookQuery parse(String author, String title, String sort, String order, String limit, String offset) {
+        return new BookQuery(filter(author, "author"), filter(title, "title"), sort(sort), descending(order),
+                limit(limit), offset(offset));
+    }
+
+    public boolean isFiltered() {
+        return author != null || titlePrefix != null || ids != null;
+    }
+
+    public boolean isDefault() {
+        return !isFiltered() && sort == Sort.ID && !descending && limit == null && offset == 0 && fields.isAll();
+    }
+
+    private static String filter(String value, String name) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        if (value.length() > MAX_FILTER_LENGTH) {
+            throw new BadRequestException("Filter '" + name + "' is too long");
+        }
+        return value.trim();
+    }
+
+    private static Sort sort(String value) {
+        if (value == null || value.isBlank()) {
+            return Sort.ID;
+        }
+        return switch (value.trim()) {
+            case "id" -> Sort.ID;
+            case "title" -> Sort.TITLE;
+            case "createdAt" -> Sort.CREATED_AT;
+            default -> throw new BadRequestException("Invalid sort '" + value + "': use id, title or createdAt");
+        };
+    }
+
+    private static Integer limit(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        int limit = parseInt(value, "limit");
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    private static int offset(String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        int offset = parseInt(value, "offset");
+        if (offset < 0) {
+            throw new BadRequestException("Offset must not be negative");
+        }
+        return offset;
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid " + name + " '" + value + "'");
+        }
+    }
+
+    private static boolean descending(String value) {
+        if (value == null || value.isBlank()) {
+            return false;
+        }
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "asc" -> false;
+            case "desc" -> true;
+            default -> throw new BadRequestException("Invalid order '" + value + "': use asc or desc");
+        };
+    }
+}
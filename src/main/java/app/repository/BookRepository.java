@@ -1,56 +1,95 @@
 package app.repository;
 
 import app.entities.Book;
-import jakarta.persistence.EntityManager;
+import app.entities.BookChange;
 
+import java.time.Instant;
 import java.util.List;
 
-public class BookRepository {
-
-    private final EntityManager em;
-
-    public BookRepository(EntityManager em) {
-        this.em = em;
-    }
-
-    public Book save(Book book) {
-        em.getTransaction().begin();
-        em.persist(book);
-        em.getTransaction().commit();
-        return book;
-    }
-
-    public Book update(Book book) {
-        em.getTransaction().begin();
-        Book updated = em.merge(book);
-        em.getTransaction().commit();
-        return updated;
-    }
-
-    public void delete(Book book) {
-        em.getTransaction().begin();
-        em.remove(em.contains(book) ? book : em.merge(book));
-        em.getTransaction().commit();
-    }
-
-    public Book findById(Long id) {
-        return em.find(Book.class, id);
-    }
-
-    public List<Book> findByUserId(Long userId) {
-        return em.createQuery("SELECT b FROM Book b WHERE b.user.id = :userId", Book.class)
-                .setParameter("userId", userId)
-                .getResultList();
-    }
-
-    public Book findByIdAndUserId(Long id, Long userId) {
-        try {
-            return em.createQuery("SELECT b FROM Book b WHERE b.id = :id AND b.user.id = :userId", Book.class)
-                    .setParameter("id", id)
-                    .setParameter("userId", userId)
-                    .getSingleResult();
-        } catch (Exception e) {
-            return null;
-        }
-    }
-}
\ No newline at end of file
+/**
+ * Book storage. {@link JpaBookRepository} keeps books in Postgres; the embedded backend in
+ * {@code app.repository.memory} keeps them in process. Every write also appends to the user's
+ * change log, atomically with the write itself, so the delta feed never misses a change.
+ * Returned books are detached copies: changing one has no effect until it is passed to {@link #update}.
+ */
+public interface BookRepository {
+
+    Book save(Book book);
+
+    Book update(Book book);
+
+    /**
+     * Inserts new books and updates existing ones as one atomic write.
+     * Results are returned in the order of the input list.
+     */
+    List<Book> saveAll(List<Book> books);
+
+    void delete(Book book);
+
+    Book findById(Long id);
+
+    List<Book> findByUserId(Long userId);
+
+    /**
+     * The user's books filtered and sorted as requested. Ties are broken by id.
+     * Only the query's fields are loaded, plus the id; see {@link #findByIdAndUserId(Long, Long, BookFields)}.
+     */
+    List<Book> findByUserId(Long userId, BookQuery query);
+
+    Book findByIdAndUserId(Long id, Long userId);
+
+    /**
+     * Like {@link #findByIdAndUserId(Long, Long)}, but loads only the given fields plus the id.
+     * The title and author of a narrowed book are null unless requested, and its tags are null
+     * rather than empty when not requested.
+     */
+    Book findByIdAndUserId(Long id, Long userId, BookFields fields);
+
+    /**
+     * The user's books by id, in id order. Ids owned by someone else are silently skipped.
+     */
+    List<Book> findByIdsAndUserId(List<Long> ids, Long userId);
+
+    /**
+     * Like {@link #findByIdsAndUserId(List, Long)}, loading only the given fields plus the id.
+     */
+    List<Book> findByIdsAndUserId(List<Long> ids, Long userId, BookFields fields);
+
+    /**
+     * (book id, tag) pairs for all of the user's books; untagged books come back once with a null tag.
+     * Read from the primary, never a replica.
+     */
+    List<Object[]> findTagsByUserId(Long userId);
+
+    /**
+     * The user's changes after the cursor, in id order. Change ids of one user are handed out in
+     * commit order, so a later commit never lands behind a cursor a client already holds.
+     */
+    List<BookChange> findChangesSince(Long userId, Long cursor, int limit);
+
+    /**
+     * Id of the user's newest change, 0 if there is none.
+     */
+    long findLatestChangeId(Long userId);
+
+    /**
+     * Highest change id that may have been pruned, 0 if nothing was. A cursor below it may have
+     * missed changes, so its client has to resync.
+     */
+    long getChangesPrunedThrough();
+
+    /**
+     * Drops change log entries recorded before the instant and returns how many were dropped.
+     */
+    int pruneChanges(Instant before);
+
+    /**
+     * Book count per user id, for seeding the in-memory statistics once at startup.
+     */
+    List<Object[]> countBooksPerUser();
+
+    /**
+     * Book count per author name, for seeding the in-memory statistics once at startup.
+     */
+    List<Object[]> countBooksPerAuthor();
+}
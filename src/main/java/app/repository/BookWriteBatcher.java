@@ -0,0 +1,154 @@
+package app.repository;
+
+import app.entities.Author;
+import app.entities.Book;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for book writes. Concurrent create/update calls are queued and a single writer
+ * thread commits them in micro-batches, bounded by batch size and a short linger time, so one
+ * transaction (and one fsync on the Postgres side) covers many requests.
+ * If a batch fails, its writes are retried one by one so every caller gets its own result or error.
+ */
+public class BookWriteBatcher {
+
+    private final BookRepository bookRepository;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public BookWriteBatcher(BookRepository bookRepository, int maxBatchSize, long lingerMicros) {
+        this.bookRepository = bookRepository;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+        this.writer = new Thread(this::run, "book-write-batcher");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public CompletableFuture<Book> submit(Book book) {
+        PendingWrite write = new PendingWrite(book);
+        if (!running) {
+            write.future.completeExceptionally(new IllegalStateException("Write batcher is shut down"));
+            return write.future;
+        }
+        queue.add(write);
+        return write.future;
+    }
+
+    /**
+     * Submits the write and blocks until its batch has committed.
+     */
+    public Book write(Book book) {
+        try {
+            return submit(book).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        writer.interrupt();
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                for (PendingWrite write : batch) {
+                    write.future.completeExceptionally(new IllegalStateException("Write batcher is shut down"));
+                }
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        failPending();
+    }
+
+    private void commit(List<PendingWrite> batch) {
+        List<Book> books = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            books.add(write.book);
+        }
+
+        try {
+            List<Book> saved = bookRepository.saveAll(books);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(saved.get(i));
+            }
+        } catch (RuntimeException batchFailure) {
+            if (batch.size() == 1) {
+                batch.get(0).future.completeExceptionally(batchFailure);
+                return;
+            }
+            // The whole transaction rolled back; isolate the failing write(s)
+            for (PendingWrite write : batch) {
+                if (write.isNew) {
+                    // The rolled-back insert still assigned an identity value
+                    write.book.setId(null);
+                }
+                // An author row created by the rolled-back transaction is gone; resolve it again
+                write.book.setAuthor(write.author);
+                write.book.setAuthorSpelling(write.authorSpelling);
+                try {
+                    write.future.complete(bookRepository.saveAll(List.of(write.book)).get(0));
+                } catch (RuntimeException e) {
+                    write.future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void failPending() {
+        PendingWrite write;
+        while ((write = queue.poll()) != null) {
+            write.future.completeExceptionally(new IllegalStateException("Write batcher is shut down"));
+        }
+    }
+
+    private static class PendingWrite {
+        private final Book book;
+        private final boolean isNew;
+        private final Author author;
+        private final String authorSpelling;
+        private final CompletableFuture<Book> future = new CompletableFuture<>();
+
+        private PendingWrite(Book book) {
+            this.book = book;
+            this.isNew = book.getId() == null;
+            this.author = book.getAuthor();
+            this.authorSpelling = book.getAuthorSpelling();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package app.repository;
+
+import app.entities.Author;
+
+/**
+ * Passes every call through to the wrapped repository under the {@link DatabaseCircuit}.
+ */
+public class CircuitBreakingAuthorRepository implements AuthorRepository {
+
+    private final AuthorRepository delegate;
+    private final DatabaseCircuit circuit;
+
+    public CircuitBreakingAuthorRepository(AuthorRepository delegate, DatabaseCircuit circuit) {
+        this.delegate = delegate;
+        this.circuit = circuit;
+    }
+
+    @Override
+    public Author findById(Long id) {
+        return circuit.call(() -> delegate.findById(id));
+    }
+
+    @Override
+    public Author findByNormalizedName(String normalizedName) {
+        return circuit.call(() -> delegate.findByNormalizedName(normalizedName));
+    }
+}
@@ -0,0 +1,111 @@
+package app.repository;
+
+import app.entities.Book;
+import app.entities.BookChange;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Passes every call through to the wrapped repository under the {@link DatabaseCircuit}.
+ */
+public class CircuitBreakingBookRepository implements BookRepository {
+
+    private final BookRepository delegate;
+    private final DatabaseCircuit circuit;
+
+    public CircuitBreakingBookRepository(BookRepository delegate, DatabaseCircuit circuit) {
+        this.delegate = delegate;
+        this.circuit = circuit;
+    }
+
+    @Override
+    public Book save(Book book) {
+        return circuit.call(() -> delegate.save(book));
+    }
+
+    @Override
+    public Book update(Book book) {
+        return circuit.call(() -> delegate.update(book));
+    }
+
+    @Override
+    public List<Book> saveAll(List<Book> books) {
+        return circuit.call(() -> delegate.saveAll(books));
+    }
+
+    @Override
+    public void delete(Book book) {
+        circuit.run(() -> delegate.delete(book));
+    }
+
+    @Override
+    public Book findById(Long id) {
+        return circuit.call(() -> delegate.findById(id));
+    }
+
+    @Override
+    public List<Book> findByUserId(Long userId) {
+        return circuit.call(() -> delegate.findByUserId(userId));
+    }
+
+    @Override
+    public List<Book> findByUserId(Long userId, BookQuery query) {
+        return circuit.call(() -> delegate.findByUserId(userId, query));
+    }
+
+    @Override
+    public Book findByIdAndUserId(Long id, Long userId) {
+        return circuit.call(() -> delegate.findByIdAndUserId(id, userId));
+    }
+
+    @Override
+    public Book findByIdAndUserId(Long id, Long userId, BookFields fields) {
+        return circuit.call(() -> delegate.findByIdAndUserId(id, userId, fields));
+    }
+
+    @Override
+    public List<Book> findByIdsAndUserId(List<Long> ids, Long userId) {
+        return circuit.call(() -> delegate.findByIdsAndUserId(ids, userId));
+    }
+
+    @Override
+    public List<Book> findByIdsAndUserId(List<Long> ids, Long userId, BookFields fields) {
+        return circuit.call(() -> delegate.findByIdsAndUserId(ids, userId, fields));
+    }
+
+    @Override
+    public List<Object[]> findTagsByUserId(Long userId) {
+        return circuit.call(() -> delegate.findTagsByUserId(userId));
+    }
+
+    @Override
+    public List<BookChange> findChangesSince(Long userId, Long cursor, int limit) {
+        return circuit.call(() -> delegate.findChangesSince(userId, cursor, limit));
+    }
+
+    @Override
+    public long findLatestChangeId(Long userId) {
+        return circuit.call(() -> delegate.findLatestChangeId(userId));
+    }
+
+    @Override
+    public long getChangesPrunedThrough() {
+        return circuit.call(delegate::getChangesPrunedThrough);
+    }
+
+    @Override
+    public int pruneChanges(Instant before) {
+        return circuit.call(() -> delegate.pruneChanges(before));
+    }
+
+    @Override
+    public List<Object[]> countBooksPerUser() {
+        return circuit.call(delegate::countBooksPerUser);
+    }
+
+    @Override
+    public List<Object[]> countBooksPerAuthor() {
+        return circuit.call(delegate::countBooksPerAuthor);
+    }
+}
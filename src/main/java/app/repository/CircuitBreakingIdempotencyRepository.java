@@ -0,0 +1,49 @@
+package app.repository;
+
+import app.entities.IdempotencyRecord;
+
+import java.time.Instant;
+
+/**
+ * Passes every call through to the wrapped repository under the {@link DatabaseCircuit}.
+ */
+public class CircuitBreakingIdempotencyRepository implements IdempotencyRepository {
+
+    private final IdempotencyRepository delegate;
+    private final DatabaseCircuit circuit;
+
+    public CircuitBreakingIdempotencyRepository(IdempotencyRepository delegate, DatabaseCircuit circuit) {
+        this.delegate = delegate;
+        this.circuit = circuit;
+    }
+
+    @Override
+    public IdempotencyRecord findById(String id) {
+        return circuit.call(() -> delegate.findById(id));
+    }
+
+    @Override
+    public boolean insert(IdempotencyRecord record) {
+        return circuit.call(() -> delegate.insert(record));
+    }
+
+    @Override
+    public boolean reclaim(IdempotencyRecord record) {
+        return circuit.call(() -> delegate.reclaim(record));
+    }
+
+    @Override
+    public void complete(IdempotencyRecord claim, int status, String body) {
+        circuit.run(() -> delegate.complete(claim, status, body));
+    }
+
+    @Override
+    public void delete(IdempotencyRecord claim) {
+        circuit.run(() -> delegate.delete(claim));
+    }
+
+    @Override
+    public int deleteExpired(Instant now) {
+        return circuit.call(() -> delegate.deleteExpired(now));
+    }
+}
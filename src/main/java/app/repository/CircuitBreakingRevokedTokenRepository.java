@@ -0,0 +1,35 @@
+package app.repository;
+
+import app.entities.RevokedToken;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Passes every call through to the wrapped repository under the {@link DatabaseCircuit}.
+ */
+public class CircuitBreakingRevokedTokenRepository implements RevokedTokenRepository {
+
+    private final RevokedTokenRepository delegate;
+    private final DatabaseCircuit circuit;
+
+    public CircuitBreakingRevokedTokenRepository(RevokedTokenRepository delegate, DatabaseCircuit circuit) {
+        this.delegate = delegate;
+        this.circuit = circuit;
+    }
+
+    @Override
+    public void save(RevokedToken token) {
+        circuit.run(() -> delegate.save(token));
+    }
+
+    @Override
+    public List<RevokedToken> findActive(Instant now) {
+        return circuit.call(() -> delegate.findActive(now));
+    }
+
+    @Override
+    public int deleteExpired(Instant now) {
+        return circuit.call(() -> delegate.deleteExpired(now));
+    }
+}
@@ -0,0 +1,49 @@
+package app.repository;
+
+import app.entities.User;
+
+import java.util.List;
+
+/**
+ * Passes every call through to the wrapped repository under the {@link DatabaseCircuit}.
+ */
+public class CircuitBreakingUserRepository implements UserRepository {
+
+    private final UserRepository delegate;
+    private final DatabaseCircuit circuit;
+
+    public CircuitBreakingUserRepository(UserRepository delegate, DatabaseCircuit circuit) {
+        this.delegate = delegate;
+        this.circuit = circuit;
+    }
+
+    @Override
+    public User save(User user) {
+        return circuit.call(() -> delegate.save(user));
+    }
+
+    @Override
+    public User findByUsername(String username) {
+        return circuit.call(() -> delegate.findByUsername(username));
+    }
+
+    @Override
+    public User findById(Long id) {
+        return circuit.call(() -> delegate.findById(id));
+    }
+
+    @Override
+    public void updatePassword(Long id, String password) {
+        circuit.run(() -> delegate.updatePassword(id, password));
+    }
+
+    @Override
+    public List<Object[]> countByPasswordCost() {
+        return circuit.call(delegate::countByPasswordCost);
+    }
+
+    @Override
+    public long count() {
+        return circuit.call(delegate::count);
+    }
+}
@@ -0,0 +1,69 @@
+package app.repository;
+
+import app.exceptions.ServiceUnavailableException;
+import app.utils.CircuitBreaker;
+import jakarta.persistence.QueryTimeoutException;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs repository calls through the database circuit breaker. Only failures that say the
+ * database is unreachable or overloaded count against it; a constraint violation or a missing
+ * row is an answer from a healthy database. While the circuit is open, calls fail at once with
+ * 503 instead of waiting out connection and socket timeouts on a request thread.
+ */
+public class DatabaseCircuit {
+
+    private final CircuitBreaker breaker;
+
+    public DatabaseCircuit(CircuitBreaker breaker) {
+        this.breaker = breaker;
+    }
+
+    public <T> T call(Supplier<T> work) {
+        CircuitBreaker.Permit permit = breaker.acquire();
+        if (permit == CircuitBreaker.Permit.REJECTED) {
+            throw new ServiceUnavailableException("Database unavailable, please retry");
+        }
+        boolean failed = false;
+        try {
+            return work.get();
+        } catch (RuntimeException e) {
+            failed = isOutage(e);
+            throw e;
+        } finally {
+            breaker.release(permit, failed);
+        }
+    }
+
+    public void run(Runnable work) {
+        call(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * SQLState classes 08 (connection), 53 (insufficient resources) and 57 (operator intervention,
+     * including statement timeouts), plus pool acquire and query timeouts.
+     */
+    static boolean isOutage(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof QueryTimeoutException
+                    || cause instanceof SQLTransientConnectionException
+                    || cause instanceof SQLTimeoutException) {
+                return true;
+            }
+            if (cause instanceof SQLException sql && sql.getSQLState() != null) {
+                String state = sql.getSQLState();
+                if (state.startsWith("08") || state.startsWith("53") || state.startsWith("57")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,34 @@
+package app.repository;
+
+import app.entities.IdempotencyRecord;
+
+import java.time.Instant;
+
+public interface IdempotencyRepository {
+
+    IdempotencyRecord findById(String id);
+
+    /**
+     * Claims the key. Returns false if another request (possibly on another instance) holds it.
+     */
+    boolean insert(IdempotencyRecord record);
+
+    /**
+     * Claims a key whose row has expired. Returns false if the row is still live or another
+     * request took it over first. A claim that was never completed is not taken over before it
+     * expires: its action may have committed even though the response was never stored.
+     */
+    boolean reclaim(IdempotencyRecord record);
+
+    /**
+     * Stores the response, unless the claim has since been taken over.
+     */
+    void complete(IdempotencyRecord claim, int status, String body);
+
+    /**
+     * Releases the key, unless the claim has since been taken over.
+     */
+    void delete(IdempotencyRecord claim);
+
+    int deleteExpired(Instant now);
+}
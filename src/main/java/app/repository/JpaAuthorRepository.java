@@ -0,0 +1,33 @@
+package app.repository;
+
+import app.entities.Author;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.NoResultException;
+
+public class JpaAuthorRepository implements AuthorRepository {
+
+    private final EntityManagerFactory emf;
+
+    public JpaAuthorRepository(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    @Override
+    public Author findById(Long id) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.find(Author.class, id);
+        }
+    }
+
+    @Override
+    public Author findByNormalizedName(String normalizedName) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createQuery("SELECT a FROM Author a WHERE a.normalizedName = :normalizedName", Author.class)
+                    .setParameter("normalizedName", normalizedName)
+                    .getSingleResult();
+        } catch (NoResultException e) {
+            return null;
+        }
+    }
+}
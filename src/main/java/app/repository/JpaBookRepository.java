@@ -0,0 +1,497 @@
+package app.repository;
+
+import app.entities.Author;
+import app.entities.Book;
+import app.entities.BookChange;
+import app.tracing.Span;
+import app.tracing.Tracer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.NoResultException;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.ParameterExpression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+public class JpaBookRepository implements BookRepository {
+
+    // First key of the two-key advisory locks serializing each user's change log writers
+    private static final int CHANGE_LOG_LOCK = 0x42434847;
+
+    private final EntityManagerFactory emf;
+    private final EntityManagerFactory readEmf;
+    private final ReadRouter readRouter;
+
+    // Each call gets its own short-lived EntityManager; an EntityManager must not be shared between threads
+    public JpaBookRepository(EntityManagerFactory emf) {
+        this(emf, null, null);
+    }
+
+    // Reads go to the replica unless the user wrote recently; writes always go to the primary
+    public JpaBookRepository(EntityManagerFactory emf, EntityManagerFactory readEmf, ReadRouter readRouter) {
+        this.emf = emf;
+        this.readEmf = readEmf;
+        this.readRouter = readRouter;
+    }
+
+    // Every write appends to the change log in the same transaction, so the delta feed never misses a change
+
+    @Override
+    public Book save(Book book) {
+        Book saved = inTransaction("book.save", em -> {
+            lockChangeLog(em, List.of(book.getUser().getId()));
+            resolveAuthors(em, List.of(book));
+            em.persist(book);
+            em.persist(BookChange.of(BookChange.Type.CREATED, book));
+            return book;
+        });
+        markWrite(saved);
+        return saved;
+    }
+
+    @Override
+    public Book update(Book book) {
+        Book updated = inTransaction("book.update", em -> {
+            lockChangeLog(em, List.of(book.getUser().getId()));
+            resolveAuthors(em, List.of(book));
+            Book merged = Tracer.trace("em.merge", () -> em.merge(book));
+            em.persist(BookChange.of(BookChange.Type.UPDATED, merged));
+            return merged;
+        });
+        markWrite(updated);
+        return updated;
+    }
+
+    // New books are persisted and existing ones merged, all in a single transaction
+    @Override
+    public List<Book> saveAll(List<Book> books) {
+        List<Book> result = inTransaction("book.saveAll", em -> {
+            lockChangeLog(em, books.stream().map(book -> book.getUser().getId()).toList());
+            resolveAuthors(em, books);
+            List<Book> saved = new ArrayList<>(books.size());
+            for (Book book : books) {
+                if (book.getId() == null) {
+                    em.persist(book);
+                    em.persist(BookChange.of(BookChange.Type.CREATED, book));
+                    saved.add(book);
+                } else {
+                    Book updated = em.merge(book);
+                    em.persist(BookChange.of(BookChange.Type.UPDATED, updated));
+                    saved.add(updated);
+                }
+            }
+            return saved;
+        });
+        result.forEach(this::markWrite);
+        return result;
+    }
+
+    @Override
+    public void delete(Book book) {
+        inTransaction("book.delete", em -> {
+            lockChangeLog(em, List.of(book.getUser().getId()));
+            Book managed = em.contains(book) ? book : em.merge(book);
+            em.remove(managed);
+            em.persist(BookChange.of(BookChange.Type.DELETED, managed));
+            return null;
+        });
+        markWrite(book);
+    }
+
+    @Override
+    public Book findById(Long id) {
+        return QueryTimer.time("book.findById", () -> {
+            try (EntityManager em = emf.createEntityManager()) {
+                List<Book> books = em.createQuery("SELECT b FROM Book b LEFT JOIN FETCH b.author WHERE b.id = :id", Book.class)
+                        .setParameter("id", id)
+                        .getResultList();
+                return books.isEmpty() ? null : books.get(0);
+            }
+        });
+    }
+
+    @Override
+    public List<Book> findByUserId(Long userId) {
+        return QueryTimer.time("book.findByUserId", () -> {
+            try (EntityManager em = readerFor(userId)) {
+                return em.createQuery("SELECT b FROM Book b LEFT JOIN FETCH b.author WHERE b.user.id = :userId", Book.class)
+                        .setParameter("userId", userId)
+                        .getResultList();
+            }
+        });
+    }
+
+    /**
+     * The user's books filtered and sorted as requested. Built with the criteria API, so filter
+     * values are always bound parameters and the sort column comes from a fixed set.
+     * Ties are broken by id, matching the trailing id column of each index.
+     */
+    @Override
+    public List<Book> findByUserId(Long userId, BookQuery query) {
+        return QueryTimer.time("book.findByUserIdFiltered", () -> {
+            try (EntityManager em = readerFor(userId)) {
+                HibernateCriteriaBuilder cb = em.unwrap(Session.class).getCriteriaBuilder();
+                if (query.getFields().contains(BookFields.Field.TAGS)) {
+                    CriteriaQuery<Book> cq = cb.createQuery(Book.class);
+                    Root<Book> book = cq.from(Book.class);
+                    book.fetch("author", JoinType.LEFT);
+                    cq.select(book);
+                    return listing(em, cb, cq, book, userId, query).getResultList();
+                }
+                // Without tags there is no collection to fetch, so only the requested columns are selected
+                CriteriaQuery<Object[]> cq = cb.createQuery(Object[].class);
+                Root<Book> book = cq.from(Book.class);
+                cq.multiselect(projection(cb, book, query.getFields()));
+                return toBooks(listing(em, cb, cq, book, userId, query).getResultList(), query.getFields());
+            }
+        });
+    }
+
+    private <T> TypedQuery<T> listing(EntityManager em, HibernateCriteriaBuilder cb, CriteriaQuery<T> cq, Root<Book> book,
+                                      Long userId, BookQuery query) {
+        // Byte-order collation, matching idx_books_user_title, so a title prefix becomes an index range
+        Expression<String> titleKey = cb.collate(cb.lower(book.get("title")), "\"C\"");
+
+        List<Predicate> where = new ArrayList<>();
+        where.add(cb.equal(book.get("user").get("id"), userId));
+        ParameterExpression<Collection<?>> idList = null;
+        if (query.getIds() != null) {
+            idList = idList(cb);
+            where.add(book.get("id").in(idList));
+        }
+        if (query.getAuthorId() != null) {
+            where.add(cb.equal(book.get("author").get("id"), query.getAuthorId()));
+        }
+        if (query.getTitlePrefix() != null) {
+            String prefix = escapeLike(query.getTitlePrefix().toLowerCase(Locale.ROOT)) + "%";
+            where.add(cb.like(titleKey, prefix, '\\'));
+        }
+        cq.where(where.toArray(new Predicate[0]));
+
+        List<Order> orderBy = new ArrayList<>(2);
+        Expression<?> sortKey = switch (query.getSort()) {
+            case TITLE -> titleKey;
+            case CREATED_AT -> book.get("createdAt");
+            case ID -> null;
+        };
+        if (sortKey != null) {
+            orderBy.add(query.isDescending() ? cb.desc(sortKey) : cb.asc(sortKey));
+        }
+        orderBy.add(query.isDescending() ? cb.desc(book.get("id")) : cb.asc(book.get("id")));
+        cq.orderBy(orderBy);
+
+        TypedQuery<T> typed = em.createQuery(cq).setFirstResult(query.getOffset());
+        if (idList != null) {
+            typed.setParameter(idList, query.getIds());
+        }
+        if (query.getLimit() != null) {
+            typed.setMaxResults(query.getLimit());
+        }
+        return typed;
+    }
+
+    @Override
+    public Book findByIdAndUserId(Long id, Long userId) {
+        return QueryTimer.time("book.findByIdAndUserId", () -> {
+            try (EntityManager em = readerFor(userId)) {
+                return em.createQuery("SELECT b FROM Book b LEFT JOIN FETCH b.author WHERE b.id = :id AND b.user.id = :userId", Book.class)
+                        .setParameter("id", id)
+                        .setParameter("userId", userId)
+                        .getSingleResult();
+            } catch (NoResultException e) {
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public Book findByIdAndUserId(Long id, Long userId, BookFields fields) {
+        if (fields.contains(BookFields.Field.TAGS)) {
+            return findByIdAndUserId(id, userId);
+        }
+        return QueryTimer.time("book.findByIdAndUserIdNarrowed", () -> {
+            try (EntityManager em = readerFor(userId)) {
+                HibernateCriteriaBuilder cb = em.unwrap(Session.class).getCriteriaBuilder();
+                CriteriaQuery<Object[]> cq = cb.createQuery(Object[].class);
+                Root<Book> book = cq.from(Book.class);
+                cq.multiselect(projection(cb, book, fields))
+                        .where(cb.equal(book.get("id"), id), cb.equal(book.get("user").get("id"), userId));
+                List<Book> books = toBooks(em.createQuery(cq).getResultList(), fields);
+                return books.isEmpty() ? null : books.get(0);
+            }
+        });
+    }
+
+    @Override
+    public List<Book> findByIdsAndUserId(List<Long> ids, Long userId) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return QueryTimer.time("book.findByIdsAndUserId", () -> {
+            try (EntityManager em = readerFor(userId)) {
+                return em.createQuery("SELECT b FROM Book b LEFT JOIN FETCH b.author WHERE b.id IN :ids AND b.user.id = :userId ORDER BY b.id", Book.class)
+                        .setParameter("ids", ids)
+                        .setParameter("userId", userId)
+                        .getResultList();
+            }
+        });
+    }
+
+    // One query per call. The IN list is padded to the next power of two (see persistence.xml), so
+    // there is one statement shape per size bucket, up to log2(maxLookupIds) + 1 of them, not one
+    @Override
+    public List<Book> findByIdsAndUserId(List<Long> ids, Long userId, BookFields fields) {
+        if (fields.contains(BookFields.Field.TAGS)) {
+            return findByIdsAndUserId(ids, userId);
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return QueryTimer.time("book.findByIdsAndUserIdNarrowed", () -> {
+            try (EntityManager em = readerFor(userId)) {
+                HibernateCriteriaBuilder cb = em.unwrap(Session.class).getCriteriaBuilder();
+                CriteriaQuery<Object[]> cq = cb.createQuery(Object[].class);
+                Root<Book> book = cq.from(Book.class);
+                ParameterExpression<Collection<?>> idList = idList(cb);
+                cq.multiselect(projection(cb, book, fields))
+                        .where(book.get("id").in(idList), cb.equal(book.get("user").get("id"), userId))
+                        .orderBy(cb.asc(book.get("id")));
+                return toBooks(em.createQuery(cq).setParameter(idList, ids).getResultList(), fields);
+            }
+        });
+    }
+
+    // Reads the primary: the tag index starts from this and only follows writes afterwards
+    @Override
+    public List<Object[]> findTagsByUserId(Long userId) {
+        return QueryTimer.time("book.findTagsByUserId", () -> {
+            try (EntityManager em = emf.createEntityManager()) {
+                return em.createQuery("SELECT b.id, t FROM Book b LEFT JOIN b.tags t WHERE b.user.id = :userId", Object[].class)
+                        .setParameter("userId", userId)
+                        .getResultList();
+            }
+        });
+    }
+
+    // The feed reads the primary: a client must never page past a change the primary already has
+    @Override
+    public List<BookChange> findChangesSince(Long userId, Long cursor, int limit) {
+        return QueryTimer.time("book.findChangesSince", () -> {
+            try (EntityManager em = emf.createEntityManager()) {
+                return em.createQuery("SELECT c FROM BookChange c WHERE c.userId = :userId AND c.id > :cursor ORDER BY c.id", BookChange.class)
+                        .setParameter("userId", userId)
+                        .setParameter("cursor", cursor)
+                        .setMaxResults(limit)
+                        .getResultList();
+            }
+        });
+    }
+
+    @Override
+    public long findLatestChangeId(Long userId) {
+        return QueryTimer.time("book.findLatestChangeId", () -> {
+            try (EntityManager em = emf.createEntityManager()) {
+                Long latest = em.createQuery("SELECT MAX(c.id) FROM BookChange c WHERE c.userId = :userId", Long.class)
+                        .setParameter("userId", userId)
+                        .getSingleResult();
+                return latest != null ? latest : 0L;
+            }
+        });
+    }
+
+    // Pruning removes a prefix of ids, so everything below the oldest remaining id may be gone
+    @Override
+    public long getChangesPrunedThrough() {
+        return QueryTimer.time("book.getChangesPrunedThrough", () -> {
+            try (EntityManager em = emf.createEntityManager()) {
+                Long oldest = em.createQuery("SELECT MIN(c.id) FROM BookChange c", Long.class).getSingleResult();
+                return oldest != null ? oldest - 1 : 0L;
+            }
+        });
+    }
+
+    /**
+     * Deletes every change up to the newest one recorded before the instant. The newest change of
+     * all is always kept, so the oldest remaining id still tells how far pruning went.
+     */
+    @Override
+    public int pruneChanges(Instant before) {
+        return inTransaction("book.pruneChanges", em -> em.createQuery(
+                        "DELETE FROM BookChange c WHERE c.id <= (SELECT MAX(o.id) FROM BookChange o WHERE o.changedAt < :before)"
+                                + " AND c.id < (SELECT MAX(n.id) FROM BookChange n)")
+                .setParameter("before", before)
+                .executeUpdate());
+    }
+
+    @Override
+    public List<Object[]> countBooksPerUser() {
+        try (EntityManager em = reporter()) {
+            return em.createQuery("SELECT b.user.id, COUNT(b) FROM Book b GROUP BY b.user.id", Object[].class)
+                    .getResultList();
+        }
+    }
+
+    @Override
+    public List<Object[]> countBooksPerAuthor() {
+        try (EntityManager em = reporter()) {
+            return em.createQuery("SELECT a.name, COUNT(b) FROM Book b JOIN b.author a GROUP BY a.id, a.name", Object[].class)
+                    .getResultList();
+        }
+    }
+
+    // The id always comes first; the author is the book's own spelling, or else its author row's name
+    private static List<Selection<?>> projection(CriteriaBuilder cb, Root<Book> book, BookFields fields) {
+        List<Selection<?>> columns = new ArrayList<>(3);
+        columns.add(book.get("id"));
+        if (fields.contains(BookFields.Field.TITLE)) {
+            columns.add(book.get("title"));
+        }
+        if (fields.contains(BookFields.Field.AUTHOR)) {
+            columns.add(cb.coalesce(book.<String>get("authorSpelling"),
+                    book.join("author", JoinType.LEFT).<String>get("name")));
+        }
+        return columns;
+    }
+
+    private static List<Book> toBooks(List<Object[]> rows, BookFields fields) {
+        List<Book> books = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Book book = new Book();
+            int column = 0;
+            book.setId((Long) row[column++]);
+            if (fields.contains(BookFields.Field.TITLE)) {
+                book.setTitle((String) row[column++]);
+            }
+            if (fields.contains(BookFields.Field.AUTHOR)) {
+                book.setAuthorName((String) row[column]);
+            }
+            book.setTags(null);
+            books.add(book);
+        }
+        return books;
+    }
+
+    // in() takes an Expression<Collection<?>>; a class literal cannot carry the type argument
+    @SuppressWarnings("unchecked")
+    private static ParameterExpression<Collection<?>> idList(CriteriaBuilder cb) {
+        return cb.parameter((Class<Collection<?>>) (Class<?>) Collection.class);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // Aggregate scans go to the replica when there is one; they never need read-your-writes
+    private EntityManager reporter() {
+        return readEmf != null ? readEmf.createEntityManager() : emf.createEntityManager();
+    }
+
+    private EntityManager readerFor(Long userId) {
+        if (readEmf == null || readRouter.usePrimary(userId)) {
+            return emf.createEntityManager();
+        }
+        return readEmf.createEntityManager();
+    }
+
+    /**
+     * Holds the users' change log locks until commit. Change ids come from a sequence when the row
+     * is inserted, not when it commits; with one writer per user at a time, a user's changes commit
+     * in id order, so a feed reader never sees a higher id before a lower one that commits later.
+     * Locks are taken in user id order, so batches covering several users cannot deadlock.
+     */
+    private static void lockChangeLog(EntityManager em, List<Long> userIds) {
+        Set<Long> users = new TreeSet<>(userIds);
+        try (Span span = Tracer.startSpan("lock.changeLog")) {
+            span.setAttribute("users", users.size());
+            for (Long userId : users) {
+                em.createNativeQuery("SELECT 1 FROM (SELECT pg_advisory_xact_lock(:space, :key)) AS l")
+                        .setParameter("space", CHANGE_LOG_LOCK)
+                        .setParameter("key", Long.hashCode(userId))
+                        .getSingleResult();
+            }
+        }
+    }
+
+    /**
+     * Links each book that has no author row yet to the row for its name, inserting the row if
+     * the name is new. It runs in the book's transaction, so a write that rolls back leaves no
+     * author behind; a concurrent insert of the same name makes ON CONFLICT wait for that
+     * transaction and then reuse its row. A spelling equal to the shared name is then dropped
+     * from the book, so only variant spellings are stored.
+     */
+    private static void resolveAuthors(EntityManager em, List<Book> books) {
+        Map<String, Author> resolved = new HashMap<>();
+        for (Book book : books) {
+            if (book.getAuthor() != null || book.getAuthorName() == null) {
+                continue;
+            }
+            String normalizedName = Author.normalize(book.getAuthorName());
+            Author author = resolved.get(normalizedName);
+            if (author == null) {
+                em.createNativeQuery("INSERT INTO authors (name, normalized_name) VALUES (:name, :normalizedName)"
+                                + " ON CONFLICT (normalized_name) DO NOTHING")
+                        .setParameter("name", book.getAuthorName().trim())
+                        .setParameter("normalizedName", normalizedName)
+                        .executeUpdate();
+                author = em.createQuery("SELECT a FROM Author a WHERE a.normalizedName = :normalizedName", Author.class)
+                        .setParameter("normalizedName", normalizedName)
+                        .getSingleResult();
+                resolved.put(normalizedName, author);
+            }
+            book.setAuthor(author);
+        }
+        for (Book book : books) {
+            Author author = book.getAuthor();
+            if (author != null && Hibernate.isInitialized(author) && author.getName().equals(book.getAuthorSpelling())) {
+                book.setAuthorSpelling(null);
+            }
+        }
+    }
+
+    private void markWrite(Book book) {
+        if (readRouter != null) {
+            readRouter.markWrite(book.getUser().getId());
+        }
+    }
+
+    private <T> T inTransaction(String query, Function<EntityManager, T> work) {
+        return QueryTimer.time(query, () -> {
+            try (EntityManager em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                try {
+                    T result = work.apply(em);
+                    Tracer.trace("tx.commit", () -> {
+                        em.getTransaction().commit();
+                        return null;
+                    });
+                    return result;
+                } catch (RuntimeException e) {
+                    if (em.getTransaction().isActive()) {
+                        em.getTransaction().rollback();
+                    }
+                    throw e;
+                }
+            }
+        });
+    }
+}
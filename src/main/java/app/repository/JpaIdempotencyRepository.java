@@ -0,0 +1,97 @@
+package app.repository;
+
+import app.entities.IdempotencyRecord;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+
+import java.time.Instant;
+import java.util.function.Function;
+
+public class JpaIdempotencyRepository implements IdempotencyRepository {
+
+    private final EntityManagerFactory emf;
+
+    public JpaIdempotencyRepository(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    @Override
+    public IdempotencyRecord findById(String id) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.find(IdempotencyRecord.class, id);
+        }
+    }
+
+    @Override
+    public boolean insert(IdempotencyRecord record) {
+        try {
+            inTransaction(em -> {
+                em.persist(record);
+                return null;
+            });
+            return true;
+        } catch (PersistenceException e) {
+            // Most likely a concurrent insert of the same key won the race
+            if (findById(record.getId()) == null) {
+                throw e;
+            }
+            return false;
+        }
+    }
+
+    // One conditional update, so of two instances reclaiming the same row only one succeeds
+    @Override
+    public boolean reclaim(IdempotencyRecord record) {
+        return inTransaction(em -> em.createQuery("UPDATE IdempotencyRecord r SET r.requestHash = :requestHash, "
+                        + "r.status = NULL, r.body = NULL, r.createdAt = :createdAt, r.expiresAt = :expiresAt "
+                        + "WHERE r.id = :id AND r.expiresAt <= :createdAt")
+                .setParameter("requestHash", record.getRequestHash())
+                .setParameter("createdAt", record.getCreatedAt())
+                .setParameter("expiresAt", record.getExpiresAt())
+                .setParameter("id", record.getId())
+                .executeUpdate()) == 1;
+    }
+
+    @Override
+    public void complete(IdempotencyRecord claim, int status, String body) {
+        inTransaction(em -> em.createQuery("UPDATE IdempotencyRecord r SET r.status = :status, r.body = :body "
+                        + "WHERE r.id = :id AND r.createdAt = :claimedAt")
+                .setParameter("status", status)
+                .setParameter("body", body)
+                .setParameter("id", claim.getId())
+                .setParameter("claimedAt", claim.getCreatedAt())
+                .executeUpdate());
+    }
+
+    @Override
+    public void delete(IdempotencyRecord claim) {
+        inTransaction(em -> em.createQuery("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.createdAt = :claimedAt")
+                .setParameter("id", claim.getId())
+                .setParameter("claimedAt", claim.getCreatedAt())
+                .executeUpdate());
+    }
+
+    @Override
+    public int deleteExpired(Instant now) {
+        return inTransaction(em -> em.createQuery("DELETE FROM IdempotencyRecord r WHERE r.expiresAt <= :now")
+                .setParameter("now", now)
+                .executeUpdate());
+    }
+
+    private <T> T inTransaction(Function<EntityManager, T> work) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                T result = work.apply(em);
+                em.getTransaction().commit();
+                return result;
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+}
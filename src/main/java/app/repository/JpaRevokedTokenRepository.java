@@ -0,0 +1,62 @@
+package app.repository;
+
+import app.entities.RevokedToken;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.time.Instant;
+import java.util.List;
+
+public class JpaRevokedTokenRepository implements RevokedTokenRepository {
+
+    private final EntityManagerFactory emf;
+
+    public JpaRevokedTokenRepository(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    // merge makes revoking the same token twice harmless
+    @Override
+    public void save(RevokedToken token) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                em.merge(token);
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public List<RevokedToken> findActive(Instant now) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createQuery("SELECT t FROM RevokedToken t WHERE t.expiresAt > :now", RevokedToken.class)
+                    .setParameter("now", now)
+                    .getResultList();
+        }
+    }
+
+    @Override
+    public int deleteExpired(Instant now) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                int deleted = em.createQuery("DELETE FROM RevokedToken t WHERE t.expiresAt <= :now")
+                        .setParameter("now", now)
+                        .executeUpdate();
+                em.getTransaction().commit();
+                return deleted;
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package app.repository;
+
+import app.entities.User;
+import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class JpaUserRepository implements UserRepository {
+
+    // Postgres SQLState for a unique constraint or unique index violation
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private final EntityManagerFactory emf;
+    private final EntityManagerFactory readEmf;
+    private final ReadRouter readRouter;
+
+    public JpaUserRepository(EntityManagerFactory emf) {
+        this(emf, null, null);
+    }
+
+    public JpaUserRepository(EntityManagerFactory emf, EntityManagerFactory readEmf, ReadRouter readRouter) {
+        this.emf = emf;
+        this.readEmf = readEmf;
+        this.readRouter = readRouter;
+    }
+
+    // A taken username fails the insert on the lower(username) unique index, so no prior existence check is needed
+    @Override
+    public User save(User user) {
+        return QueryTimer.time("user.save", () -> {
+            try (EntityManager em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                try {
+                    em.persist(user);
+                    em.getTransaction().commit();
+                    if (readRouter != null) {
+                        readRouter.markWrite(user.getUsername().toLowerCase(Locale.ROOT));
+                    }
+                    return user;
+                } catch (RuntimeException e) {
+                    if (em.getTransaction().isActive()) {
+                        em.getTransaction().rollback();
+                    }
+                    if (isUniqueViolation(e)) {
+                        throw new EntityExistsException("Username already exists: " + user.getUsername(), e);
+                    }
+                    throw e;
+                }
+            }
+        });
+    }
+
+    @Override
+    public User findByUsername(String username) {
+        return QueryTimer.time("user.findByUsername", () -> {
+            try (EntityManager em = readerFor(username)) {
+                // Same expression as the unique index, so the lookup is an index probe and ignores case.
+                // Without the index, names differing only in case can match more than once: prefer the
+                // exact spelling, then the oldest account
+                List<User> matches = em.createQuery("SELECT u FROM User u WHERE lower(u.username) = lower(:username) "
+                                + "ORDER BY u.id", User.class)
+                        .setParameter("username", username)
+                        .getResultList();
+                return matches.stream()
+                        .filter(user -> user.getUsername().equals(username))
+                        .findFirst()
+                        .orElse(matches.isEmpty() ? null : matches.get(0));
+            }
+        });
+    }
+
+    @Override
+    public User findById(Long id) {
+        return QueryTimer.time("user.findById", () -> {
+            try (EntityManager em = emf.createEntityManager()) {
+                return em.find(User.class, id);
+            }
+        });
+    }
+
+    @Override
+    public void updatePassword(Long id, String password) {
+        QueryTimer.time("user.updatePassword", () -> {
+            try (EntityManager em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                try {
+                    em.createQuery("UPDATE User u SET u.password = :password WHERE u.id = :id")
+                            .setParameter("password", password)
+                            .setParameter("id", id)
+                            .executeUpdate();
+                    em.getTransaction().commit();
+                    return null;
+                } catch (RuntimeException e) {
+                    if (em.getTransaction().isActive()) {
+                        em.getTransaction().rollback();
+                    }
+                    throw e;
+                }
+            }
+        });
+    }
+
+    // The cost is the two digits after the "$2a$" prefix of the modular crypt format
+    @Override
+    public List<Object[]> countByPasswordCost() {
+        try (EntityManager em = readEmf != null ? readEmf.createEntityManager() : emf.createEntityManager()) {
+            List<Object[]> rows = em.createQuery("SELECT SUBSTRING(u.password, 5, 2), COUNT(u) FROM User u "
+                            + "GROUP BY SUBSTRING(u.password, 5, 2)", Object[].class)
+                    .getResultList();
+            List<Object[]> costs = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                try {
+                    costs.add(new Object[]{Integer.parseInt((String) row[0]), row[1]});
+                } catch (NumberFormatException e) {
+                    // Not a bcrypt hash; nothing to report
+                }
+            }
+            return costs;
+        }
+    }
+
+    @Override
+    public long count() {
+        try (EntityManager em = readEmf != null ? readEmf.createEntityManager() : emf.createEntityManager()) {
+            return em.createQuery("SELECT COUNT(u) FROM User u", Long.class).getSingleResult();
+        }
+    }
+
+    private static boolean isUniqueViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && UNIQUE_VIOLATION.equals(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Keyed by the lower-cased name, matching the case-insensitive lookup
+    private EntityManager readerFor(String username) {
+        if (readEmf == null || readRouter.usePrimary(username.toLowerCase(Locale.ROOT))) {
+            return emf.createEntityManager();
+        }
+        return readEmf.createEntityManager();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package app.repository;
+
+import app.profiling.RepositoryQueryEvent;
+import app.tracing.Tracer;
+
+import java.util.function.Supplier;
+
+/**
+ * Instruments one repository call with both a JFR event and a trace span of the same name.
+ */
+final class QueryTimer {
+
+    private QueryTimer() {
+    }
+
+    static <T> T time(String query, Supplier<T> call) {
+        return Tracer.trace(query, () -> RepositoryQueryEvent.time(query, call));
+    }
+}
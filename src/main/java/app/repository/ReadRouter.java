@@ -0,0 +1,42 @@
+package app.repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether a read may go to the replica. After a write, the writer's key (user id or
+ * username) is pinned to the primary for a short window, so users always read their own writes
+ * despite replication lag.
+ */
+public class ReadRouter {
+
+    private static final int SWEEP_THRESHOLD = 10_000;
+
+    private final Map<Object, Long> pinnedUntil = new ConcurrentHashMap<>();
+    private final long windowNanos;
+
+    public ReadRouter(long readYourWritesMillis) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(readYourWritesMillis);
+    }
+
+    public void markWrite(Object key) {
+        long now = System.nanoTime();
+        pinnedUntil.put(key, now + windowNanos);
+        if (pinnedUntil.size() > SWEEP_THRESHOLD) {
+            pinnedUntil.values().removeIf(until -> until - now < 0);
+        }
+    }
+
+    public boolean usePrimary(Object key) {
+        Long until = pinnedUntil.get(key);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() < 0) {
+            pinnedUntil.remove(key, until);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,18 @@
+package app.repository;
+
+import app.entities.RevokedToken;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface RevokedTokenRepository {
+
+    /**
+     * Revoking the same token twice is harmless.
+     */
+    void save(RevokedToken token);
+
+    List<RevokedToken> findActive(Instant now);
+
+    int deleteExpired(Instant now);
+}
@@ -1,42 +1,30 @@
 package app.repository;
 
 import app.entities.User;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.NoResultException;
-
-public class UserRepository {
-
-    private final EntityManager em;
-
-    public UserRepository(EntityManager em) {
-        this.em = em;
-    }
-
-    public User save(User user) {
-        em.getTransaction().begin();
-        em.persist(user);
-        em.getTransaction().commit();
-        return user;
-    }
-
-    public User findByUsername(String username) {
-        try {
-            return em.createQuery("SELECT u FROM User u WHERE u.username = :username", User.class)
-                    .setParameter("username", username)
-                    .getSingleResult();
-        } catch (NoResultException e) {
-            return null;
-        }
-    }
-
-    public User findById(Long id) {
-        return em.find(User.class, id);
-    }
-
-    public boolean existsByUsername(String username) {
-        Long count = em.createQuery("SELECT COUNT(u) FROM User u WHERE u.username = :username", Long.class)
-                .setParameter("username", username)
-                .getSingleResult();
-        return count > 0;
-    }
-}
\ No newline at end of file
+
+import java.util.List;
+
+public interface UserRepository {
+
+    /**
+     * Inserts a new user. Usernames are unique regardless of case; a taken one fails with
+     * {@link jakarta.persistence.EntityExistsException}.
+     */
+    User save(User user);
+
+    /**
+     * Case-insensitive lookup, or null if there is no such user.
+     */
+    User findByUsername(String username);
+
+    User findById(Long id);
+
+    void updatePassword(Long id, String password);
+
+    /**
+     * (bcrypt cost, user count) pairs over all stored password hashes.
+     */
+    List<Object[]> countByPasswordCost();
+
+    long count();
+}
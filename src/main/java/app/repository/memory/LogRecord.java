@@ -0,0 +1,180 @@
+package app.repository.memory;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * The unit of change in the embedded store. The same records are the rows held in memory, the
+ * entries of the write-ahead log and the contents of a snapshot, so recovery is just applying
+ * records in order. Rows are immutable; an update appends a new row with the same id.
+ */
+sealed interface LogRecord {
+
+    byte USER = 1;
+    byte AUTHOR = 2;
+    // Books written before they kept their own author spelling
+    byte BOOK_V1 = 3;
+    byte BOOK_DELETED = 4;
+    byte CHANGE = 5;
+    byte TOKEN_REVOKED = 6;
+    byte TOKENS_EXPIRED = 7;
+    byte CHANGES_PRUNED = 8;
+    byte BOOK = 9;
+
+    void write(DataOutputStream out) throws IOException;
+
+    record UserRow(long id, String username, String password, String role) implements LogRecord {
+        public void write(DataOutputStream out) throws IOException {
+            out.writeByte(USER);
+            out.writeLong(id);
+            writeString(out, username);
+            writeString(out, password);
+            writeString(out, role);
+        }
+    }
+
+    record AuthorRow(long id, String name, String normalizedName) implements LogRecord {
+        public void write(DataOutputStream out) throws IOException {
+            out.writeByte(AUTHOR);
+            out.writeLong(id);
+            writeString(out, name);
+            writeString(out, normalizedName);
+        }
+    }
+
+    // authorId 0 means no author; author is the book's own spelling, null when it is the author row's name
+    record BookRow(long id, long userId, long authorId, String author, String title, String[] tags,
+                   Instant createdAt, Instant updatedAt) implements LogRecord {
+        public void write(DataOutputStream out) throws IOException {
+            out.writeByte(BOOK);
+            out.writeLong(id);
+            out.writeLong(userId);
+            out.writeLong(authorId);
+            writeString(out, author);
+            writeString(out, title);
+            out.writeShort(tags.length);
+            for (String tag : tags) {
+                writeString(out, tag);
+            }
+            writeInstant(out, createdAt);
+            writeInstant(out, updatedAt);
+        }
+    }
+
+    record BookDeleted(long id) implements LogRecord {
+        public void write(DataOutputStream out) throws IOException {
+            out.writeByte(BOOK_DELETED);
+            out.writeLong(id);
+        }
+    }
+
+    // One entry of a user's change log; title and author are null for deletes
+    record ChangeRow(long id, long userId, long bookId, byte type, String title, String author,
+                     Instant changedAt) implements LogRecord {
+        public void write(DataOutputStream out) throws IOException {
+            out.writeByte(CHANGE);
+            out.writeLong(id);
+            out.writeLong(userId);
+            out.writeLong(bookId);
+            out.writeByte(type);
+            writeString(out, title);
+            writeString(out, author);
+            writeInstant(out, changedAt);
+        }
+    }
+
+    record TokenRevoked(String jti, Instant expiresAt) implements LogRecord {
+        public void write(DataOutputStream out) throws IOException {
+            out.writeByte(TOKEN_REVOKED);
+            writeString(out, jti);
+            writeInstant(out, expiresAt);
+        }
+    }
+
+    record TokensExpired(Instant now) implements LogRecord {
+        public void write(DataOutputStream out) throws IOException {
+            out.writeByte(TOKENS_EXPIRED);
+            writeInstant(out, now);
+        }
+    }
+
+    // Change log entries up to throughId were dropped; lastBookId keeps pruned deletes' ids from being reused
+    record ChangesPruned(long throughId, long lastBookId) implements LogRecord {
+        public void write(DataOutputStream out) throws IOException {
+            out.writeByte(CHANGES_PRUNED);
+            out.writeLong(throughId);
+            out.writeLong(lastBookId);
+        }
+    }
+
+    /**
+     * Reads one record at the buffer's position.
+     */
+    static LogRecord read(ByteBuffer in) {
+        byte type = in.get();
+        switch (type) {
+            case USER:
+                return new UserRow(in.getLong(), readString(in), readString(in), readString(in));
+            case AUTHOR:
+                return new AuthorRow(in.getLong(), readString(in), readString(in));
+            case BOOK_V1:
+            case BOOK: {
+                long id = in.getLong();
+                long userId = in.getLong();
+                long authorId = in.getLong();
+                String author = type == BOOK ? readString(in) : null;
+                String title = readString(in);
+                String[] tags = new String[in.getShort()];
+                for (int i = 0; i < tags.length; i++) {
+                    tags[i] = readString(in);
+                }
+                return new BookRow(id, userId, authorId, author, title, tags, readInstant(in), readInstant(in));
+            }
+            case BOOK_DELETED:
+                return new BookDeleted(in.getLong());
+            case CHANGE:
+                return new ChangeRow(in.getLong(), in.getLong(), in.getLong(), in.get(), readString(in),
+                        readString(in), readInstant(in));
+            case TOKEN_REVOKED:
+                return new TokenRevoked(readString(in), readInstant(in));
+            case TOKENS_EXPIRED:
+                return new TokensExpired(readInstant(in));
+            case CHANGES_PRUNED:
+                return new ChangesPruned(in.getLong(), in.getLong());
+            default:
+                throw new IllegalStateException("Unknown record type " + type + " at offset " + (in.position() - 1));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant value) throws IOException {
+        out.writeLong(value.getEpochSecond());
+        out.writeInt(value.getNano());
+    }
+
+    private static Instant readInstant(ByteBuffer in) {
+        return Instant.ofEpochSecond(in.getLong(), in.getInt());
+    }
+}
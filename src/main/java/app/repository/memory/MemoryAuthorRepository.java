@@ -0,0 +1,35 @@
+package app.repository.memory;
+
+import app.entities.Author;
+import app.repository.AuthorRepository;
+import app.repository.memory.LogRecord.AuthorRow;
+
+public class MemoryAuthorRepository implements AuthorRepository {
+
+    private final MemoryStore store;
+
+    public MemoryAuthorRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Author findById(Long id) {
+        return store.read(() -> toAuthor(store.authors.get(id)));
+    }
+
+    @Override
+    public Author findByNormalizedName(String normalizedName) {
+        return store.read(() -> toAuthor(store.authorsByNormalizedName.get(normalizedName)));
+    }
+
+    static Author toAuthor(AuthorRow row) {
+        if (row == null) {
+            return null;
+        }
+        Author author = new Author();
+        author.setId(row.id());
+        author.setName(row.name());
+        author.setNormalizedName(row.normalizedName());
+        return author;
+    }
+}
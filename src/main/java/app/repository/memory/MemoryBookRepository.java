@@ -0,0 +1,379 @@
+package app.repository.memory;
+
+import app.entities.Author;
+import app.entities.Book;
+import app.entities.BookChange;
+import app.entities.User;
+import app.repository.BookFields;
+import app.repository.BookQuery;
+import app.repository.BookRepository;
+import app.repository.memory.LogRecord.AuthorRow;
+import app.repository.memory.LogRecord.BookDeleted;
+import app.repository.memory.LogRecord.BookRow;
+import app.repository.memory.LogRecord.ChangeRow;
+import app.repository.memory.LogRecord.ChangesPruned;
+import app.repository.memory.LogRecord.UserRow;
+import jakarta.persistence.EntityNotFoundException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class MemoryBookRepository implements BookRepository {
+
+    private static final BookChange.Type[] CHANGE_TYPES = BookChange.Type.values();
+    private static final String[] NO_TAGS = new String[0];
+
+    private final MemoryStore store;
+
+    public MemoryBookRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Book save(Book book) {
+        return store.write(tx -> put(tx, book));
+    }
+
+    @Override
+    public Book update(Book book) {
+        return store.write(tx -> put(tx, book));
+    }
+
+    @Override
+    public List<Book> saveAll(List<Book> books) {
+        return store.write(tx -> {
+            for (Book book : books) {
+                if (book.getId() != null && !store.books.containsKey(book.getId())) {
+                    throw new EntityNotFoundException("Book " + book.getId() + " no longer exists");
+                }
+            }
+            List<Book> saved = new ArrayList<>(books.size());
+            for (Book book : books) {
+                saved.add(put(tx, book));
+            }
+            return saved;
+        });
+    }
+
+    // A book without an id is inserted, otherwise the stored row is replaced, keeping its creation time
+    private Book put(MemoryStore.Transaction tx, Book book) {
+        Instant now = Instant.now();
+        BookChange.Type type;
+        if (book.getId() == null) {
+            book.setId(tx.nextBookId());
+            book.setCreatedAt(now);
+            type = BookChange.Type.CREATED;
+        } else {
+            BookRow existing = store.books.get(book.getId());
+            if (existing == null) {
+                throw new EntityNotFoundException("Book " + book.getId() + " no longer exists");
+            }
+            book.setCreatedAt(existing.createdAt());
+            type = BookChange.Type.UPDATED;
+        }
+        book.setUpdatedAt(now);
+
+        String[] tags = book.getTags() == null ? NO_TAGS : book.getTags().toArray(NO_TAGS);
+        AuthorRow author = resolveAuthor(tx, book.getAuthorName());
+        book.setAuthor(MemoryAuthorRepository.toAuthor(author));
+        // The common spelling is held once, by the author row
+        String spelling = author != null && !author.name().equals(book.getAuthorName()) ? book.getAuthorName() : null;
+        tx.append(new BookRow(book.getId(), book.getUser().getId(), author != null ? author.id() : 0, spelling,
+                book.getTitle(), tags, book.getCreatedAt(), now));
+        tx.append(new ChangeRow(tx.nextChangeId(), book.getUser().getId(), book.getId(), (byte) type.ordinal(),
+                book.getTitle(), book.getAuthorName(), now));
+        return book;
+    }
+
+    // Created in the book's own write, so it is logged with the book or not at all
+    private AuthorRow resolveAuthor(MemoryStore.Transaction tx, String name) {
+        if (name == null) {
+            return null;
+        }
+        String normalizedName = Author.normalize(name);
+        AuthorRow row = store.authorsByNormalizedName.get(normalizedName);
+        if (row == null) {
+            row = new AuthorRow(tx.nextAuthorId(), name.trim(), normalizedName);
+            tx.append(row);
+        }
+        return row;
+    }
+
+    @Override
+    public void delete(Book book) {
+        store.write(tx -> {
+            BookRow row = store.books.get(book.getId());
+            if (row != null) {
+                tx.append(new BookDeleted(row.id()));
+                tx.append(new ChangeRow(tx.nextChangeId(), row.userId(), row.id(),
+                        (byte) BookChange.Type.DELETED.ordinal(), null, null, Instant.now()));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Book findById(Long id) {
+        return store.read(() -> toBook(store.books.get(id)));
+    }
+
+    @Override
+    public List<Book> findByUserId(Long userId) {
+        return store.read(() -> {
+            MemoryStore.IdList ids = store.booksByUser.get(userId);
+            if (ids == null) {
+                return new ArrayList<>();
+            }
+            List<Book> books = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                books.add(toBook(store.books.get(ids.get(i))));
+            }
+            return books;
+        });
+    }
+
+    /**
+     * Scans the user's id list. In id order the list is already sorted, so a page stops after
+     * offset + limit matches; other orders sort the matches first.
+     */
+    @Override
+    public List<Book> findByUserId(Long userId, BookQuery query) {
+        String prefix = query.getTitlePrefix() != null ? query.getTitlePrefix().toLowerCase(Locale.ROOT) : null;
+        int offset = query.getOffset();
+        int limit = query.getLimit() != null ? query.getLimit() : Integer.MAX_VALUE;
+        return store.read(() -> {
+            MemoryStore.IdList ids = store.booksByUser.get(userId);
+            if (ids == null) {
+                return new ArrayList<>();
+            }
+
+            List<Match> matches = new ArrayList<>();
+            boolean byId = query.getSort() == BookQuery.Sort.ID;
+            long wanted = byId ? (long) offset + limit : Long.MAX_VALUE;
+            for (int i = 0; i < ids.size() && matches.size() < wanted; i++) {
+                long id = ids.get(query.isDescending() && byId ? ids.size() - 1 - i : i);
+                BookRow row = store.books.get(id);
+                if (query.getAuthorId() != null && row.authorId() != query.getAuthorId()) {
+                    continue;
+                }
+                // Lower-cased once per row rather than once per comparison
+                String title = prefix != null || query.getSort() == BookQuery.Sort.TITLE
+                        ? row.title().toLowerCase(Locale.ROOT) : null;
+                if (prefix != null && !title.startsWith(prefix)) {
+                    continue;
+                }
+                matches.add(new Match(row, title));
+            }
+            if (!byId) {
+                Comparator<Match> order = query.getSort() == BookQuery.Sort.TITLE
+                        ? Comparator.comparing(Match::title)
+                        : Comparator.comparing((Match match) -> match.row().createdAt());
+                order = order.thenComparingLong(match -> match.row().id());
+                matches.sort(query.isDescending() ? order.reversed() : order);
+            }
+
+            List<Book> page = new ArrayList<>(Math.max(0, Math.min(matches.size() - offset, limit)));
+            for (int i = offset; i < matches.size() && page.size() < limit; i++) {
+                page.add(toBook(matches.get(i).row(), query.getFields()));
+            }
+            return page;
+        });
+    }
+
+    @Override
+    public Book findByIdAndUserId(Long id, Long userId) {
+        return store.read(() -> {
+            BookRow row = store.books.get(id);
+            return row != null && row.userId() == userId ? toBook(row) : null;
+        });
+    }
+
+    @Override
+    public Book findByIdAndUserId(Long id, Long userId, BookFields fields) {
+        return store.read(() -> {
+            BookRow row = store.books.get(id);
+            return row != null && row.userId() == userId ? toBook(row, fields) : null;
+        });
+    }
+
+    @Override
+    public List<Book> findByIdsAndUserId(List<Long> ids, Long userId) {
+        return findByIdsAndUserId(ids, userId, BookFields.ALL);
+    }
+
+    @Override
+    public List<Book> findByIdsAndUserId(List<Long> ids, Long userId, BookFields fields) {
+        long[] sorted = ids.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        return store.read(() -> {
+            List<Book> books = new ArrayList<>(sorted.length);
+            for (long id : sorted) {
+                BookRow row = store.books.get(id);
+                if (row != null && row.userId() == userId) {
+                    books.add(toBook(row, fields));
+                }
+            }
+            return books;
+        });
+    }
+
+    @Override
+    public List<Object[]> findTagsByUserId(Long userId) {
+        return store.read(() -> {
+            List<Object[]> rows = new ArrayList<>();
+            MemoryStore.IdList ids = store.booksByUser.get(userId);
+            for (int i = 0; ids != null && i < ids.size(); i++) {
+                BookRow row = store.books.get(ids.get(i));
+                if (row.tags().length == 0) {
+                    rows.add(new Object[]{row.id(), null});
+                }
+                for (String tag : row.tags()) {
+                    rows.add(new Object[]{row.id(), tag});
+                }
+            }
+            return rows;
+        });
+    }
+
+    @Override
+    public List<BookChange> findChangesSince(Long userId, Long cursor, int limit) {
+        return store.read(() -> {
+            List<ChangeRow> changes = store.changesByUser.get(userId);
+            List<BookChange> page = new ArrayList<>();
+            if (changes == null) {
+                return page;
+            }
+            // Change ids ascend within a user's log, so the cursor is found by binary search
+            int low = 0;
+            int high = changes.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (changes.get(mid).id() <= cursor) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int i = low; i < changes.size() && page.size() < limit; i++) {
+                page.add(toChange(changes.get(i)));
+            }
+            return page;
+        });
+    }
+
+    @Override
+    public long findLatestChangeId(Long userId) {
+        return store.read(() -> {
+            List<ChangeRow> changes = store.changesByUser.get(userId);
+            return changes == null || changes.isEmpty() ? 0L : changes.get(changes.size() - 1).id();
+        });
+    }
+
+    @Override
+    public long getChangesPrunedThrough() {
+        return store.read(store::getChangesPrunedThrough);
+    }
+
+    // Finding the cut-off scans every user's log, so it runs under the read lock; the prune is one record
+    @Override
+    public int pruneChanges(Instant before) {
+        long through = store.read(() -> {
+            long[] newest = {store.getChangesPrunedThrough()};
+            store.changesByUser.forEach((userId, changes) -> {
+                for (ChangeRow change : changes) {
+                    if (!change.changedAt().isBefore(before)) {
+                        break;
+                    }
+                    newest[0] = Math.max(newest[0], change.id());
+                }
+            });
+            return newest[0];
+        });
+        return store.write(tx -> {
+            if (through <= store.getChangesPrunedThrough()) {
+                return 0;
+            }
+            int[] dropped = {0};
+            store.changesByUser.forEach((userId, changes) -> {
+                for (int i = 0; i < changes.size() && changes.get(i).id() <= through; i++) {
+                    dropped[0]++;
+                }
+            });
+            tx.append(new ChangesPruned(through, tx.nextBookId() - 1));
+            return dropped[0];
+        });
+    }
+
+    @Override
+    public List<Object[]> countBooksPerUser() {
+        return store.read(() -> {
+            List<Object[]> rows = new ArrayList<>();
+            store.booksByUser.forEach((userId, ids) -> {
+                if (ids.size() > 0) {
+                    rows.add(new Object[]{userId, (long) ids.size()});
+                }
+            });
+            return rows;
+        });
+    }
+
+    @Override
+    public List<Object[]> countBooksPerAuthor() {
+        return store.read(() -> {
+            Map<Long, Long> counts = new HashMap<>();
+            store.books.forEach((id, row) -> {
+                if (row.authorId() != 0) {
+                    counts.merge(row.authorId(), 1L, Long::sum);
+                }
+            });
+            List<Object[]> rows = new ArrayList<>(counts.size());
+            counts.forEach((authorId, count) -> rows.add(new Object[]{store.authors.get(authorId).name(), count}));
+            return rows;
+        });
+    }
+
+    private Book toBook(BookRow row) {
+        return toBook(row, BookFields.ALL);
+    }
+
+    // Called under the store's read or write lock
+    private Book toBook(BookRow row, BookFields fields) {
+        if (row == null) {
+            return null;
+        }
+        Book book = new Book();
+        book.setId(row.id());
+        if (fields.contains(BookFields.Field.TITLE)) {
+            book.setTitle(row.title());
+        }
+        if (fields.contains(BookFields.Field.AUTHOR)) {
+            AuthorRow author = store.authors.get(row.authorId());
+            book.setAuthor(MemoryAuthorRepository.toAuthor(author));
+            book.setAuthorName(row.author() != null ? row.author() : author != null ? author.name() : null);
+        }
+        UserRow owner = store.users.get(row.userId());
+        User user = new User();
+        user.setId(row.userId());
+        user.setUsername(owner != null ? owner.username() : null);
+        book.setUser(user);
+        book.setTags(fields.contains(BookFields.Field.TAGS) ? new HashSet<>(Arrays.asList(row.tags())) : null);
+        book.setCreatedAt(row.createdAt());
+        book.setUpdatedAt(row.updatedAt());
+        return book;
+    }
+
+    private record Match(BookRow row, String title) {}
+
+    private static BookChange toChange(ChangeRow row) {
+        BookChange change = new BookChange(CHANGE_TYPES[row.type()], row.userId(), row.bookId(), row.title(), row.author());
+        change.setId(row.id());
+        change.setChangedAt(row.changedAt());
+        return change;
+    }
+}
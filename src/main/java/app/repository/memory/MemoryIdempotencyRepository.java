@@ -0,0 +1,65 @@
+package app.repository.memory;
+
+import app.entities.IdempotencyRecord;
+import app.repository.IdempotencyRepository;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Idempotency keys for the embedded backend. There is only one instance to coordinate with and
+ * keys are short-lived, so they are kept in memory only and not written to the log; a restart
+ * forgets them.
+ */
+public class MemoryIdempotencyRepository implements IdempotencyRepository {
+
+    private final Map<String, IdempotencyRecord> records = new ConcurrentHashMap<>();
+
+    @Override
+    public IdempotencyRecord findById(String id) {
+        return records.get(id);
+    }
+
+    @Override
+    public boolean insert(IdempotencyRecord record) {
+        return records.putIfAbsent(record.getId(), record) == null;
+    }
+
+    @Override
+    public boolean reclaim(IdempotencyRecord record) {
+        IdempotencyRecord[] replaced = new IdempotencyRecord[1];
+        records.computeIfPresent(record.getId(), (key, existing) -> {
+            if (existing.getExpiresAt().isAfter(record.getCreatedAt())) {
+                return existing;
+            }
+            replaced[0] = existing;
+            return record;
+        });
+        return replaced[0] != null;
+    }
+
+    // The stored record is the claim itself until another request takes the key over
+    @Override
+    public void complete(IdempotencyRecord claim, int status, String body) {
+        records.computeIfPresent(claim.getId(), (key, record) -> {
+            if (record == claim) {
+                record.setStatus(status);
+                record.setBody(body);
+            }
+            return record;
+        });
+    }
+
+    @Override
+    public void delete(IdempotencyRecord claim) {
+        records.remove(claim.getId(), claim);
+    }
+
+    @Override
+    public int deleteExpired(Instant now) {
+        int before = records.size();
+        records.values().removeIf(record -> !record.getExpiresAt().isAfter(now));
+        return before - records.size();
+    }
+}
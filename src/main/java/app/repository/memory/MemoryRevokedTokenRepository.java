@@ -0,0 +1,53 @@
+package app.repository.memory;
+
+import app.entities.RevokedToken;
+import app.repository.RevokedTokenRepository;
+import app.repository.memory.LogRecord.TokenRevoked;
+import app.repository.memory.LogRecord.TokensExpired;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MemoryRevokedTokenRepository implements RevokedTokenRepository {
+
+    private final MemoryStore store;
+
+    public MemoryRevokedTokenRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void save(RevokedToken token) {
+        store.write(tx -> {
+            tx.append(new TokenRevoked(token.getJti(), token.getExpiresAt()));
+            return null;
+        });
+    }
+
+    @Override
+    public List<RevokedToken> findActive(Instant now) {
+        return store.read(() -> {
+            List<RevokedToken> active = new ArrayList<>();
+            store.revokedTokens.forEach((jti, expiresAt) -> {
+                if (expiresAt.isAfter(now)) {
+                    active.add(new RevokedToken(jti, expiresAt));
+                }
+            });
+            return active;
+        });
+    }
+
+    @Override
+    public int deleteExpired(Instant now) {
+        return store.write(tx -> {
+            int expired = (int) store.revokedTokens.values().stream()
+                    .filter(expiresAt -> !expiresAt.isAfter(now))
+                    .count();
+            if (expired > 0) {
+                tx.append(new TokensExpired(now));
+            }
+            return expired;
+        });
+    }
+}
@@ -0,0 +1,469 @@
+package app.repository.memory;
+
+import app.repository.memory.LogRecord.AuthorRow;
+import app.repository.memory.LogRecord.BookDeleted;
+import app.repository.memory.LogRecord.BookRow;
+import app.repository.memory.LogRecord.ChangeRow;
+import app.repository.memory.LogRecord.ChangesPruned;
+import app.repository.memory.LogRecord.TokenRevoked;
+import app.repository.memory.LogRecord.TokensExpired;
+import app.repository.memory.LogRecord.UserRow;
+import app.utils.LongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Embedded storage engine for single-node deployments without Postgres. All rows live in memory,
+ * keyed by primitive ids, with a sorted id list per user for listing. Every write is appended to a
+ * {@link WriteAheadLog} before the caller returns; a periodic snapshot writes the whole state to
+ * one file and lets older log segments be deleted, so a restart maps the latest snapshot and
+ * replays only the log written since.
+ * <p>
+ * Reads share a read lock; writes take the write lock only to apply and buffer their records, and
+ * wait for the log sync after releasing it. A read may therefore see a write a few milliseconds
+ * before that write is durable, but a writer never returns before it is.
+ */
+public class MemoryStore implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryStore.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x424B534E;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final Pattern SEGMENT = Pattern.compile("(wal|snapshot)-(\\d{20})\\.(log|bin)");
+
+    private final Path dir;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder snapshots = new LongAdder();
+    private WriteAheadLog wal;
+    private ScheduledExecutorService snapshotter;
+
+    // State, guarded by lock
+    final LongHashMap<UserRow> users = new LongHashMap<>();
+    // Keyed by usernameKey, like the lower(username) unique index in Postgres
+    final Map<String, UserRow> usersByName = new HashMap<>();
+    final LongHashMap<AuthorRow> authors = new LongHashMap<>();
+    final Map<String, AuthorRow> authorsByNormalizedName = new HashMap<>();
+    final LongHashMap<BookRow> books = new LongHashMap<>(1024);
+    final LongHashMap<IdList> booksByUser = new LongHashMap<>();
+    final LongHashMap<List<ChangeRow>> changesByUser = new LongHashMap<>();
+    final Map<String, Instant> revokedTokens = new HashMap<>();
+    private long lastUserId;
+    private long lastAuthorId;
+    private long lastBookId;
+    private long lastChangeId;
+    private long changesPrunedThrough;
+
+    private MemoryStore(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Opens the store in the directory, recovering the latest snapshot and the log written after it.
+     */
+    public static MemoryStore open(Path dir, boolean fsync) {
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create storage directory " + dir, e);
+        }
+        MemoryStore store = new MemoryStore(dir);
+        long start = System.nanoTime();
+
+        long base = store.loadLatestSnapshot();
+        List<Long> segments = store.segments("wal");
+        segments.removeIf(segment -> segment < base);
+        int entries = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            boolean last = i == segments.size() - 1;
+            entries += WriteAheadLog.replay(WriteAheadLog.segmentFile(dir, segments.get(i)), last, store::apply);
+        }
+
+        long next = Math.max(base, segments.isEmpty() ? 0 : segments.get(segments.size() - 1)) + 1;
+        store.wal = new WriteAheadLog(dir, next, fsync);
+        log.info("Memory store opened in {} ms: {} users, {} books, {} log entries replayed",
+                (System.nanoTime() - start) / 1_000_000, store.users.size(), store.books.size(), entries);
+        return store;
+    }
+
+    <T> T read(Supplier<T> work) {
+        lock.readLock().lock();
+        try {
+            return work.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a write under the write lock. Records appended through the transaction are applied at
+     * once, so the rest of the work sees them, and logged together as one entry. The work must do
+     * all of its checks before its first append, since applied records are not rolled back.
+     */
+    <T> T write(Function<Transaction, T> work) {
+        long sequence = 0;
+        T result;
+        lock.writeLock().lock();
+        try {
+            Transaction tx = new Transaction();
+            result = work.apply(tx);
+            if (!tx.records.isEmpty()) {
+                sequence = wal.append(encode(tx.records));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (sequence > 0) {
+            wal.sync(sequence);
+        }
+        return result;
+    }
+
+    final class Transaction {
+        private final List<LogRecord> records = new ArrayList<>(2);
+
+        void append(LogRecord record) {
+            apply(record);
+            records.add(record);
+        }
+
+        long nextUserId() {
+            return lastUserId + 1;
+        }
+
+        long nextAuthorId() {
+            return lastAuthorId + 1;
+        }
+
+        long nextBookId() {
+            return lastBookId + 1;
+        }
+
+        long nextChangeId() {
+            return lastChangeId + 1;
+        }
+    }
+
+    private void apply(LogRecord record) {
+        if (record instanceof BookRow row) {
+            if (books.put(row.id(), row) == null) {
+                IdList ids = booksByUser.get(row.userId());
+                if (ids == null) {
+                    ids = new IdList();
+                    booksByUser.put(row.userId(), ids);
+                }
+                ids.add(row.id());
+            }
+            lastBookId = Math.max(lastBookId, row.id());
+        } else if (record instanceof ChangeRow row) {
+            List<ChangeRow> changes = changesByUser.get(row.userId());
+            if (changes == null) {
+                changes = new ArrayList<>();
+                changesByUser.put(row.userId(), changes);
+            }
+            changes.add(row);
+            lastChangeId = Math.max(lastChangeId, row.id());
+            // Keeps deleted ids from being handed out again after a restart
+            lastBookId = Math.max(lastBookId, row.bookId());
+        } else if (record instanceof BookDeleted deleted) {
+            BookRow row = books.remove(deleted.id());
+            if (row != null) {
+                booksByUser.get(row.userId()).remove(row.id());
+            }
+        } else if (record instanceof UserRow row) {
+            users.put(row.id(), row);
+            usersByName.put(usernameKey(row.username()), row);
+            lastUserId = Math.max(lastUserId, row.id());
+        } else if (record instanceof AuthorRow row) {
+            authors.put(row.id(), row);
+            authorsByNormalizedName.put(row.normalizedName(), row);
+            lastAuthorId = Math.max(lastAuthorId, row.id());
+        } else if (record instanceof TokenRevoked token) {
+            revokedTokens.put(token.jti(), token.expiresAt());
+        } else if (record instanceof TokensExpired expired) {
+            revokedTokens.values().removeIf(expiresAt -> !expiresAt.isAfter(expired.now()));
+        } else if (record instanceof ChangesPruned pruned) {
+            List<Long> emptied = new ArrayList<>();
+            changesByUser.forEach((userId, changes) -> {
+                int keep = 0;
+                while (keep < changes.size() && changes.get(keep).id() <= pruned.throughId()) {
+                    keep++;
+                }
+                changes.subList(0, keep).clear();
+                if (changes.isEmpty()) {
+                    emptied.add(userId);
+                }
+            });
+            emptied.forEach(changesByUser::remove);
+            changesPrunedThrough = Math.max(changesPrunedThrough, pruned.throughId());
+            lastChangeId = Math.max(lastChangeId, pruned.throughId());
+            lastBookId = Math.max(lastBookId, pruned.lastBookId());
+        }
+    }
+
+    // Called under the lock
+    long getChangesPrunedThrough() {
+        return changesPrunedThrough;
+    }
+
+    static String usernameKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private static byte[] encode(List<LogRecord> records) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * records.size());
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(records.size());
+            for (LogRecord record : records) {
+                record.write(out);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the whole state to a new snapshot file and deletes the log segments it covers.
+     * The log is rotated under the read lock, which keeps writers out just long enough to copy
+     * references to the (immutable) rows; the file itself is written without holding any lock.
+     */
+    public synchronized void snapshot() {
+        long segment;
+        List<LogRecord> image;
+        lock.readLock().lock();
+        try {
+            segment = wal.rotate();
+            image = image();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        long start = System.nanoTime();
+        Path file = dir.resolve(String.format("snapshot-%020d.bin", segment));
+        Path tmp = dir.resolve(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream raw = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            CheckedOutputStream checked = new CheckedOutputStream(raw, new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(segment);
+            out.writeLong(image.size());
+            for (LogRecord record : image) {
+                record.write(out);
+            }
+            out.flush();
+            new DataOutputStream(raw).writeLong(checked.getChecksum().getValue());
+            raw.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + tmp, e);
+        }
+
+        try {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            for (long old : segments("wal")) {
+                if (old < segment) {
+                    Files.deleteIfExists(WriteAheadLog.segmentFile(dir, old));
+                }
+            }
+            for (long old : segments("snapshot")) {
+                if (old < segment) {
+                    Files.deleteIfExists(dir.resolve(String.format("snapshot-%020d.bin", old)));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot install snapshot " + file, e);
+        }
+        snapshots.increment();
+        log.info("Memory store snapshot {} written in {} ms: {} records",
+                segment, (System.nanoTime() - start) / 1_000_000, image.size());
+    }
+
+    private List<LogRecord> image() {
+        List<LogRecord> image = new ArrayList<>(users.size() + authors.size() + books.size() * 2 + revokedTokens.size());
+        users.forEach((id, row) -> image.add(row));
+        authors.forEach((id, row) -> image.add(row));
+        books.forEach((id, row) -> image.add(row));
+        changesByUser.forEach((userId, changes) -> image.addAll(changes));
+        if (changesPrunedThrough > 0) {
+            image.add(new ChangesPruned(changesPrunedThrough, lastBookId));
+        }
+        revokedTokens.forEach((jti, expiresAt) -> image.add(new TokenRevoked(jti, expiresAt)));
+        return image;
+    }
+
+    /**
+     * Loads the newest snapshot through a read-only memory map and returns the first log segment
+     * it does not cover (0 without a snapshot). A damaged snapshot is an error rather than a
+     * reason to start empty, since the log segments it covers are gone.
+     */
+    private long loadLatestSnapshot() {
+        List<Long> available = segments("snapshot");
+        if (available.isEmpty()) {
+            return 0;
+        }
+        long segment = available.get(available.size() - 1);
+        Path file = dir.resolve(String.format("snapshot-%020d.bin", segment));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Snapshot " + file + " is larger than 2 GB");
+            }
+            if (size < 32) {
+                throw new IllegalStateException("Snapshot " + file + " is damaged");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, (int) size - 8));
+            if (buffer.getLong((int) size - 8) != crc.getValue()
+                    || buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+                throw new IllegalStateException("Snapshot " + file + " is damaged");
+            }
+            buffer.getLong();
+            for (long count = buffer.getLong(); count > 0; count--) {
+                apply(LogRecord.read(buffer));
+            }
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read snapshot " + file, e);
+        }
+    }
+
+    private List<Long> segments(String kind) {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Long> segments = new ArrayList<>();
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT.matcher(file.getFileName().toString());
+                if (matcher.matches() && matcher.group(1).equals(kind)) {
+                    segments.add(Long.parseLong(matcher.group(2)));
+                }
+            });
+            segments.sort(null);
+            return segments;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list " + dir, e);
+        }
+    }
+
+    /**
+     * Snapshots every interval in which the log has grown.
+     */
+    public void startPeriodicSnapshots(long intervalSeconds) {
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "memory-store-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.scheduleWithFixedDelay(() -> {
+            try {
+                if (wal.getSegmentBytes() > 0) {
+                    snapshot();
+                }
+            } catch (RuntimeException e) {
+                log.error("Memory store snapshot failed", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public long getLogEntries() {
+        return wal.getAppended();
+    }
+
+    public long getLogSyncs() {
+        return wal.getSyncs();
+    }
+
+    public long getSnapshots() {
+        return snapshots.sum();
+    }
+
+    /**
+     * Stops the snapshot thread and closes the log. A final snapshot keeps the next start fast.
+     */
+    @Override
+    public synchronized void close() {
+        if (snapshotter != null) {
+            snapshotter.shutdownNow();
+        }
+        if (wal.getSegmentBytes() > 0) {
+            snapshot();
+        }
+        wal.close();
+    }
+
+    /**
+     * A user's book ids in ascending order. New ids are always the largest so far, so adding is
+     * an append; removal shifts the tail.
+     */
+    static final class IdList {
+        private long[] ids = new long[8];
+        private int size;
+
+        void add(long id) {
+            int index = size == 0 || ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0 && index < size) {
+                return;
+            }
+            int at = index >= 0 ? index : -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        void remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+            }
+        }
+
+        long get(int index) {
+            return ids[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
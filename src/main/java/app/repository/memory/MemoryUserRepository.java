@@ -0,0 +1,87 @@
+package app.repository.memory;
+
+import app.entities.User;
+import app.repository.UserRepository;
+import app.repository.memory.LogRecord.UserRow;
+import app.security.PasswordUtil;
+import jakarta.persistence.EntityExistsException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class MemoryUserRepository implements UserRepository {
+
+    private final MemoryStore store;
+
+    public MemoryUserRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    // Same contract as the unique index in Postgres: a duplicate username fails the insert
+    @Override
+    public User save(User user) {
+        return store.write(tx -> {
+            if (store.usersByName.containsKey(MemoryStore.usernameKey(user.getUsername()))) {
+                throw new EntityExistsException("Username already exists: " + user.getUsername());
+            }
+            UserRow row = new UserRow(tx.nextUserId(), user.getUsername(), user.getPassword(), user.getRole());
+            tx.append(row);
+            user.setId(row.id());
+            return user;
+        });
+    }
+
+    @Override
+    public User findByUsername(String username) {
+        return store.read(() -> toUser(store.usersByName.get(MemoryStore.usernameKey(username))));
+    }
+
+    @Override
+    public User findById(Long id) {
+        return store.read(() -> toUser(store.users.get(id)));
+    }
+
+    @Override
+    public void updatePassword(Long id, String password) {
+        store.write(tx -> {
+            UserRow row = store.users.get(id);
+            if (row != null) {
+                tx.append(new UserRow(row.id(), row.username(), password, row.role()));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public List<Object[]> countByPasswordCost() {
+        return store.read(() -> {
+            Map<Integer, Long> counts = new TreeMap<>();
+            store.users.forEach((id, row) -> {
+                int cost = PasswordUtil.costOf(row.password());
+                if (cost > 0) {
+                    counts.merge(cost, 1L, Long::sum);
+                }
+            });
+            List<Object[]> rows = new ArrayList<>(counts.size());
+            counts.forEach((cost, count) -> rows.add(new Object[]{cost, count}));
+            return rows;
+        });
+    }
+
+    @Override
+    public long count() {
+        return store.read(() -> (long) store.users.size());
+    }
+
+    static User toUser(UserRow row) {
+        if (row == null) {
+            return null;
+        }
+        User user = new User(row.username(), row.password());
+        user.setId(row.id());
+        user.setRole(row.role());
+        return user;
+    }
+}
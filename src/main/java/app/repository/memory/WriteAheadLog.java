@@ -0,0 +1,246 @@
+package app.repository.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of {@link LogRecord} entries, split into numbered segment files. Each entry is
+ * {@code [length][crc32][record count][records...]} and holds the records of one write, so a
+ * write is replayed entirely or not at all.
+ * <p>
+ * Appends only copy bytes into a buffer. Durability comes from {@link #sync}: the first waiting
+ * writer becomes the leader, writes everything buffered so far and issues one {@code force};
+ * writers that appended meanwhile find their entry already durable, so concurrent writes share
+ * one fsync instead of queueing for one each.
+ */
+class WriteAheadLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final int HEADER_BYTES = 8;
+
+    private final Path dir;
+    private final boolean fsync;
+    private final Object syncLock = new Object();
+    private final LongAdder syncs = new LongAdder();
+
+    // Guarded by this
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private long appended;
+    private long segmentBytes;
+
+    // Guarded by syncLock
+    private FileChannel channel;
+    private long segment;
+
+    private volatile long durable;
+    private volatile IOException failure;
+
+    WriteAheadLog(Path dir, long segment, boolean fsync) {
+        this.dir = dir;
+        this.fsync = fsync;
+        this.segment = segment;
+        this.channel = open(segmentFile(dir, segment));
+    }
+
+    /**
+     * Buffers one entry and returns its sequence number, to be passed to {@link #sync}.
+     */
+    synchronized long append(byte[] records) {
+        CRC32 crc = new CRC32();
+        crc.update(records);
+        int size = HEADER_BYTES + records.length;
+        if (pending.remaining() < size) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        pending.putInt(records.length).putInt((int) crc.getValue()).put(records);
+        segmentBytes += size;
+        return ++appended;
+    }
+
+    /**
+     * Returns once the entry with the given sequence number is on disk (or, without fsync, handed
+     * to the operating system).
+     */
+    void sync(long sequence) {
+        while (durable < sequence) {
+            synchronized (syncLock) {
+                if (durable >= sequence) {
+                    return;
+                }
+                checkFailure();
+                try {
+                    flushLocked();
+                } catch (IOException e) {
+                    // Whether the failed write reached the disk is unknown; refuse all further writes
+                    failure = e;
+                    throw new UncheckedIOException("Write-ahead log sync failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Flushes the current segment and starts the next one. Callers must keep appends out while
+     * rotating, so the new segment number marks an exact point in the log.
+     */
+    long rotate() {
+        synchronized (syncLock) {
+            checkFailure();
+            try {
+                flushLocked();
+                channel.force(true);
+                channel.close();
+            } catch (IOException e) {
+                failure = e;
+                throw new UncheckedIOException("Write-ahead log rotation failed", e);
+            }
+            segment++;
+            channel = open(segmentFile(dir, segment));
+            synchronized (this) {
+                segmentBytes = 0;
+            }
+            return segment;
+        }
+    }
+
+    synchronized long getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    synchronized long getAppended() {
+        return appended;
+    }
+
+    long getSyncs() {
+        return syncs.sum();
+    }
+
+    @Override
+    public void close() {
+        synchronized (syncLock) {
+            try {
+                if (failure == null) {
+                    flushLocked();
+                    channel.force(true);
+                }
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot close write-ahead log", e);
+            }
+        }
+    }
+
+    private void flushLocked() throws IOException {
+        ByteBuffer batch;
+        long upTo;
+        synchronized (this) {
+            upTo = appended;
+            if (pending.position() == 0) {
+                durable = upTo;
+                return;
+            }
+            pending.flip();
+            batch = pending;
+            pending = ByteBuffer.allocate(batch.capacity());
+        }
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+        syncs.increment();
+        durable = upTo;
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("Write-ahead log failed earlier; restart to recover", failure);
+        }
+    }
+
+    static Path segmentFile(Path dir, long segment) {
+        return dir.resolve(String.format("wal-%020d.log", segment));
+    }
+
+    /**
+     * Replays the entries of one segment through a memory map. A torn or corrupt entry ends the
+     * replay; if {@code truncate} is set the file is cut back to the last whole entry, otherwise
+     * the damage is reported as an error. Returns the number of entries applied.
+     */
+    static int replay(Path file, boolean truncate, Consumer<LogRecord> apply) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Segment " + file + " is larger than 2 GB");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+
+            int entries = 0;
+            List<LogRecord> records = new ArrayList<>();
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int crc = buffer.getInt();
+                if (length < 4 || length > buffer.remaining() || crc != checksum(buffer, length)) {
+                    buffer.position(start);
+                    break;
+                }
+                ByteBuffer entry = buffer.slice(buffer.position(), length);
+                records.clear();
+                for (int count = entry.getInt(); count > 0; count--) {
+                    records.add(LogRecord.read(entry));
+                }
+                records.forEach(apply);
+                buffer.position(buffer.position() + length);
+                entries++;
+            }
+
+            if (buffer.hasRemaining()) {
+                if (!truncate) {
+                    throw new IllegalStateException("Corrupt entry at offset " + buffer.position() + " of " + file);
+                }
+                log.warn("Truncating torn write-ahead log tail: {} at offset {}", file, buffer.position());
+                channel.truncate(buffer.position());
+                channel.force(true);
+            }
+            return entries;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay " + file, e);
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(buffer.position(), length));
+        return (int) crc.getValue();
+    }
+
+    private static FileChannel open(Path file) {
+        try {
+            return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open write-ahead log " + file, e);
+        }
+    }
+}
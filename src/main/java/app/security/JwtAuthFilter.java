@@ -1,43 +1,58 @@
 package app.security;
 
-import app.dto.ErrorDTO;
+import app.exceptions.ForbiddenException;
+import app.exceptions.UnauthorizedException;
+import app.tracing.Span;
+import app.tracing.Tracer;
+import io.jsonwebtoken.Claims;
 import io.javalin.http.Context;
-import io.javalin.http.HttpStatus; // <-- VIGTIG IMPORT
 
 public class JwtAuthFilter {
 
-    public static void authenticate(Context ctx) {
-        String authHeader = ctx.header("Authorization");
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            ctx.status(401).json(new ErrorDTO("missing or invalid auth header"));
-            return;
-        }
+    private static volatile TokenDenylist denylist;
 
-        String token = authHeader.substring(7);
+    public static void setDenylist(TokenDenylist tokenDenylist) {
+        denylist = tokenDenylist;
+    }
 
-        if (!JwtUtil.isTokenValid(token)) {
-            ctx.status(401).json(new ErrorDTO("invalid token"));
-            return;
+    public static void authenticate(Context ctx) {
+        try (Span span = Tracer.startSpan("jwt.authenticate")) {
+            String authHeader = ctx.header("Authorization");
+            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+                throw new UnauthorizedException("missing or invalid auth header");
+            }
+
+            String token = authHeader.substring(7);
+
+            // Verify the signature once and read every claim from the result
+            Claims claims = JwtUtil.validateToken(token);
+            if (claims == null) {
+                throw new UnauthorizedException("invalid token");
+            }
+
+            String jti = claims.getId();
+            TokenDenylist currentDenylist = denylist;
+            if (jti != null && currentDenylist != null && currentDenylist.isRevoked(jti)) {
+                throw new UnauthorizedException("token revoked");
+            }
+
+            String role = claims.get("role", String.class);
+            span.setAttribute("auth.role", role);
+            ctx.attribute("username", claims.getSubject());
+            ctx.attribute("role", role);
+            ctx.attribute("jti", jti);
+            ctx.attribute("tokenExpiresAt", claims.getExpiration().toInstant());
         }
-        String username = JwtUtil.getUsernameFromToken(token);
-        String role = JwtUtil.getRoleFromToken(token);
-
-        ctx.attribute("username", username);
-        ctx.attribute("role", role);
     }
 
     public static void authenticateWithRole(Context ctx, String requiredRole) {
 
         authenticate(ctx);
 
-        if (ctx.status() == HttpStatus.UNAUTHORIZED) {
-            return;
-        }
-
         String userRole = ctx.attribute("role");
 
         if (userRole == null || !requiredRole.equals(userRole)) {
-            ctx.status(403).json(new ErrorDTO("Access Denied"));
+            throw new ForbiddenException("Access Denied");
         }
     }
-}
\ No newline at end of file
+}
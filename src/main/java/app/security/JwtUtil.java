@@ -7,6 +7,7 @@ import io.jsonwebtoken.security.Keys;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.UUID;
 
 public class JwtUtil {
 
@@ -17,6 +18,7 @@ public class JwtUtil {
 
     public static String generateToken(String username, String role) {
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(username)
                 .claim("role", role)
                 .setIssuedAt(new Date())
@@ -47,6 +49,15 @@ public class JwtUtil {
         return claims != null ? claims.get("role", String.class) : null;
     }
 
+    public static String getTokenIdFromToken(String token) {
+        Claims claims = validateToken(token);
+        return claims != null ? claims.getId() : null;
+    }
+
+    public static long getMaxTokenLifetimeMillis() {
+        return EXPIRATION_TIME;
+    }
+
     public static boolean isTokenValid(String token) {
         return validateToken(token) != null;
     }
@@ -1,17 +1,106 @@
 package app.security;
 
+import app.profiling.PasswordHashEvent;
 import at.favre.lib.crypto.bcrypt.BCrypt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
 
 public class PasswordUtil {
 
-    private static final int COST = 12;
+    private static final Logger log = LoggerFactory.getLogger(PasswordUtil.class);
+
+    public static final int DEFAULT_COST = 12;
+    // Below 10 bcrypt is cheap enough to brute-force offline; neither calibration nor a pinned cost goes lower
+    public static final int MIN_COST = 10;
+    public static final int MAX_COST = 31;
+
+    private static final int CALIBRATION_SAMPLES = 3;
+
+    private static volatile int cost = DEFAULT_COST;
 
     public static String hashPassword(String password) {
-        return BCrypt.withDefaults().hashToString(COST, password.toCharArray());
+        int current = cost;
+        PasswordHashEvent event = new PasswordHashEvent("hash", current);
+        event.begin();
+        try {
+            return BCrypt.withDefaults().hashToString(current, password.toCharArray());
+        } finally {
+            event.commit();
+        }
     }
 
     public static boolean verifyPassword(String password, String hashedPassword) {
-        BCrypt.Result result = BCrypt.verifyer().verify(password.toCharArray(), hashedPassword);
-        return result.verified;
+        PasswordHashEvent event = new PasswordHashEvent("verify", costOf(hashedPassword));
+        event.begin();
+        try {
+            BCrypt.Result result = BCrypt.verifyer().verify(password.toCharArray(), hashedPassword);
+            return result.verified;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * True if the hash was made at a lower cost than new hashes get, so it should be replaced the
+     * next time the plain password is at hand. Stronger hashes are kept, so instances that
+     * calibrate to different costs do not rehash the same users back and forth.
+     */
+    public static boolean needsRehash(String hashedPassword) {
+        return costOf(hashedPassword) < cost;
+    }
+
+    /**
+     * Picks the highest cost whose hash time stays within the target on this machine, but never
+     * less than {@code minCost} or {@link #MIN_COST}, and uses it for new hashes. Each cost step doubles the work, so
+     * hashes are timed once at the floor and the rest is extrapolated.
+     */
+    public static int calibrate(long targetMillis, int minCost, int maxCost) {
+        int floor = Math.max(minCost, MIN_COST);
+        int ceiling = Math.max(floor, Math.min(maxCost, MAX_COST));
+        char[] sample = "calibration-sample".toCharArray();
+
+        // The first hash pays for class loading and JIT; it is not counted
+        BCrypt.withDefaults().hash(floor, sample);
+        long[] samples = new long[CALIBRATION_SAMPLES];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            BCrypt.withDefaults().hash(floor, sample);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        long nanos = samples[samples.length / 2];
+
+        int chosen = floor;
+        long targetNanos = targetMillis * 1_000_000;
+        while (chosen < ceiling && nanos * 2 <= targetNanos) {
+            nanos *= 2;
+            chosen++;
+        }
+        cost = chosen;
+        log.info("Password hash cost {} (about {} ms per hash, target {} ms)", chosen, nanos / 1_000_000, targetMillis);
+        return chosen;
+    }
+
+    public static int getCost() {
+        return cost;
+    }
+
+    public static void setCost(int newCost) {
+        if (newCost < MIN_COST || newCost > MAX_COST) {
+            throw new IllegalArgumentException(String.format("bcrypt cost must be between %d and %d, was %d",
+                    MIN_COST, MAX_COST, newCost));
+        }
+        cost = newCost;
+    }
+
+    // Modular crypt format: $2a$12$...
+    public static int costOf(String hashedPassword) {
+        try {
+            return Integer.parseInt(hashedPassword.substring(4, 6));
+        } catch (RuntimeException e) {
+            return -1;
+        }
     }
-}
\ No newline at end of file
+}
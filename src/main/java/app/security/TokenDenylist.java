@@ -0,0 +1,116 @@
+package app.security;
+
+import app.entities.RevokedToken;
+import app.exceptions.BadRequestException;
+import app.repository.RevokedTokenRepository;
+import app.utils.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revoked token ids, persisted in Postgres and mirrored in memory.
+ * The request path does a single Bloom filter probe; only the rare positive falls through to the
+ * exact set, so non-revoked tokens (nearly all of them) never touch the database.
+ * The filter is rebuilt periodically from the database, which drops expired entries and picks up
+ * revocations made by other instances.
+ */
+public class TokenDenylist {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenDenylist.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+    private static final int MIN_CAPACITY = 1024;
+
+    private final RevokedTokenRepository repository;
+    private volatile Snapshot snapshot = new Snapshot(MIN_CAPACITY);
+    private ScheduledExecutorService rebuilder;
+
+    public TokenDenylist(RevokedTokenRepository repository) {
+        this.repository = repository;
+    }
+
+    public boolean isRevoked(String jti) {
+        Snapshot current = snapshot;
+        return current.filter.mightContain(jti) && current.expiries.containsKey(jti);
+    }
+
+    public void revoke(String jti, Instant expiresAt) {
+        // Our own token ids are UUIDs; anything longer would not fit the column
+        if (jti.length() > RevokedToken.MAX_JTI_LENGTH) {
+            throw new BadRequestException("Token id must be at most " + RevokedToken.MAX_JTI_LENGTH + " characters");
+        }
+        repository.save(new RevokedToken(jti, expiresAt));
+        synchronized (this) {
+            snapshot.add(jti, expiresAt);
+        }
+    }
+
+    public void rebuild() {
+        Instant now = Instant.now();
+        repository.deleteExpired(now);
+
+        Map<String, Instant> active = new ConcurrentHashMap<>();
+        for (RevokedToken token : repository.findActive(now)) {
+            active.put(token.getJti(), token.getExpiresAt());
+        }
+        // Writers are rare, so swapping under the lock is cheap and no concurrent revoke is lost
+        synchronized (this) {
+            snapshot.expiries.forEach((jti, expiresAt) -> {
+                if (expiresAt.isAfter(now)) {
+                    active.putIfAbsent(jti, expiresAt);
+                }
+            });
+
+            Snapshot rebuilt = new Snapshot(Math.max(MIN_CAPACITY, active.size() * 2));
+            active.forEach(rebuilt::add);
+            snapshot = rebuilt;
+        }
+    }
+
+    public void startPeriodicRebuild(long intervalSeconds) {
+        rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-denylist-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuilder.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Token denylist rebuild failed", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        if (rebuilder != null) {
+            rebuilder.shutdownNow();
+        }
+    }
+
+    public int size() {
+        return snapshot.expiries.size();
+    }
+
+    private static class Snapshot {
+        private final BloomFilter filter;
+        private final Map<String, Instant> expiries = new ConcurrentHashMap<>();
+
+        private Snapshot(int capacity) {
+            this.filter = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        }
+
+        private void add(String jti, Instant expiresAt) {
+            // Exact entry first, so a concurrent reader that sees the filter bit also finds the entry
+            expiries.put(jti, expiresAt);
+            filter.add(jti);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package app.service;
+
+import app.entities.Author;
+import app.repository.AuthorRepository;
+import org.hibernate.Hibernate;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches author rows by normalized name and by id, so writes can reference an existing author
+ * without a lookup and filters and statistics can resolve ids to one shared name. Only rows read
+ * back from committed writes or queries are cached; new authors are created by the book
+ * repository inside the book's own transaction. Authors are never renamed or deleted, so entries
+ * never go stale, and each map keeps only the most recently used {@code maxSize} entries.
+ */
+public class AuthorCache {
+
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+
+    private final AuthorRepository authorRepository;
+    private final Map<String, Author> byNormalizedName;
+    private final Map<Long, Author> byId;
+
+    public AuthorCache(AuthorRepository authorRepository) {
+        this(authorRepository, DEFAULT_MAX_SIZE);
+    }
+
+    public AuthorCache(AuthorRepository authorRepository, int maxSize) {
+        this.authorRepository = authorRepository;
+        this.byNormalizedName = lru(maxSize);
+        this.byId = lru(maxSize);
+    }
+
+    /**
+     * The cached author for a name, or null; never queries. A book written with null resolves its
+     * author in the write transaction.
+     */
+    public Author cached(String name) {
+        return byNormalizedName.get(Author.normalize(name));
+    }
+
+    /**
+     * Looks up an existing author without creating one; null if no book was ever written by that name.
+     */
+    public Author find(String name) {
+        String normalizedName = Author.normalize(name);
+        Author cached = byNormalizedName.get(normalizedName);
+        if (cached != null) {
+            return cached;
+        }
+        Author existing = authorRepository.findByNormalizedName(normalizedName);
+        return existing != null ? remember(existing) : null;
+    }
+
+    /**
+     * Resolves the shared name of a book's author, the first spelling stored for it. The author may
+     * be an uninitialized proxy; only its id is read in that case.
+     */
+    public String nameOf(Author author) {
+        if (author == null) {
+            return null;
+        }
+        if (author.getId() == null) {
+            return author.getName();
+        }
+        Author cached = byId.get(author.getId());
+        if (cached != null) {
+            return cached.getName();
+        }
+        if (Hibernate.isInitialized(author)) {
+            return remember(author).getName();
+        }
+        Author loaded = authorRepository.findById(author.getId());
+        return loaded != null ? remember(loaded).getName() : null;
+    }
+
+    /**
+     * Caches an author read back from a committed write. Unsaved authors and uninitialized proxies
+     * are ignored.
+     */
+    public Author remember(Author author) {
+        if (author == null || author.getId() == null || !Hibernate.isInitialized(author)) {
+            return author;
+        }
+        Author canonical = byNormalizedName.putIfAbsent(author.getNormalizedName(), author);
+        if (canonical == null) {
+            canonical = author;
+        }
+        byId.putIfAbsent(canonical.getId(), canonical);
+        return canonical;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    private static <K> Map<K, Author> lru(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Author> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+}
@@ -0,0 +1,11 @@
+package app.service;
+
+import app.dto.BookChangeDTO;
+
+/**
+ * Notified by {@link BookService} after a book write has been committed.
+ */
+public interface BookChangeListener {
+
+    void onBookChanged(Long userId, BookChangeDTO change);
+}
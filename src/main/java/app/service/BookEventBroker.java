@@ -0,0 +1,172 @@
+package app.service;
+
+import app.dto.BookChangeDTO;
+import app.utils.RingBuffer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans out book changes to the owning user's open event streams.
+ * Publishing never blocks: each subscriber has its own bounded ring buffer, and a subscriber
+ * that falls behind has its backlog dropped and gets a single "resync" event, after which
+ * the client pulls what it missed from the change feed. Buffers are drained on a small
+ * dispatcher pool, so a slow socket never stalls the request thread that made the write.
+ */
+public class BookEventBroker implements BookChangeListener {
+
+    public static final String RESYNC_EVENT = "resync";
+
+    /**
+     * The transport behind one subscription, e.g. an SSE connection. Calls for one sink never overlap.
+     */
+    public interface EventSink {
+        void send(String event, Object data);
+
+        void heartbeat();
+
+        boolean isClosed();
+    }
+
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final int bufferSize;
+    private final long heartbeatNanos;
+    private final ExecutorService dispatcher;
+    private final ScheduledExecutorService heartbeats;
+
+    public BookEventBroker(int bufferSize, long heartbeatMillis, int dispatcherThreads) {
+        // Checked here so a bad setting fails at startup, not on the first subscribe
+        if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("SSE buffer size must be a positive power of two, was " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+        this.dispatcher = Executors.newFixedThreadPool(dispatcherThreads, daemon("sse-dispatcher"));
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(daemon("sse-heartbeat"));
+        this.heartbeats.scheduleAtFixedRate(this::scheduleHeartbeats, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Subscriber subscribe(Long userId, EventSink sink) {
+        Subscriber subscriber = new Subscriber(userId, sink, new RingBuffer<>(bufferSize));
+        subscribers.computeIfAbsent(userId, id -> new CopyOnWriteArrayList<>()).add(subscriber);
+        return subscriber;
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.userId, (id, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    public int subscriberCount() {
+        return subscribers.values().stream().mapToInt(List::size).sum();
+    }
+
+    @Override
+    public void onBookChanged(Long userId, BookChangeDTO change) {
+        List<Subscriber> targets = subscribers.get(userId);
+        if (targets == null) {
+            return;
+        }
+        for (Subscriber subscriber : targets) {
+            if (!subscriber.buffer.offer(change)) {
+                subscriber.overflowed.set(true);
+            }
+            schedule(subscriber);
+        }
+    }
+
+    public void shutdown() {
+        heartbeats.shutdownNow();
+        dispatcher.shutdownNow();
+    }
+
+    private void scheduleHeartbeats() {
+        long now = System.nanoTime();
+        for (List<Subscriber> list : subscribers.values()) {
+            for (Subscriber subscriber : list) {
+                if (now - subscriber.lastSentNanos >= heartbeatNanos) {
+                    subscriber.heartbeatDue.set(true);
+                    schedule(subscriber);
+                }
+            }
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            do {
+                if (subscriber.sink.isClosed()) {
+                    unsubscribe(subscriber);
+                    return;
+                }
+                if (subscriber.overflowed.getAndSet(false)) {
+                    while (subscriber.buffer.poll() != null) {
+                        // Drop the backlog; the client catches up from the change feed
+                    }
+                    subscriber.sink.send(RESYNC_EVENT, RESYNC_EVENT);
+                    subscriber.lastSentNanos = System.nanoTime();
+                }
+                BookChangeDTO change;
+                // Stop as soon as the buffer overflows, so a stale backlog is dropped rather than sent
+                while (!subscriber.overflowed.get() && (change = subscriber.buffer.poll()) != null) {
+                    subscriber.sink.send(change.getType().toLowerCase(), change);
+                    subscriber.lastSentNanos = System.nanoTime();
+                }
+                if (subscriber.heartbeatDue.getAndSet(false)) {
+                    subscriber.sink.heartbeat();
+                    subscriber.lastSentNanos = System.nanoTime();
+                }
+                subscriber.draining.set(false);
+                // Re-check: a producer may have offered after our last poll but before we released the flag
+            } while (hasWork(subscriber) && subscriber.draining.compareAndSet(false, true));
+        } catch (RuntimeException e) {
+            // A broken connection only affects its own subscription
+            subscriber.draining.set(false);
+            unsubscribe(subscriber);
+        }
+    }
+
+    private boolean hasWork(Subscriber subscriber) {
+        return !subscriber.buffer.isEmpty() || subscriber.overflowed.get() || subscriber.heartbeatDue.get();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public static class Subscriber {
+        private final Long userId;
+        private final EventSink sink;
+        private final RingBuffer<BookChangeDTO> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean overflowed = new AtomicBoolean();
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        private volatile long lastSentNanos = System.nanoTime();
+
+        private Subscriber(Long userId, EventSink sink, RingBuffer<BookChangeDTO> buffer) {
+            this.userId = userId;
+            this.sink = sink;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package app.service;
+
+import app.dto.BookDTO;
+import app.dto.ImportResultDTO;
+import app.entities.User;
+import app.exceptions.ApiException;
+import app.exceptions.BadRequestException;
+import app.exceptions.PayloadTooLargeException;
+import app.utils.CsvReader;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bulk import of books from an NDJSON or CSV request body.
+ * The body is read one row at a time and written in fixed-size batches, one transaction each,
+ * so memory use stays flat no matter how large the upload is. A bad row is counted and reported
+ * without aborting the import. An NDJSON line longer than the limit stops the import with 413,
+ * since it can only be skipped by reading it, and a body without line breaks is one such line.
+ */
+public class BookImportService {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+    public static final int DEFAULT_MAX_LINE_LENGTH = 64 * 1024;
+
+    private final BookService bookService;
+    private final ObjectReader bookReader;
+    private final int batchSize;
+    private int maxLineLength = DEFAULT_MAX_LINE_LENGTH;
+
+    public BookImportService(BookService bookService, ObjectMapper mapper, int batchSize) {
+        this.bookService = bookService;
+        this.bookReader = mapper.readerFor(BookDTO.class);
+        this.batchSize = batchSize;
+    }
+
+    public void setMaxLineLength(int maxLineLength) {
+        this.maxLineLength = maxLineLength;
+    }
+
+    public ImportResultDTO importBooks(InputStream body, Format format, User user) {
+        ImportResultDTO result = new ImportResultDTO();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        try {
+            if (format == Format.CSV) {
+                importCsv(reader, user, result);
+            } else {
+                importNdjson(reader, user, result);
+            }
+        } catch (IOException e) {
+            // Batches committed so far stay committed and are reported
+            addError(result, "import stopped: " + e.getMessage());
+        }
+        return result;
+    }
+
+    private void importNdjson(BufferedReader reader, User user, ImportResultDTO result) throws IOException {
+        Batch batch = new Batch();
+        StringBuilder buffer = new StringBuilder();
+        String line;
+        long lineNumber = 0;
+        while ((line = readLine(reader, buffer)) != null) {
+            lineNumber++;
+            if (line.length() > maxLineLength) {
+                flush(batch, user, result);
+                throw new PayloadTooLargeException(String.format(
+                        "Line %d is longer than %d characters; the import stopped there (books imported: %d)",
+                        lineNumber, maxLineLength, result.getImported()));
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                accept(batch, bookReader.readValue(line), lineNumber, user, result);
+            } catch (JsonProcessingException e) {
+                fail(result, lineNumber, "invalid JSON");
+            }
+        }
+        flush(batch, user, result);
+    }
+
+    /**
+     * Like {@link BufferedReader#readLine()}, but stops one character past the limit, so an
+     * over-long line is rejected without the rest of it ever being buffered. A trailing carriage
+     * return is kept; it is whitespace to the JSON parser.
+     */
+    private String readLine(BufferedReader reader, StringBuilder buffer) throws IOException {
+        buffer.setLength(0);
+        int c;
+        while ((c = reader.read()) != -1 && c != '\n') {
+            buffer.append((char) c);
+            if (buffer.length() > maxLineLength) {
+                break;
+            }
+        }
+        return c == -1 && buffer.length() == 0 ? null : buffer.toString();
+    }
+
+    private void importCsv(BufferedReader reader, User user, ImportResultDTO result) throws IOException {
+        CsvReader csv = new CsvReader(reader, maxLineLength);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            return;
+        }
+        int titleColumn = columnIndex(header, "title");
+        int authorColumn = columnIndex(header, "author");
+
+        Batch batch = new Batch();
+        long lineNumber = csv.getLine();
+        List<String> record;
+        while ((record = readRecord(csv, batch, user, result)) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                lineNumber = csv.getLine();
+                continue;
+            }
+            String title = titleColumn < record.size() ? record.get(titleColumn).trim() : null;
+            String author = authorColumn < record.size() ? record.get(authorColumn).trim() : null;
+            accept(batch, new BookDTO(title, author), lineNumber, user, result);
+            lineNumber = csv.getLine();
+        }
+        flush(batch, user, result);
+    }
+
+    // An over-long record stops the import like an over-long NDJSON line, after committing what came before
+    private List<String> readRecord(CsvReader csv, Batch batch, User user, ImportResultDTO result) throws IOException {
+        try {
+            return csv.readRecord();
+        } catch (BadRequestException e) {
+            flush(batch, user, result);
+            throw new BadRequestException(String.format("%s; the import stopped there (books imported: %d)",
+                    e.getMessage(), result.getImported()));
+        }
+    }
+
+    private void accept(Batch batch, BookDTO bookDTO, long lineNumber, User user, ImportResultDTO result) {
+        if (bookDTO == null) {
+            fail(result, lineNumber, "empty row");
+            return;
+        }
+        try {
+            BookService.validate(bookDTO);
+        } catch (ApiException e) {
+            fail(result, lineNumber, e.getMessage());
+            return;
+        }
+        batch.books.add(new BookDTO(null, bookDTO.getTitle(), bookDTO.getAuthor(), bookDTO.getTags()));
+        batch.lines.add(lineNumber);
+        if (batch.books.size() >= batchSize) {
+            flush(batch, user, result);
+        }
+    }
+
+    private void flush(Batch batch, User user, ImportResultDTO result) {
+        if (batch.books.isEmpty()) {
+            return;
+        }
+        try {
+            bookService.createBooks(batch.books, user);
+            result.setImported(result.getImported() + batch.books.size());
+            result.setBatches(result.getBatches() + 1);
+        } catch (RuntimeException e) {
+            // The batch rolled back as a whole; report the line range and keep going
+            result.setFailed(result.getFailed() + batch.books.size());
+            addError(result, String.format("lines %d-%d: batch failed: %s",
+                    batch.lines.get(0), batch.lines.get(batch.lines.size() - 1), e.getMessage()));
+        }
+        batch.reset();
+    }
+
+    private void fail(ImportResultDTO result, long lineNumber, String message) {
+        result.setFailed(result.getFailed() + 1);
+        addError(result, "line " + lineNumber + ": " + message);
+    }
+
+    private void addError(ImportResultDTO result, String error) {
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(error);
+        }
+    }
+
+    private int columnIndex(List<String> header, String name) {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().toLowerCase(Locale.ROOT).equals(name)) {
+                return i;
+            }
+        }
+        throw new BadRequestException("CSV header must contain a '" + name + "' column");
+    }
+
+    private static class Batch {
+        private List<BookDTO> books = new ArrayList<>();
+        private List<Long> lines = new ArrayList<>();
+
+        private void reset() {
+            books = new ArrayList<>();
+            lines = new ArrayList<>();
+        }
+    }
+}
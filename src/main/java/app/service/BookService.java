@@ -1,60 +1,451 @@
 package app.service;
 
+import app.dto.BookChangeDTO;
+import app.dto.BookChangesDTO;
 import app.dto.BookDTO;
+import app.dto.BookLookupDTO;
 import app.entities.Book;
+import app.entities.BookChange;
 import app.entities.User;
+import app.exceptions.BadRequestException;
+import app.exceptions.NotFoundException;
+import app.entities.Author;
+import app.repository.BookFields;
+import app.repository.BookQuery;
 import app.repository.BookRepository;
+import app.repository.BookWriteBatcher;
+import app.tracing.Span;
+import app.tracing.Tracer;
+import app.utils.Metrics;
+import app.utils.SingleFlight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class BookService {
 
+    private static final Logger log = LoggerFactory.getLogger(BookService.class);
+
+    private static final String BOOK_NOT_FOUND = "Book not found or does not belong to user";
+    private static final int CHANGES_PAGE_SIZE = 500;
+    private static final int TAG_FETCH_CHUNK = 1000;
+    // Tag matches up to this many are passed to the listing query as an id list
+    private static final int MAX_TAG_FILTER_IDS = 4096;
+    public static final int DEFAULT_MAX_LOOKUP_IDS = 100;
+
     private final BookRepository bookRepository;
+    private final AuthorCache authorCache;
+    private TagIndex tagIndex;
+    private final List<BookChangeListener> listeners = new CopyOnWriteArrayList<>();
+    // Tabs reconnecting together fire identical reads; they share one query instead of one each
+    private final SingleFlight<Long, List<BookDTO>> bookListLoads = new SingleFlight<>(
+            books -> books.stream().map(BookService::copyOf).toList());
+    private final SingleFlight<BookKey, BookDTO> bookLoads = new SingleFlight<>(BookService::copyOf);
+    private BookWriteBatcher writeBatcher;
+    private LibraryStats stats;
+    private int maxLookupIds = DEFAULT_MAX_LOOKUP_IDS;
+    private ScheduledExecutorService changeLogPruner;
 
-    public BookService(BookRepository bookRepository) {
+    public BookService(BookRepository bookRepository, AuthorCache authorCache) {
         this.bookRepository = bookRepository;
+        this.authorCache = authorCache;
+        this.tagIndex = new TagIndex(bookRepository);
+    }
+
+    public void addListener(BookChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    // Opt-in group commit: creates and updates are coalesced into shared transactions
+    public void setWriteBatcher(BookWriteBatcher writeBatcher) {
+        this.writeBatcher = writeBatcher;
+    }
+
+    public void setTagIndex(TagIndex tagIndex) {
+        this.tagIndex = tagIndex;
+    }
+
+    public void setStats(LibraryStats stats) {
+        this.stats = stats;
+    }
+
+    public void setMaxLookupIds(int maxLookupIds) {
+        this.maxLookupIds = maxLookupIds;
+    }
+
+    public void registerMetrics(Metrics metrics) {
+        metrics.register("singleflight.books.list.loads", bookListLoads::getLoads);
+        metrics.register("singleflight.books.list.coalesced", bookListLoads::getCoalesced);
+        metrics.register("singleflight.books.get.loads", bookLoads::getLoads);
+        metrics.register("singleflight.books.get.coalesced", bookLoads::getCoalesced);
     }
 
     public List<BookDTO> getAllBooksByUser(Long userId) {
-        return bookRepository.findByUserId(userId).stream()
-                .map(book -> new BookDTO(book.getId(), book.getTitle(), book.getAuthor()))
-                .collect(Collectors.toList());
+        try (Span span = Tracer.startSpan("BookService.getAllBooksByUser")) {
+            List<BookDTO> books = bookListLoads.execute(userId, () -> bookRepository.findByUserId(userId).stream()
+                    .map(this::toDTO)
+                    .collect(Collectors.toUnmodifiableList()));
+            span.setAttribute("books", books.size());
+            return books;
+        }
+    }
+
+    /**
+     * The user's books matching a tag filter. The filter runs against the in-memory tag index;
+     * only the matching rows are then fetched by id.
+     */
+    public List<BookDTO> getBooksByTags(Long userId, TagIndex.Filter filter) {
+        try (Span span = Tracer.startSpan("BookService.getBooksByTags")) {
+            List<Long> ids = tagIndex.query(userId, filter);
+            span.setAttribute("tags.matches", ids.size());
+            List<BookDTO> books = new ArrayList<>(ids.size());
+            for (int from = 0; from < ids.size(); from += TAG_FETCH_CHUNK) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + TAG_FETCH_CHUNK));
+                for (Book book : bookRepository.findByIdsAndUserId(chunk, userId)) {
+                    books.add(toDTO(book));
+                }
+            }
+            return books;
+        }
+    }
+
+    /**
+     * The user's books filtered, sorted and paged in the database, optionally narrowed further by
+     * a tag filter. The tag index resolves the filter to ids, which the query takes as one more
+     * condition, so a page still reads only its rows from the index.
+     */
+    public List<BookDTO> getBooks(Long userId, BookQuery query, TagIndex.Filter tagFilter) {
+        try (Span span = Tracer.startSpan("BookService.getBooks")) {
+            span.setAttribute("book.sort", query.getSort().name());
+            if (query.getAuthor() != null) {
+                Author author = authorCache.find(query.getAuthor());
+                if (author == null) {
+                    return List.of();
+                }
+                query.setAuthorId(author.getId());
+            }
+            if (tagFilter == null) {
+                return bookRepository.findByUserId(userId, query).stream()
+                        .map(this::toDTO)
+                        .collect(Collectors.toList());
+            }
+
+            List<Long> tagged = tagIndex.query(userId, tagFilter);
+            span.setAttribute("tags.matches", tagged.size());
+            if (tagged.isEmpty()) {
+                return List.of();
+            }
+            List<Book> books;
+            if (tagged.size() <= MAX_TAG_FILTER_IDS) {
+                query.setIds(tagged);
+                books = bookRepository.findByUserId(userId, query);
+            } else {
+                books = scanTagged(userId, query, new HashSet<>(tagged));
+            }
+            return books.stream()
+                    .map(this::toDTO)
+                    .collect(Collectors.toList());
+        }
     }
 
-    public BookDTO getBookById(Long bookId, Long userId) throws Exception {
-        Book book = bookRepository.findByIdAndUserId(bookId, userId);
-        if (book == null) {
-            throw new Exception("Book not found or does not belong to user");
+    /**
+     * For a tag filter matching too many books for an id list: walks the sorted listing a page at
+     * a time and keeps the matches, stopping once the requested page is complete. A filter this
+     * broad matches much of the library, so the walk seldom reads far past the page.
+     */
+    private List<Book> scanTagged(Long userId, BookQuery query, Set<Long> tagged) {
+        int wanted = query.getLimit() != null ? query.getOffset() + query.getLimit() : Integer.MAX_VALUE;
+        List<Book> matches = new ArrayList<>();
+        for (int offset = 0; matches.size() < wanted; offset += BookQuery.MAX_LIMIT) {
+            BookQuery page = new BookQuery(query.getAuthor(), query.getTitlePrefix(), query.getSort(),
+                    query.isDescending(), BookQuery.MAX_LIMIT, offset);
+            page.setAuthorId(query.getAuthorId());
+            page.setFields(query.getFields());
+            List<Book> books = bookRepository.findByUserId(userId, page);
+            for (Book book : books) {
+                if (matches.size() < wanted && tagged.contains(book.getId())) {
+                    matches.add(book);
+                }
+            }
+            if (books.size() < BookQuery.MAX_LIMIT) {
+                break;
+            }
+        }
+        return matches.subList(Math.min(query.getOffset(), matches.size()), matches.size());
+    }
+
+    public BookDTO getBookById(Long bookId, Long userId) {
+        try (Span span = Tracer.startSpan("BookService.getBookById")) {
+            span.setAttribute("book.id", bookId);
+            BookDTO book = bookLoads.execute(new BookKey(userId, bookId), () -> {
+                Book found = bookRepository.findByIdAndUserId(bookId, userId);
+                return found != null ? toDTO(found) : null;
+            });
+            if (book == null) {
+                throw new NotFoundException(BOOK_NOT_FOUND);
+            }
+            return book;
+        }
+    }
+
+    /**
+     * Loads only the requested fields; the others stay null in the returned DTO. Narrowed reads
+     * do not share a load with full ones, so they bypass the single-flight group.
+     */
+    public BookDTO getBookById(Long bookId, Long userId, BookFields fields) {
+        if (fields.isAll()) {
+            return getBookById(bookId, userId);
+        }
+        try (Span span = Tracer.startSpan("BookService.getBookById")) {
+            span.setAttribute("book.fields", fields.toString());
+            Book book = bookRepository.findByIdAndUserId(bookId, userId, fields);
+            if (book == null) {
+                throw new NotFoundException(BOOK_NOT_FOUND);
+            }
+            return toDTO(book);
+        }
+    }
+
+    /**
+     * Resolves many ids with one query. The result has one entry per distinct id, in request
+     * order; ids that do not exist or belong to someone else come back as not found.
+     */
+    public List<BookLookupDTO> getBooksByIds(Long userId, List<Long> ids, BookFields fields) {
+        try (Span span = Tracer.startSpan("BookService.getBooksByIds")) {
+            if (ids == null || ids.isEmpty()) {
+                throw new BadRequestException("At least one book ID is required");
+            }
+            Set<Long> distinct = new LinkedHashSet<>();
+            for (Long id : ids) {
+                if (id == null) {
+                    throw new BadRequestException("Invalid book ID");
+                }
+                distinct.add(id);
+            }
+            if (distinct.size() > maxLookupIds) {
+                throw new BadRequestException("At most " + maxLookupIds + " book IDs per lookup");
+            }
+            span.setAttribute("lookup.ids", distinct.size());
+
+            Map<Long, BookDTO> found = new HashMap<>();
+            for (Book book : bookRepository.findByIdsAndUserId(new ArrayList<>(distinct), userId, fields)) {
+                found.put(book.getId(), toDTO(book));
+            }
+            span.setAttribute("lookup.found", found.size());
+            List<BookLookupDTO> results = new ArrayList<>(distinct.size());
+            for (Long id : distinct) {
+                BookDTO book = found.get(id);
+                results.add(new BookLookupDTO(id, book, book == null ? BOOK_NOT_FOUND : null));
+            }
+            return results;
         }
-        return new BookDTO(book.getId(), book.getTitle(), book.getAuthor());
     }
 
     public BookDTO createBook(BookDTO bookDTO, User user) {
-        Book book = new Book(bookDTO.getTitle(), bookDTO.getAuthor(), user);
-        Book savedBook = bookRepository.save(book);
-        return new BookDTO(savedBook.getId(), savedBook.getTitle(), savedBook.getAuthor());
+        try (Span span = Tracer.startSpan("BookService.createBook")) {
+            Book book = newBook(bookDTO, user);
+            Book savedBook = writeBatcher != null ? Tracer.trace("batcher.write", () -> writeBatcher.write(book)) : bookRepository.save(book);
+            authorCache.remember(savedBook.getAuthor());
+            BookDTO created = toDTO(savedBook);
+            span.setAttribute("book.id", created.getId());
+            // Statistics count every spelling of an author under its shared name
+            if (stats != null) {
+                stats.booksCreated(user.getId(), authorCache.nameOf(savedBook.getAuthor()), 1);
+            }
+            tagIndex.bookSaved(user.getId(), created.getId(), created.getTags());
+            publish(user.getId(), BookChange.Type.CREATED, created.getId(), created.getTitle(), created.getAuthor());
+            return created;
+        }
+    }
+
+    /**
+     * Creates all books in one transaction, used by the bulk import.
+     */
+    public List<BookDTO> createBooks(List<BookDTO> bookDTOs, User user) {
+        try (Span span = Tracer.startSpan("BookService.createBooks")) {
+            span.setAttribute("books", bookDTOs.size());
+            List<Book> books = new ArrayList<>(bookDTOs.size());
+            for (BookDTO bookDTO : bookDTOs) {
+                books.add(newBook(bookDTO, user));
+            }
+
+            List<BookDTO> created = new ArrayList<>(books.size());
+            for (Book savedBook : bookRepository.saveAll(books)) {
+                authorCache.remember(savedBook.getAuthor());
+                BookDTO dto = toDTO(savedBook);
+                if (stats != null) {
+                    stats.booksCreated(user.getId(), authorCache.nameOf(savedBook.getAuthor()), 1);
+                }
+                tagIndex.bookSaved(user.getId(), dto.getId(), dto.getTags());
+                publish(user.getId(), BookChange.Type.CREATED, dto.getId(), dto.getTitle(), dto.getAuthor());
+                created.add(dto);
+            }
+            return created;
+        }
+    }
+
+    public BookDTO updateBook(Long bookId, BookDTO bookDTO, Long userId) {
+        try (Span span = Tracer.startSpan("BookService.updateBook")) {
+            span.setAttribute("book.id", bookId);
+            Book book = bookRepository.findByIdAndUserId(bookId, userId);
+            if (book == null) {
+                throw new NotFoundException(BOOK_NOT_FOUND);
+            }
+
+            String previousAuthor = authorCache.nameOf(book.getAuthor());
+            book.setTitle(bookDTO.getTitle());
+            if (book.getAuthorName() == null
+                    || !Author.normalize(book.getAuthorName()).equals(Author.normalize(bookDTO.getAuthor()))) {
+                book.setAuthor(authorCache.cached(bookDTO.getAuthor()));
+            }
+            book.setAuthorName(bookDTO.getAuthor());
+            // Clients that predate tags send none; keep what the book has instead of wiping it
+            if (bookDTO.getTags() != null) {
+                book.setTags(new HashSet<>(TagIndex.normalize(bookDTO.getTags())));
+            }
+            Book updatedBook = writeBatcher != null ? Tracer.trace("batcher.write", () -> writeBatcher.write(book)) : bookRepository.update(book);
+            authorCache.remember(updatedBook.getAuthor());
+            BookDTO updated = toDTO(updatedBook);
+            if (stats != null) {
+                stats.bookUpdated(previousAuthor, authorCache.nameOf(updatedBook.getAuthor()));
+            }
+            tagIndex.bookSaved(userId, updated.getId(), updated.getTags());
+            publish(userId, BookChange.Type.UPDATED, updated.getId(), updated.getTitle(), updated.getAuthor());
+
+            return updated;
+        }
+    }
+
+    public void deleteBook(Long bookId, Long userId) {
+        try (Span span = Tracer.startSpan("BookService.deleteBook")) {
+            span.setAttribute("book.id", bookId);
+            Book book = bookRepository.findByIdAndUserId(bookId, userId);
+            if (book == null) {
+                throw new NotFoundException(BOOK_NOT_FOUND);
+            }
+
+            bookRepository.delete(book);
+            if (stats != null) {
+                stats.bookDeleted(userId, authorCache.nameOf(book.getAuthor()));
+            }
+            tagIndex.bookDeleted(userId, bookId);
+            publish(userId, BookChange.Type.DELETED, bookId, null, null);
+        }
+    }
+
+    public BookChangesDTO getChangesSince(Long userId, Long cursor) {
+        try (Span span = Tracer.startSpan("BookService.getChangesSince")) {
+            // Fetch one extra row to tell the client whether it should keep paging
+            List<BookChange> changes = bookRepository.findChangesSince(userId, cursor, CHANGES_PAGE_SIZE + 1);
+            // Checked after the read: a prune that ran before it shows here, one that runs after cannot touch the page
+            if (cursor < bookRepository.getChangesPrunedThrough()) {
+                span.setAttribute("resync", true);
+                // Taken before the client reloads its list, so nothing committed in between is skipped
+                return new BookChangesDTO(List.of(), bookRepository.findLatestChangeId(userId), false, true);
+            }
+            boolean hasMore = changes.size() > CHANGES_PAGE_SIZE;
+            if (hasMore) {
+                changes = changes.subList(0, CHANGES_PAGE_SIZE);
+            }
+
+            List<BookChangeDTO> dtos = changes.stream()
+                    .map(change -> new BookChangeDTO(change.getId(), change.getType().name(), change.getBookId(),
+                            change.getTitle(), change.getAuthor(), change.getChangedAt().toString()))
+                    .collect(Collectors.toList());
+            Long nextCursor = changes.isEmpty() ? cursor : changes.get(changes.size() - 1).getId();
+            return new BookChangesDTO(dtos, nextCursor, hasMore);
+        }
+    }
+
+    /**
+     * Prunes change log entries older than the retention period every interval. Clients whose
+     * cursor falls behind the pruned part are told to resync.
+     */
+    public void startChangeLogPruning(Duration retention, long intervalSeconds) {
+        changeLogPruner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-log-prune");
+            thread.setDaemon(true);
+            return thread;
+        });
+        changeLogPruner.scheduleWithFixedDelay(() -> {
+            try {
+                int pruned = bookRepository.pruneChanges(Instant.now().minus(retention));
+                if (pruned > 0) {
+                    log.info("Pruned {} change log entries older than {}", pruned, retention);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Change log prune failed", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
     }
 
-    public BookDTO updateBook(Long bookId, BookDTO bookDTO, Long userId) throws Exception {
-        Book book = bookRepository.findByIdAndUserId(bookId, userId);
-        if (book == null) {
-            throw new Exception("Book not found or does not belong to user");
+    public void shutdown() {
+        if (changeLogPruner != null) {
+            changeLogPruner.shutdownNow();
         }
+    }
 
-        book.setTitle(bookDTO.getTitle());
-        book.setAuthor(bookDTO.getAuthor());
-        Book updatedBook = bookRepository.update(book);
+    // A cache miss leaves the author null; the repository then resolves it in the write transaction
+    private Book newBook(BookDTO bookDTO, User user) {
+        Book book = new Book(bookDTO.getTitle(), bookDTO.getAuthor(), user);
+        book.setAuthor(authorCache.cached(bookDTO.getAuthor()));
+        book.setTags(new HashSet<>(TagIndex.normalize(bookDTO.getTags())));
+        return book;
+    }
+
+    private BookDTO toDTO(Book book) {
+        List<String> tags = book.getTags() == null || book.getTags().isEmpty()
+                ? List.of()
+                : book.getTags().stream().sorted().toList();
+        return new BookDTO(book.getId(), book.getTitle(), book.getAuthorName(), tags);
+    }
 
-        return new BookDTO(updatedBook.getId(), updatedBook.getTitle(), updatedBook.getAuthor());
+    // Tags are already an unmodifiable list, so a shallow copy is enough
+    private static BookDTO copyOf(BookDTO book) {
+        return new BookDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getTags());
     }
 
-    public void deleteBook(Long bookId, Long userId) throws Exception {
-        Book book = bookRepository.findByIdAndUserId(bookId, userId);
-        if (book == null) {
-            throw new Exception("Book not found or does not belong to user");
+    private void publish(Long userId, BookChange.Type type, Long bookId, String title, String author) {
+        // Reads that started before this write must not be joined by callers arriving after it
+        bookListLoads.forget(userId);
+        bookLoads.forget(new BookKey(userId, bookId));
+
+        if (listeners.isEmpty()) {
+            return;
+        }
+        // Live events carry no cursor; clients resume from the change feed after a resync
+        BookChangeDTO change = new BookChangeDTO(null, type.name(), bookId, title, author, Instant.now().toString());
+        for (BookChangeListener listener : listeners) {
+            listener.onBookChanged(userId, change);
+        }
+    }
+
+    private record BookKey(Long userId, Long bookId) {
+    }
+
+    public static void validate(BookDTO bookDTO) {
+        if (bookDTO.getTitle() == null || bookDTO.getTitle().isEmpty()) {
+            throw new BadRequestException("Title is required");
+        }
+
+        if (bookDTO.getAuthor() == null || bookDTO.getAuthor().isEmpty()) {
+            throw new BadRequestException("Author is required");
         }
 
-        bookRepository.delete(book);
+        TagIndex.normalize(bookDTO.getTags());
     }
 }
\ No newline at end of file
@@ -0,0 +1,260 @@
+package app.service;
+
+import app.entities.IdempotencyRecord;
+import app.exceptions.BadRequestException;
+import app.exceptions.ConflictException;
+import app.exceptions.UnprocessableEntityException;
+import app.repository.IdempotencyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs a mutation at most once per {@code Idempotency-Key} and replays its first response to
+ * retries. Responses live in memory for the key's TTL and in the idempotency_keys table, which
+ * survives restarts and is shared with other instances. Concurrent duplicates on this instance
+ * wait for the in-flight request; on another instance they get a 409 until it completes.
+ * A request that fails releases its key, so the client can retry it. Once the action has
+ * succeeded the key is never released: the mutation commits in its own transaction, so a claim
+ * left incomplete, because its instance died or could not store the response, may stand for a
+ * committed write and blocks the key until it expires. A response that could not be stored is
+ * still returned and kept in memory for the key's TTL. Only the most recent stored responses are
+ * kept in memory; older ones are replayed from the table.
+ */
+public class IdempotencyStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final IdempotencyRepository repository;
+    private final ObjectMapper mapper;
+    private final Duration ttl;
+    private final long waitMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private ScheduledExecutorService sweeper;
+
+    public IdempotencyStore(IdempotencyRepository repository, ObjectMapper mapper, Duration ttl, long waitMillis) {
+        this.repository = repository;
+        this.mapper = mapper;
+        this.ttl = ttl;
+        this.waitMillis = waitMillis;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the stored response for the user's key, or runs the action and stores its result
+     * as the JSON body of a response with the given status.
+     */
+    public Response execute(Long userId, String key, String fingerprint, int status, Supplier<Object> action) {
+        String id = userId + ":" + validateKey(key);
+        while (true) {
+            Instant now = Instant.now();
+            Entry existing = entries.get(id);
+            if (existing != null) {
+                if (existing.expiresAt.isBefore(now)) {
+                    entries.remove(id, existing);
+                    continue;
+                }
+                checkFingerprint(existing.fingerprint, fingerprint);
+                replayed.increment();
+                return await(existing.response).asReplay();
+            }
+
+            Entry mine = new Entry(fingerprint, now.plus(ttl));
+            if (entries.putIfAbsent(id, mine) != null) {
+                continue;
+            }
+            try {
+                Response response = load(id, mine, status, action);
+                mine.response.complete(response);
+                // Waiters already hold the entry; later retries are served from the table
+                if (entries.size() > maxEntries && !mine.unstored) {
+                    entries.remove(id, mine);
+                }
+                return response;
+            } catch (RuntimeException | Error e) {
+                entries.remove(id, mine);
+                mine.response.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    private Response load(String id, Entry entry, int status, Supplier<Object> action) {
+        IdempotencyRecord stored = repository.findById(id);
+        IdempotencyRecord claim = new IdempotencyRecord(id, entry.fingerprint, entry.expiresAt);
+        if (stored != null && stored.getExpiresAt().isAfter(claim.getCreatedAt())) {
+            checkFingerprint(stored.getRequestHash(), entry.fingerprint);
+            if (stored.isCompleted()) {
+                replayed.increment();
+                return new Response(stored.getStatus(), stored.getBody(), true);
+            }
+            throw new ConflictException("A request with this " + HEADER + " is still in progress");
+        }
+        boolean claimed = stored != null ? repository.reclaim(claim) : repository.insert(claim);
+        if (!claimed) {
+            throw new ConflictException("A request with this " + HEADER + " is still in progress");
+        }
+
+        Object result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            try {
+                repository.delete(claim);
+            } catch (RuntimeException releaseFailure) {
+                e.addSuppressed(releaseFailure);
+            }
+            throw e;
+        }
+        executed.increment();
+
+        // The action has committed: from here on the claim is kept, whatever else fails
+        String body;
+        try {
+            body = mapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize response", e);
+        }
+        try {
+            repository.complete(claim, status, body);
+        } catch (RuntimeException e) {
+            log.warn("Could not store the response for idempotency key {}; replaying it from memory only", id, e);
+            entry.unstored = true;
+        }
+        return new Response(status, body, false);
+    }
+
+    public void sweep() {
+        Instant now = Instant.now();
+        entries.values().removeIf(entry -> entry.expiresAt.isBefore(now) && entry.response.isDone());
+        repository.deleteExpired(now);
+    }
+
+    public void startPeriodicSweep(long intervalSeconds) {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                sweep();
+            } catch (RuntimeException e) {
+                log.warn("Idempotency key sweep failed", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    public long getReplayed() {
+        return replayed.sum();
+    }
+
+    /**
+     * SHA-256 of the parts that identify a request, so a key reused for a different request is
+     * rejected instead of replaying an unrelated response.
+     */
+    public static String fingerprint(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update((part == null ? "" : part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String validateKey(String key) {
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH
+                || !key.chars().allMatch(c -> c >= 0x21 && c <= 0x7e)) {
+            throw new BadRequestException("Invalid " + HEADER + ": use 1 to " + MAX_KEY_LENGTH + " visible ASCII characters");
+        }
+        return key;
+    }
+
+    private static void checkFingerprint(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new UnprocessableEntityException(HEADER + " was already used for a different request");
+        }
+    }
+
+    private Response await(CompletableFuture<Response> future) {
+        try {
+            return future.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ConflictException("A request with this " + HEADER + " is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("A request with this " + HEADER + " is still in progress");
+        }
+    }
+
+    public record Response(int status, String body, boolean replayed) {
+
+        private Response asReplay() {
+            return replayed ? this : new Response(status, body, true);
+        }
+    }
+
+    private static class Entry {
+        private final String fingerprint;
+        private final Instant expiresAt;
+        private final CompletableFuture<Response> response = new CompletableFuture<>();
+        // The response is not in the table, so this entry is the only copy and is not evicted early
+        private volatile boolean unstored;
+
+        private Entry(String fingerprint, Instant expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
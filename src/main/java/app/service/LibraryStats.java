@@ -0,0 +1,121 @@
+package app.service;
+
+import app.dto.AuthorCountDTO;
+import app.dto.StatsDTO;
+import app.repository.BookRepository;
+import app.repository.UserRepository;
+import app.utils.SpaceSaving;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Library-wide statistics for the admin endpoints, kept in memory.
+ * The counters are seeded with one aggregate query each at startup and from then on updated by
+ * the service write paths, so serving them never scans the books table. Top authors come from a
+ * Space-Saving sketch and are approximate; each entry reports its maximum overcount.
+ */
+public class LibraryStats {
+
+    // Upper bounds of the books-per-user histogram buckets
+    private static final long[] BUCKET_BOUNDS = {0, 1, 10, 50, 100, 500};
+
+    private final LongAdder totalUsers = new LongAdder();
+    private final LongAdder totalBooks = new LongAdder();
+    private final Map<Long, AtomicLong> booksPerUser = new ConcurrentHashMap<>();
+    private final SpaceSaving topAuthors;
+
+    public LibraryStats(int trackedAuthors) {
+        this.topAuthors = new SpaceSaving(trackedAuthors);
+    }
+
+    public void seed(UserRepository userRepository, BookRepository bookRepository) {
+        totalUsers.add(userRepository.count());
+        for (Object[] row : bookRepository.countBooksPerUser()) {
+            long count = (Long) row[1];
+            booksPerUser.computeIfAbsent((Long) row[0], id -> new AtomicLong()).addAndGet(count);
+            totalBooks.add(count);
+        }
+        for (Object[] row : bookRepository.countBooksPerAuthor()) {
+            topAuthors.offer((String) row[0], (Long) row[1]);
+        }
+    }
+
+    public void userRegistered() {
+        totalUsers.increment();
+    }
+
+    public void booksCreated(Long userId, String author, int count) {
+        totalBooks.add(count);
+        booksPerUser.computeIfAbsent(userId, id -> new AtomicLong()).addAndGet(count);
+        topAuthors.offer(author, count);
+    }
+
+    public void bookUpdated(String previousAuthor, String author) {
+        if (!Objects.equals(previousAuthor, author)) {
+            // A book loaded without an author row has no previous author to take the count from
+            if (previousAuthor != null) {
+                topAuthors.decrement(previousAuthor, 1);
+            }
+            topAuthors.offer(author, 1);
+        }
+    }
+
+    public void bookDeleted(Long userId, String author) {
+        totalBooks.decrement();
+        AtomicLong count = booksPerUser.get(userId);
+        if (count != null) {
+            count.decrementAndGet();
+        }
+        topAuthors.decrement(author, 1);
+    }
+
+    public StatsDTO getStats() {
+        long users = totalUsers.sum();
+        long[] buckets = new long[BUCKET_BOUNDS.length + 1];
+        long usersWithBooks = 0;
+        for (AtomicLong count : booksPerUser.values()) {
+            long books = count.get();
+            if (books > 0) {
+                usersWithBooks++;
+                buckets[bucketOf(books)]++;
+            }
+        }
+        // Users that never created a book have no entry
+        buckets[0] = Math.max(0, users - usersWithBooks);
+
+        Map<String, Long> distribution = new LinkedHashMap<>();
+        distribution.put("0", buckets[0]);
+        for (int i = 1; i < BUCKET_BOUNDS.length; i++) {
+            long lower = BUCKET_BOUNDS[i - 1] + 1;
+            long upper = BUCKET_BOUNDS[i];
+            distribution.put(lower == upper ? String.valueOf(lower) : lower + "-" + upper, buckets[i]);
+        }
+        distribution.put((BUCKET_BOUNDS[BUCKET_BOUNDS.length - 1] + 1) + "+", buckets[BUCKET_BOUNDS.length]);
+
+        return new StatsDTO(users, totalBooks.sum(), distribution);
+    }
+
+    public List<AuthorCountDTO> getTopAuthors(int limit) {
+        List<AuthorCountDTO> authors = new ArrayList<>();
+        for (SpaceSaving.Entry entry : topAuthors.top(limit)) {
+            authors.add(new AuthorCountDTO(entry.getKey(), entry.getCount(), entry.getError()));
+        }
+        return authors;
+    }
+
+    private static int bucketOf(long books) {
+        for (int i = 1; i < BUCKET_BOUNDS.length; i++) {
+            if (books <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS.length;
+    }
+}
@@ -0,0 +1,273 @@
+package app.service;
+
+import app.exceptions.BadRequestException;
+import app.repository.BookRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Per-user bitmap index from tag to books. Each user's books get dense ordinals (0, 1, 2, ...) in
+ * load order, so a plain {@link BitSet} per tag stays as small as the user's library no matter how
+ * large the global book ids are, and a filter is a handful of word-wise AND/OR/ANDNOT operations.
+ * A user's index is loaded from the primary on first use and then kept current by
+ * {@link BookService} writes. A write is committed before it reaches the index, so one that finds
+ * no index yet is already in the load that creates it. Writes made by other instances are not
+ * seen, so an index is reloaded once it is older than the maximum age. Only the most recently
+ * queried users are kept. Deleted books leave holes; once holes outnumber live books the index
+ * is dropped and reloaded on the next query.
+ */
+public class TagIndex {
+
+    public static final int MAX_TAGS_PER_BOOK = 20;
+    private static final Pattern TAG = Pattern.compile("[a-z0-9][a-z0-9:_-]{0,31}");
+    private static final int MIN_COMPACTION_HOLES = 1024;
+    public static final int DEFAULT_MAX_USERS = 10_000;
+    public static final long DEFAULT_MAX_AGE_MILLIS = 300_000;
+
+    private final BookRepository bookRepository;
+    private final Map<Long, UserIndex> users = new ConcurrentHashMap<>();
+    private final int maxUsers;
+    private final long maxAgeNanos;
+
+    public TagIndex(BookRepository bookRepository) {
+        this(bookRepository, DEFAULT_MAX_USERS, DEFAULT_MAX_AGE_MILLIS);
+    }
+
+    public TagIndex(BookRepository bookRepository, int maxUsers, long maxAgeMillis) {
+        this.bookRepository = bookRepository;
+        this.maxUsers = maxUsers;
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+    }
+
+    /**
+     * Ids of the user's books matching the filter, in ascending order.
+     */
+    public List<Long> query(Long userId, Filter filter) {
+        UserIndex index = users.get(userId);
+        if (index == null) {
+            index = users.computeIfAbsent(userId, id -> new UserIndex());
+            evictIdlest();
+        }
+        synchronized (index) {
+            long now = System.nanoTime();
+            if (index.loaded && now - index.loadedAt >= maxAgeNanos) {
+                index.reset();
+            }
+            if (!index.loaded) {
+                index.loadedAt = now;
+                index.load(bookRepository.findTagsByUserId(userId));
+            }
+            index.lastUsed = now;
+            return index.query(filter);
+        }
+    }
+
+    // A scan, but only when a user's index is created, which costs a database load anyway
+    private void evictIdlest() {
+        while (users.size() > maxUsers) {
+            Map.Entry<Long, UserIndex> idlest = null;
+            for (Map.Entry<Long, UserIndex> entry : users.entrySet()) {
+                if (idlest == null || entry.getValue().lastUsed - idlest.getValue().lastUsed < 0) {
+                    idlest = entry;
+                }
+            }
+            if (idlest == null) {
+                return;
+            }
+            users.remove(idlest.getKey(), idlest.getValue());
+        }
+    }
+
+    public void bookSaved(Long userId, Long bookId, Collection<String> tags) {
+        UserIndex index = users.get(userId);
+        if (index == null) {
+            return;
+        }
+        // Waits for a load in progress, so a write that load missed is still applied afterwards
+        synchronized (index) {
+            if (index.loaded) {
+                index.put(bookId, tags);
+            }
+        }
+    }
+
+    public void bookDeleted(Long userId, Long bookId) {
+        UserIndex index = users.get(userId);
+        if (index == null) {
+            return;
+        }
+        synchronized (index) {
+            if (index.loaded) {
+                index.remove(bookId);
+            }
+        }
+    }
+
+    public int loadedUsers() {
+        return users.size();
+    }
+
+    /**
+     * Lower-cases and de-duplicates tags, rejecting any that are not short slugs.
+     */
+    public static List<String> normalize(Collection<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return List.of();
+        }
+        Set<String> normalized = new TreeSet<>();
+        for (String tag : tags) {
+            normalized.add(normalizeTag(tag));
+        }
+        if (normalized.size() > MAX_TAGS_PER_BOOK) {
+            throw new BadRequestException("A book can have at most " + MAX_TAGS_PER_BOOK + " tags");
+        }
+        return List.copyOf(normalized);
+    }
+
+    private static String normalizeTag(String tag) {
+        String normalized = tag == null ? "" : tag.trim().toLowerCase(Locale.ROOT);
+        if (!TAG.matcher(normalized).matches()) {
+            throw new BadRequestException("Invalid tag '" + tag + "': use up to 32 letters, digits, ':', '_' or '-'");
+        }
+        return normalized;
+    }
+
+    /**
+     * A conjunction of clauses, each an OR of tags, minus any excluded tag.
+     * {@code ?tags=fiction|poetry,unread&not=wishlist} means
+     * (fiction OR poetry) AND unread AND NOT wishlist, which covers any boolean combination
+     * written in conjunctive normal form.
+     */
+    public record Filter(List<List<String>> allOf, List<String> noneOf) {
+
+        public static Filter parse(String tags, String not) {
+            List<List<String>> allOf = new ArrayList<>();
+            if (tags != null && !tags.isBlank()) {
+                for (String clause : tags.split(",", -1)) {
+                    List<String> anyOf = new ArrayList<>();
+                    for (String tag : clause.split("\\|", -1)) {
+                        anyOf.add(normalizeTag(tag));
+                    }
+                    allOf.add(anyOf);
+                }
+            }
+            List<String> noneOf = new ArrayList<>();
+            if (not != null && !not.isBlank()) {
+                for (String tag : not.split(",", -1)) {
+                    noneOf.add(normalizeTag(tag));
+                }
+            }
+            return new Filter(allOf, noneOf);
+        }
+    }
+
+    private static class UserIndex {
+        private volatile long lastUsed = System.nanoTime();
+        private long loadedAt;
+        private boolean loaded;
+        private long[] bookIds = new long[16];
+        private int size;
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+        private final BitSet live = new BitSet();
+        private final Map<String, BitSet> byTag = new HashMap<>();
+
+        private void load(List<Object[]> rows) {
+            for (Object[] row : rows) {
+                Long bookId = ((Number) row[0]).longValue();
+                int ordinal = ordinalOf(bookId);
+                if (row[1] != null) {
+                    byTag.computeIfAbsent((String) row[1], tag -> new BitSet()).set(ordinal);
+                }
+            }
+            loaded = true;
+        }
+
+        private List<Long> query(Filter filter) {
+            BitSet result = (BitSet) live.clone();
+            for (List<String> anyOf : filter.allOf()) {
+                BitSet clause = new BitSet();
+                for (String tag : anyOf) {
+                    BitSet books = byTag.get(tag);
+                    if (books != null) {
+                        clause.or(books);
+                    }
+                }
+                result.and(clause);
+            }
+            for (String tag : filter.noneOf()) {
+                BitSet books = byTag.get(tag);
+                if (books != null) {
+                    result.andNot(books);
+                }
+            }
+
+            List<Long> ids = new ArrayList<>(result.cardinality());
+            for (int ordinal = result.nextSetBit(0); ordinal >= 0; ordinal = result.nextSetBit(ordinal + 1)) {
+                ids.add(bookIds[ordinal]);
+            }
+            ids.sort(null);
+            return ids;
+        }
+
+        private void put(Long bookId, Collection<String> tags) {
+            int ordinal = ordinalOf(bookId);
+            for (BitSet books : byTag.values()) {
+                books.clear(ordinal);
+            }
+            for (String tag : tags) {
+                byTag.computeIfAbsent(tag, t -> new BitSet()).set(ordinal);
+            }
+        }
+
+        private void remove(Long bookId) {
+            Integer ordinal = ordinals.remove(bookId);
+            if (ordinal == null) {
+                return;
+            }
+            live.clear(ordinal);
+            for (BitSet books : byTag.values()) {
+                books.clear(ordinal);
+            }
+            int holes = size - ordinals.size();
+            if (holes >= MIN_COMPACTION_HOLES && holes > ordinals.size()) {
+                reset();
+            }
+        }
+
+        private int ordinalOf(Long bookId) {
+            Integer existing = ordinals.get(bookId);
+            if (existing != null) {
+                return existing;
+            }
+            if (size == bookIds.length) {
+                bookIds = Arrays.copyOf(bookIds, size * 2);
+            }
+            int ordinal = size++;
+            bookIds[ordinal] = bookId;
+            ordinals.put(bookId, ordinal);
+            live.set(ordinal);
+            return ordinal;
+        }
+
+        private void reset() {
+            loaded = false;
+            bookIds = new long[16];
+            size = 0;
+            ordinals.clear();
+            live.clear();
+            byTag.clear();
+        }
+    }
+}
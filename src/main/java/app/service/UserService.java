@@ -3,30 +3,58 @@ package app.service;
 import app.dto.AuthResponseDTO;
 import app.dto.UserDTO;
 import app.entities.User;
+import app.exceptions.BadRequestException;
+import app.exceptions.UnauthorizedException;
 import app.repository.UserRepository;
 import app.security.JwtUtil;
 import app.security.PasswordUtil;
+import app.utils.Metrics;
+import app.utils.SingleFlight;
+import jakarta.persistence.EntityExistsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class UserService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+
     private final UserRepository userRepository;
+    // Every authenticated request resolves its user; concurrent lookups of one username share a query
+    private final SingleFlight<String, User> userLoads = new SingleFlight<>(UserService::copyOf);
+    // Stored hashes per bcrypt cost, seeded at startup and moved along by registrations and rehashes
+    private final Map<Integer, LongAdder> passwordCosts = new ConcurrentHashMap<>();
+    private final LongAdder rehashed = new LongAdder();
+    private LibraryStats stats;
+    private volatile Metrics metrics;
 
     public UserService(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
 
-    public UserDTO register(UserDTO userDTO) throws Exception {
-        // Check if username already exists
-        if (userRepository.existsByUsername(userDTO.getUsername())) {
-            throw new Exception("Username already exists");
-        }
+    public void setStats(LibraryStats stats) {
+        this.stats = stats;
+    }
 
+    public UserDTO register(UserDTO userDTO) {
         // Hash password
         String hashedPassword = PasswordUtil.hashPassword(userDTO.getPassword());
 
-        // Create new user
+        // Create new user; the unique index on lower(username) rejects a taken name in the same round trip
         User user = new User(userDTO.getUsername(), hashedPassword);
-        userRepository.save(user);
+        try {
+            userRepository.save(user);
+        } catch (EntityExistsException e) {
+            throw new BadRequestException("Username already exists");
+        }
+        userLoads.forget(user.getUsername());
+        countPasswordCost(PasswordUtil.costOf(hashedPassword), 1);
+        if (stats != null) {
+            stats.userRegistered();
+        }
 
         // Return response
         UserDTO response = new UserDTO(user.getUsername());
@@ -34,16 +62,21 @@ public class UserService {
         return response;
     }
 
-    public AuthResponseDTO login(UserDTO userDTO) throws Exception {
+    public AuthResponseDTO login(UserDTO userDTO) {
         // Find user by username
         User user = userRepository.findByUsername(userDTO.getUsername());
         if (user == null) {
-            throw new Exception("Invalid username or password");
+            throw new UnauthorizedException("Invalid username or password");
         }
 
         // Verify password
         if (!PasswordUtil.verifyPassword(userDTO.getPassword(), user.getPassword())) {
-            throw new Exception("Invalid username or password");
+            throw new UnauthorizedException("Invalid username or password");
+        }
+
+        // The plain password is only ever at hand here, so this is where old hashes move to the current cost
+        if (PasswordUtil.needsRehash(user.getPassword())) {
+            rehash(user, userDTO.getPassword());
         }
 
         // Generate JWT token
@@ -52,7 +85,70 @@ public class UserService {
         return new AuthResponseDTO(user.getUsername(), token);
     }
 
+    // Best effort: a failed rehash leaves the old hash in place and is retried on the next login.
+    // The user object is left as loaded; only the stored hash changes.
+    private void rehash(User user, String password) {
+        int oldCost = PasswordUtil.costOf(user.getPassword());
+        try {
+            String hashedPassword = PasswordUtil.hashPassword(password);
+            userRepository.updatePassword(user.getId(), hashedPassword);
+            userLoads.forget(user.getUsername());
+            countPasswordCost(oldCost, -1);
+            countPasswordCost(PasswordUtil.costOf(hashedPassword), 1);
+            rehashed.increment();
+        } catch (RuntimeException e) {
+            log.warn("Password rehash failed for user {}", user.getId(), e);
+        }
+    }
+
+    public void seedPasswordCosts() {
+        passwordCosts.clear();
+        for (Object[] row : userRepository.countByPasswordCost()) {
+            countPasswordCost(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+        }
+    }
+
+    private void countPasswordCost(int cost, long delta) {
+        if (cost < 0) {
+            return;
+        }
+        passwordCosts.computeIfAbsent(cost, key -> {
+            LongAdder count = new LongAdder();
+            if (metrics != null) {
+                metrics.register("users.password_cost." + key, count::sum);
+            }
+            return count;
+        }).add(delta);
+    }
+
+    public long getPasswordCostCount(int cost) {
+        LongAdder count = passwordCosts.get(cost);
+        return count != null ? count.sum() : 0;
+    }
+
+    public long getRehashed() {
+        return rehashed.sum();
+    }
+
     public User findByUsername(String username) {
-        return userRepository.findByUsername(username);
+        return userLoads.execute(username, () -> userRepository.findByUsername(username));
+    }
+
+    // The scalar columns only; a looked-up user's books are never loaded
+    private static User copyOf(User user) {
+        User copy = new User(user.getUsername(), user.getPassword());
+        copy.setId(user.getId());
+        copy.setRole(user.getRole());
+        return copy;
+    }
+
+    public void registerMetrics(Metrics metrics) {
+        metrics.register("singleflight.users.loads", userLoads::getLoads);
+        metrics.register("singleflight.users.coalesced", userLoads::getCoalesced);
+        metrics.register("users.password_cost.current", PasswordUtil::getCost);
+        metrics.register("users.password_rehashed", rehashed::sum);
+        // One gauge per cost seen so far; costs that show up later register themselves
+        this.metrics = metrics;
+        passwordCosts.forEach((cost, count) -> metrics.register("users.password_cost." + cost, count::sum));
     }
 }
\ No newline at end of file
@@ -0,0 +1,192 @@
+package app.tracing;
+
+import app.utils.RingBuffer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes kept traces to a local file, one OTLP/JSON {@code ExportTraceServiceRequest} per line,
+ * so they can be loaded offline into any OTLP-capable viewer (e.g. with the collector's
+ * otlpjsonfile receiver). Request threads only offer to a lock-free ring buffer; a background
+ * thread batches and writes. When the buffer is full, traces are dropped and counted rather
+ * than blocking requests.
+ */
+public class OtlpFileExporter implements Tracer.SpanExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(OtlpFileExporter.class);
+
+    private static final int STATUS_OK = 1;
+    private static final int STATUS_ERROR = 2;
+
+    private final Path file;
+    private final String serviceName;
+    private final RingBuffer<Trace> buffer;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LongAdder exported = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public OtlpFileExporter(Path file, String serviceName, int bufferSize, int maxBatchSize, long flushIntervalMillis) {
+        this.file = file;
+        this.serviceName = serviceName;
+        this.buffer = new RingBuffer<>(bufferSize);
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.writer = new Thread(this::run, "otlp-file-exporter");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void export(Trace trace) {
+        if (!buffer.offer(trace)) {
+            dropped.increment();
+        }
+    }
+
+    public long getExported() {
+        return exported.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public void shutdown() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Trace> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            drainInto(batch);
+            if (batch.size() < maxBatchSize) {
+                // Nothing urgent: let a batch build up instead of writing trace by trace
+                try {
+                    TimeUnit.NANOSECONDS.sleep(flushIntervalNanos);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                drainInto(batch);
+            }
+            write(batch);
+        }
+        // Flush what is left on shutdown; clear the interrupt so the file writes are not aborted
+        Thread.interrupted();
+        do {
+            batch.clear();
+            drainInto(batch);
+            write(batch);
+        } while (!batch.isEmpty());
+    }
+
+    private void drainInto(List<Trace> batch) {
+        Trace trace;
+        while (batch.size() < maxBatchSize && (trace = buffer.poll()) != null) {
+            batch.add(trace);
+        }
+    }
+
+    private void write(List<Trace> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            out.write(mapper.writeValueAsString(toOtlp(batch)));
+            out.newLine();
+            exported.add(batch.size());
+        } catch (IOException e) {
+            dropped.add(batch.size());
+            log.warn("Trace export to {} failed", file, e);
+        }
+        batch.clear();
+    }
+
+    private Map<String, Object> toOtlp(List<Trace> traces) {
+        List<Object> spans = new ArrayList<>();
+        for (Trace trace : traces) {
+            for (Span span : trace.getSpans()) {
+                spans.add(toOtlp(trace, span));
+            }
+        }
+        Map<String, Object> scopeSpans = new LinkedHashMap<>();
+        scopeSpans.put("scope", Map.of("name", "app.tracing"));
+        scopeSpans.put("spans", spans);
+
+        Map<String, Object> resourceSpans = new LinkedHashMap<>();
+        resourceSpans.put("resource", Map.of("attributes", List.of(attribute("service.name", serviceName))));
+        resourceSpans.put("scopeSpans", List.of(scopeSpans));
+        return Map.of("resourceSpans", List.of(resourceSpans));
+    }
+
+    private Map<String, Object> toOtlp(Trace trace, Span span) {
+        Map<String, Object> otlp = new LinkedHashMap<>();
+        otlp.put("traceId", trace.getTraceId());
+        otlp.put("spanId", span.getSpanId());
+        if (span.getParentSpanId() != null) {
+            otlp.put("parentSpanId", span.getParentSpanId());
+        }
+        otlp.put("name", span.getName());
+        otlp.put("kind", span.getKind());
+        // 64-bit integers are strings in OTLP/JSON
+        otlp.put("startTimeUnixNano", Long.toString(span.getStartNanos()));
+        otlp.put("endTimeUnixNano", Long.toString(span.getEndNanos()));
+
+        List<Object> attributes = new ArrayList<>();
+        if (span.getAttributes() != null) {
+            span.getAttributes().forEach((key, value) -> attributes.add(attribute(key, value)));
+        }
+        if (span.getParent() == null && trace.getDroppedSpans() > 0) {
+            attributes.add(attribute("trace.dropped_spans", trace.getDroppedSpans()));
+        }
+        otlp.put("attributes", attributes);
+
+        if (span.getErrorMessage() != null) {
+            otlp.put("status", Map.of("code", STATUS_ERROR, "message", span.getErrorMessage()));
+        } else {
+            otlp.put("status", Map.of("code", STATUS_OK));
+        }
+        return otlp;
+    }
+
+    private static Map<String, Object> attribute(String key, Object value) {
+        Map<String, Object> typed;
+        if (value instanceof Integer || value instanceof Long) {
+            typed = Map.of("intValue", value.toString());
+        } else if (value instanceof Boolean) {
+            typed = Map.of("boolValue", value);
+        } else if (value instanceof Number) {
+            typed = Map.of("doubleValue", value);
+        } else {
+            typed = Map.of("stringValue", value.toString());
+        }
+        Map<String, Object> attribute = new LinkedHashMap<>();
+        attribute.put("key", key);
+        attribute.put("value", typed);
+        return attribute;
+    }
+}
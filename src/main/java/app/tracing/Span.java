@@ -0,0 +1,112 @@
+package app.tracing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One timed operation within a trace. Spans are created and ended on the thread that handles the
+ * request, so they need no synchronization. Use with try-with-resources; {@link #NOOP} is handed
+ * out when no trace is active, which makes instrumentation free outside traced requests.
+ */
+public class Span implements AutoCloseable {
+
+    public static final Span NOOP = new Span(null, null, null, null, 0);
+
+    static final int KIND_INTERNAL = 1;
+    static final int KIND_SERVER = 2;
+
+    private final Trace trace;
+    private final String spanId;
+    private final Span parent;
+    private String name;
+    private final long startNanos;
+    private long endNanos;
+    private int kind = KIND_INTERNAL;
+    private String errorMessage;
+    private Map<String, Object> attributes;
+
+    Span(Trace trace, String spanId, Span parent, String name, long startNanos) {
+        this.trace = trace;
+        this.spanId = spanId;
+        this.parent = parent;
+        this.name = name;
+        this.startNanos = startNanos;
+    }
+
+    public Span setAttribute(String key, Object value) {
+        if (trace != null && value != null) {
+            if (attributes == null) {
+                attributes = new LinkedHashMap<>();
+            }
+            attributes.put(key, value);
+        }
+        return this;
+    }
+
+    public void recordError(Throwable error) {
+        setError(error.getClass().getSimpleName() + ": " + error.getMessage());
+    }
+
+    void setError(String message) {
+        if (trace != null) {
+            errorMessage = message;
+            trace.markError();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (trace != null && endNanos == 0) {
+            endNanos = Tracer.nowNanos();
+            Tracer.ended(this);
+        }
+    }
+
+    void setName(String name) {
+        this.name = name;
+    }
+
+    void setKind(int kind) {
+        this.kind = kind;
+    }
+
+    Trace getTrace() {
+        return trace;
+    }
+
+    Span getParent() {
+        return parent;
+    }
+
+    String getSpanId() {
+        return spanId;
+    }
+
+    String getParentSpanId() {
+        return parent != null ? parent.spanId : trace.getRemoteParentSpanId();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    long getEndNanos() {
+        return endNanos;
+    }
+
+    int getKind() {
+        return kind;
+    }
+
+    String getErrorMessage() {
+        return errorMessage;
+    }
+
+    Map<String, Object> getAttributes() {
+        return attributes;
+    }
+}
@@ -0,0 +1,57 @@
+package app.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * All spans of one request, collected in process until the root span ends and the tail sampler
+ * decides whether the trace is kept.
+ */
+public class Trace {
+
+    // A bulk import can open thousands of spans; keep the first ones and count the rest
+    static final int MAX_SPANS = 512;
+
+    private final String traceId;
+    private final String remoteParentSpanId;
+    private final List<Span> spans = new ArrayList<>();
+    private int droppedSpans;
+    private boolean error;
+
+    Trace(String traceId, String remoteParentSpanId) {
+        this.traceId = traceId;
+        this.remoteParentSpanId = remoteParentSpanId;
+    }
+
+    void add(Span span) {
+        if (spans.size() < MAX_SPANS) {
+            spans.add(span);
+        } else {
+            droppedSpans++;
+        }
+    }
+
+    void markError() {
+        error = true;
+    }
+
+    String getTraceId() {
+        return traceId;
+    }
+
+    String getRemoteParentSpanId() {
+        return remoteParentSpanId;
+    }
+
+    List<Span> getSpans() {
+        return spans;
+    }
+
+    int getDroppedSpans() {
+        return droppedSpans;
+    }
+
+    boolean hasError() {
+        return error;
+    }
+}
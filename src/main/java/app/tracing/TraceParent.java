@@ -0,0 +1,44 @@
+package app.tracing;
+
+/**
+ * W3C trace context header: {@code 00-<32 hex trace id>-<16 hex parent span id>-<2 hex flags>}.
+ */
+record TraceParent(String traceId, String spanId) {
+
+    private static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
+    private static final String INVALID_SPAN_ID = "0000000000000000";
+
+    static TraceParent parse(String header) {
+        if (header == null) {
+            return null;
+        }
+        String[] parts = header.trim().split("-");
+        if (parts.length < 4 || parts[0].length() != 2 || parts[0].equals("ff")) {
+            return null;
+        }
+        String traceId = parts[1];
+        String spanId = parts[2];
+        if (!isHex(traceId, 32) || !isHex(spanId, 16) || !isHex(parts[3], 2)
+                || traceId.equals(INVALID_TRACE_ID) || spanId.equals(INVALID_SPAN_ID)) {
+            return null;
+        }
+        return new TraceParent(traceId, spanId);
+    }
+
+    static String format(String traceId, String spanId) {
+        return "00-" + traceId + "-" + spanId + "-01";
+    }
+
+    private static boolean isHex(String value, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,125 @@
+package app.tracing;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Entry point for span instrumentation. The current span lives in a thread local, so any layer
+ * can open a child span without passing context around. Sampling is tail-based: a trace is only
+ * handed to the exporter once its root span has ended, and only if it errored, was slower than
+ * the threshold, or won the random baseline sample.
+ */
+public class Tracer {
+
+    // Maps System.nanoTime() onto the wall clock once, so spans get monotonic, epoch-based timestamps
+    private static final long EPOCH_OFFSET_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime();
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private static volatile SpanExporter exporter;
+    private static volatile long slowThresholdNanos;
+    private static volatile double sampleRate;
+
+    public interface SpanExporter {
+        void export(Trace trace);
+    }
+
+    public static void configure(SpanExporter spanExporter, long slowThresholdMillis, double baselineSampleRate) {
+        slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        sampleRate = baselineSampleRate;
+        exporter = spanExporter;
+    }
+
+    /**
+     * Starts the root span of a request, continuing the caller's trace when a valid W3C
+     * traceparent header is given.
+     */
+    public static Span startTrace(String name, String traceparent) {
+        if (exporter == null) {
+            return Span.NOOP;
+        }
+        TraceParent parent = TraceParent.parse(traceparent);
+        Trace trace = parent != null
+                ? new Trace(parent.traceId(), parent.spanId())
+                : new Trace(randomHex(16), null);
+        Span root = new Span(trace, randomHex(8), null, name, nowNanos());
+        root.setKind(Span.KIND_SERVER);
+        CURRENT.set(root);
+        return root;
+    }
+
+    public static Span startSpan(String name) {
+        Span parent = CURRENT.get();
+        if (parent == null) {
+            return Span.NOOP;
+        }
+        Span span = new Span(parent.getTrace(), randomHex(8), parent, name, nowNanos());
+        CURRENT.set(span);
+        return span;
+    }
+
+    /**
+     * Runs the call in a child span and records any exception on it.
+     */
+    public static <T> T trace(String name, Supplier<T> call) {
+        Span span = startSpan(name);
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            span.recordError(e);
+            throw e;
+        } finally {
+            span.close();
+        }
+    }
+
+    public static Span currentSpan() {
+        Span span = CURRENT.get();
+        return span != null ? span : Span.NOOP;
+    }
+
+    /**
+     * The traceparent header value that identifies the current span, for passing on to a downstream call.
+     */
+    public static String currentTraceparent() {
+        Span span = CURRENT.get();
+        return span == null ? null : TraceParent.format(span.getTrace().getTraceId(), span.getSpanId());
+    }
+
+    static void ended(Span span) {
+        Trace trace = span.getTrace();
+        trace.add(span);
+        CURRENT.set(span.getParent());
+        if (span.getParent() == null) {
+            CURRENT.remove();
+            SpanExporter current = exporter;
+            if (current != null && keep(trace, span)) {
+                current.export(trace);
+            }
+        }
+    }
+
+    static long nowNanos() {
+        return System.nanoTime() + EPOCH_OFFSET_NANOS;
+    }
+
+    private static boolean keep(Trace trace, Span root) {
+        return trace.hasError()
+                || root.getEndNanos() - root.getStartNanos() >= slowThresholdNanos
+                || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private static String randomHex(int bytes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder hex = new StringBuilder(bytes * 2);
+        for (int i = 0; i < bytes; i++) {
+            int b = random.nextInt(256);
+            hex.append(Character.forDigit(b >> 4, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        String id = hex.toString();
+        // All-zero ids are invalid in W3C trace context
+        return id.chars().allMatch(c -> c == '0') ? randomHex(bytes) : id;
+    }
+}
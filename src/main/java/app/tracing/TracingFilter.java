@@ -0,0 +1,59 @@
+package app.tracing;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+/**
+ * Opens the server span for each API request and closes it once the response status is known.
+ */
+public class TracingFilter {
+
+    private static final String SPAN_ATTRIBUTE = "tracing.span";
+
+    // Register first, so authentication and load shedding run inside the root span
+    public void registerRoutes(Javalin app) {
+        app.before(this::begin);
+        app.after(this::end);
+    }
+
+    private void begin(Context ctx) {
+        // Event streams stay open for minutes and would always look slow
+        if (!ctx.path().startsWith("/api/") || ctx.path().equals("/api/books/stream")) {
+            return;
+        }
+        Span root = Tracer.startTrace(ctx.method().name() + " " + ctx.path(), ctx.header("traceparent"));
+        if (root == Span.NOOP) {
+            return;
+        }
+        root.setAttribute("http.request.method", ctx.method().name());
+        root.setAttribute("url.path", ctx.path());
+        ctx.attribute(SPAN_ATTRIBUTE, root);
+    }
+
+    private void end(Context ctx) {
+        Span root = ctx.attribute(SPAN_ATTRIBUTE);
+        if (root == null) {
+            return;
+        }
+        String route = route(ctx);
+        if (route != null) {
+            root.setName(ctx.method().name() + " " + route);
+            root.setAttribute("http.route", route);
+        }
+        int status = ctx.statusCode();
+        root.setAttribute("http.response.status_code", status);
+        if (status >= 500 && root.getErrorMessage() == null) {
+            root.setError("HTTP " + status);
+        }
+        root.close();
+    }
+
+    private String route(Context ctx) {
+        try {
+            String route = ctx.endpointHandlerPath();
+            return route != null && route.startsWith("/") ? route : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
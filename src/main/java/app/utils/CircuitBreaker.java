@@ -0,0 +1,168 @@
+package app.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Failure-rate circuit breaker. While closed, the outcomes of the last {@code windowSize} calls are
+ * kept; once at least {@code minimumCalls} are in and the share of failures reaches the threshold,
+ * the circuit opens and every call is refused without touching the dependency. After the open
+ * period it goes half-open and admits up to {@code probes} concurrent calls: that many successes
+ * close it again, a single failure reopens it. While closed, calls are recorded with atomics only;
+ * the lock is taken for state changes and half-open probes.
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    // Ordered so the ordinal works as a gauge: 0 closed, 1 half-open, 2 open
+    public enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    /**
+     * What {@link #acquire()} granted; passed back to {@link #release} with the call's outcome.
+     */
+    public enum Permit {
+        REJECTED,
+        CALL,
+        PROBE
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int probes;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    // Written under this; replaced on close, so a new closed period starts with an empty window
+    private volatile State state = State.CLOSED;
+    private volatile Window window;
+    // Guarded by this
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openMillis, int probes) {
+        this.windowSize = windowSize;
+        this.window = new Window(windowSize);
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.probes = probes;
+    }
+
+    public Permit acquire() {
+        // Closed is the common case and needs no lock
+        if (state == State.CLOSED) {
+            return Permit.CALL;
+        }
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return Permit.CALL;
+            }
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+                probesInFlight = 0;
+                probeSuccesses = 0;
+            }
+            if (state == State.HALF_OPEN && probesInFlight < probes) {
+                probesInFlight++;
+                return Permit.PROBE;
+            }
+        }
+        rejected.increment();
+        return Permit.REJECTED;
+    }
+
+    /**
+     * Records the outcome of a call admitted by {@link #acquire()}. Calls admitted before the
+     * circuit changed state are ignored, so a slow straggler cannot close or reopen it.
+     */
+    public void release(Permit permit, boolean failed) {
+        if (permit == Permit.PROBE) {
+            releaseProbe(failed);
+        } else if (permit == Permit.CALL && state == State.CLOSED) {
+            Window current = window;
+            if (current.record(failed)) {
+                synchronized (this) {
+                    // Another call may have opened it already, or it reopened and closed since
+                    if (state == State.CLOSED && window == current) {
+                        open();
+                    }
+                }
+            }
+        }
+    }
+
+    private synchronized void releaseProbe(boolean failed) {
+        probesInFlight--;
+        if (state != State.HALF_OPEN) {
+            return;
+        }
+        if (failed) {
+            open();
+        } else if (++probeSuccesses >= probes) {
+            close();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        opened.increment();
+        log.warn("Circuit breaker opened, refusing calls for {} ms", TimeUnit.NANOSECONDS.toMillis(openNanos));
+    }
+
+    private void close() {
+        window = new Window(windowSize);
+        state = State.CLOSED;
+        log.info("Circuit breaker closed");
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getOpened() {
+        return opened.sum();
+    }
+
+    /**
+     * Outcomes of the last calls of one closed period, 1 for a failure. Each call swaps its outcome
+     * into the next slot, so the failure count always matches the slots it overwrote.
+     */
+    private class Window {
+        private final AtomicIntegerArray outcomes;
+        private final AtomicLong next = new AtomicLong();
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private Window(int size) {
+            this.outcomes = new AtomicIntegerArray(size);
+        }
+
+        // True if the failure rate has reached the threshold
+        private boolean record(boolean failed) {
+            long index = next.getAndIncrement();
+            int outcome = failed ? 1 : 0;
+            int replaced = outcomes.getAndSet((int) (index % outcomes.length()), outcome);
+            int failing = failures.addAndGet(outcome - replaced);
+            long calls = Math.min(index + 1, outcomes.length());
+            return calls >= minimumCalls && failing >= failureRateThreshold * calls;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package app.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Named counters and gauges for the admin metrics endpoint. Components keep their own counters
+ * and register a supplier here, so reading a metric costs nothing on the hot path.
+ */
+public class Metrics {
+
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public void register(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+}
@@ -0,0 +1,66 @@
+package app.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring buffer for many producers and a single consumer.
+ * Producers claim a slot with a CAS on the tail and then publish into it; {@link #offer}
+ * returns false instead of blocking when the buffer is full.
+ */
+public class RingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    public RingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two, was " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    public boolean offer(T item) {
+        while (true) {
+            long t = tail.get();
+            if (t - head.get() >= slots.length()) {
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.set((int) (t & mask), item);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the next item, or null when the buffer is empty or the next slot is claimed but
+     * not yet published. Must only be called from one thread at a time.
+     */
+    public T poll() {
+        long h = head.get();
+        int index = (int) (h & mask);
+        T item = slots.get(index);
+        if (item == null) {
+            return null;
+        }
+        slots.set(index, null);
+        head.set(h + 1);
+        return item;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+}
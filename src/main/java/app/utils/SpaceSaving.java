@@ -0,0 +1,153 @@
+package app.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving top-K sketch (Metwally et al.). Tracks at most {@code capacity} keys; when a new key
+ * arrives and the sketch is full, it replaces the key with the smallest count and inherits that
+ * count as its error bound. Any key whose true count exceeds total/capacity is guaranteed to be tracked.
+ * <p>
+ * The tracked entries form a binary min-heap on count, with each entry knowing its heap slot, so
+ * finding the smallest is free and every update costs O(log capacity) rather than a scan.
+ */
+public class SpaceSaving {
+
+    private final int capacity;
+    private final Map<String, Entry> entries = new HashMap<>();
+    // Min-heap on count; heap[0] is the eviction candidate
+    private Entry[] heap;
+    private int size;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1, was " + capacity);
+        }
+        this.capacity = capacity;
+        this.heap = new Entry[Math.min(capacity, 64)];
+    }
+
+    public synchronized void offer(String key, long count) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.count += count;
+            siftDown(entry.slot);
+            return;
+        }
+        if (size < capacity) {
+            entry = new Entry(key, count, 0);
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, Math.min(capacity, size * 2));
+            }
+            entries.put(key, entry);
+            place(entry, size++);
+            siftUp(entry.slot);
+            return;
+        }
+        Entry min = heap[0];
+        entries.remove(min.key);
+        entry = new Entry(key, min.count + count, min.count);
+        entries.put(key, entry);
+        place(entry, 0);
+        siftDown(0);
+    }
+
+    // Best effort: only keys that are currently tracked can be decremented
+    public synchronized void decrement(String key, long count) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return;
+        }
+        entry.count -= count;
+        if (entry.count > 0) {
+            siftUp(entry.slot);
+            return;
+        }
+        entries.remove(key);
+        int slot = entry.slot;
+        Entry last = heap[--size];
+        heap[size] = null;
+        if (slot < size) {
+            place(last, slot);
+            siftDown(slot);
+            siftUp(last.slot);
+        }
+    }
+
+    public synchronized List<Entry> top(int limit) {
+        List<Entry> snapshot = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Entry entry = heap[i];
+            snapshot.add(new Entry(entry.key, entry.count, entry.error));
+        }
+        snapshot.sort(Comparator.comparingLong((Entry entry) -> entry.count).reversed());
+        return snapshot.subList(0, Math.min(limit, snapshot.size()));
+    }
+
+    private void siftUp(int slot) {
+        Entry entry = heap[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (heap[parent].count <= entry.count) {
+                break;
+            }
+            place(heap[parent], slot);
+            slot = parent;
+        }
+        place(entry, slot);
+    }
+
+    private void siftDown(int slot) {
+        Entry entry = heap[slot];
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (entry.count <= heap[child].count) {
+                break;
+            }
+            place(heap[child], slot);
+            slot = child;
+        }
+        place(entry, slot);
+    }
+
+    private void place(Entry entry, int slot) {
+        heap[slot] = entry;
+        entry.slot = slot;
+    }
+
+    public static class Entry {
+        private final String key;
+        private long count;
+        private final long error;
+        private int slot;
+
+        private Entry(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        // Upper bound on how much the count may be overestimated
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -23,4 +23,21 @@ public class Utils {
             throw new ApiException(500, String.format("Could not read property %s.", propName));
         }
     }
-}
\ No newline at end of file
+
+    public static String getEnv(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isBlank() ? value.trim() : defaultValue;
+    }
+
+    public static int getEnvInt(String name, int defaultValue) {
+        String value = getEnv(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException(String.format("Environment variable %s must be an integer, was '%s'", name, value));
+        }
+    }
+}
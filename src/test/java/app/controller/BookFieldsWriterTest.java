@@ -0,0 +1,32 @@
+package app.controller;
+
+import app.dto.BookDTO;
+import app.repository.BookFields;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookFieldsWriterTest {
+
+    @Test
+    @DisplayName("Writer should keep only the requested properties and leave the shared mapper alone")
+    void testWrite() throws Exception {
+        // Arrange
+        ObjectMapper mapper = new ObjectMapper();
+        BookFieldsWriter writer = new BookFieldsWriter(mapper);
+        BookDTO book = new BookDTO(1L, "Dune", "Frank Herbert", List.of("scifi"));
+
+        // Act
+        String narrowed = writer.write(List.of(book), BookFields.parse("id,title"));
+        String full = writer.write(book, BookFields.ALL);
+
+        // Assert
+        assertEquals("[{\"id\":1,\"title\":\"Dune\"}]", narrowed);
+        assertEquals("{\"id\":1,\"title\":\"Dune\",\"author\":\"Frank Herbert\",\"tags\":[\"scifi\"]}", full);
+        assertEquals(full, mapper.writeValueAsString(book));
+    }
+}
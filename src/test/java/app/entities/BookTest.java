@@ -19,7 +19,7 @@ class BookTest {
         // Assert
         assertNotNull(book);
         assertEquals("The Hobbit", book.getTitle());
-        assertEquals("J.R.R. Tolkien", book.getAuthor());
+        assertEquals("J.R.R. Tolkien", book.getAuthorName());
         assertEquals(user, book.getUser());
     }
 
@@ -33,16 +33,28 @@ class BookTest {
         // Act
         book.setId(1L);
         book.setTitle("1984");
-        book.setAuthor("George Orwell");
+        book.setAuthorName("George Orwell");
         book.setUser(user);
 
         // Assert
         assertEquals(1L, book.getId());
         assertEquals("1984", book.getTitle());
-        assertEquals("George Orwell", book.getAuthor());
+        assertEquals("George Orwell", book.getAuthorName());
         assertEquals(user, book.getUser());
     }
 
+    @Test
+    @DisplayName("Author should normalize case and whitespace but keep the display name")
+    void testAuthorNormalization() {
+        // Act
+        Author author = new Author("  J.R.R.   Tolkien ");
+
+        // Assert
+        assertEquals("J.R.R.   Tolkien", author.getName());
+        assertEquals("j.r.r. tolkien", author.getNormalizedName());
+        assertEquals(author.getNormalizedName(), Author.normalize("j.r.r. TOLKIEN"));
+    }
+
     @Test
     @DisplayName("Book should maintain relationship with user")
     void testUserRelationship() {
@@ -0,0 +1,43 @@
+package app.exceptions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiExceptionTest {
+
+    @Test
+    @DisplayName("Typed exceptions should carry their HTTP status code")
+    void testStatusCodes() {
+        // Assert
+        assertEquals(400, new BadRequestException("bad").getCode());
+        assertEquals(401, new UnauthorizedException("unauthorized").getCode());
+        assertEquals(403, new ForbiddenException("forbidden").getCode());
+        assertEquals(404, new NotFoundException("not found").getCode());
+        assertEquals(413, new PayloadTooLargeException("too large").getCode());
+    }
+
+    @Test
+    @DisplayName("Typed exceptions should not capture a stack trace")
+    void testStackless() {
+        // Act
+        NotFoundException exception = new NotFoundException("Book not found or does not belong to user");
+
+        // Assert
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals("Book not found or does not belong to user", exception.getMessage());
+        assertInstanceOf(ApiException.class, exception);
+    }
+
+    @Test
+    @DisplayName("Plain ApiException should keep its stack trace")
+    void testApiExceptionKeepsStackTrace() {
+        // Act
+        ApiException exception = new ApiException(500, "Server error");
+
+        // Assert
+        assertTrue(exception.getStackTrace().length > 0);
+        assertEquals(500, exception.getCode());
+    }
+}
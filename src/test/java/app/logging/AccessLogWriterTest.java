@@ -0,0 +1,83 @@
+package app.logging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Access log writer should flush every entry as a JSON line on shutdown")
+    void testWritesJsonLines() throws IOException {
+        // Arrange
+        Path file = dir.resolve("access.log");
+        AccessLogWriter writer = new AccessLogWriter(file, 64, 16, 10_000, 1024 * 1024, 2);
+
+        // Act
+        writer.log(entry("/api/books", 200));
+        writer.log(entry("/api/books/7", 404));
+        writer.shutdown();
+
+        // Assert
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"path\":\"/api/books\""));
+        assertTrue(lines.get(1).contains("\"status\":404"));
+        assertEquals(2, writer.getWritten());
+        assertEquals(0, writer.getDropped());
+    }
+
+    @Test
+    @DisplayName("Access log writer should rotate by size and keep a bounded number of old files")
+    void testRotation() throws Exception {
+        // Arrange
+        Path file = dir.resolve("access.log");
+        AccessLogWriter writer = new AccessLogWriter(file, 64, 1, 1, 100, 2);
+
+        // Act
+        for (int i = 0; i < 8; i++) {
+            writer.log(entry("/api/books/" + i, 200));
+            Thread.sleep(20);
+        }
+        writer.shutdown();
+
+        // Assert
+        assertTrue(Files.exists(file));
+        assertTrue(Files.exists(dir.resolve("access.log.1")));
+        assertTrue(Files.exists(dir.resolve("access.log.2")));
+        assertFalse(Files.exists(dir.resolve("access.log.3")));
+        assertEquals(8, writer.getWritten());
+    }
+
+    @Test
+    @DisplayName("Access log writer should drop and count entries when the buffer is full")
+    void testDropsWhenFull() {
+        // Arrange: a long flush interval keeps the writer from draining during the test
+        AccessLogWriter writer = new AccessLogWriter(dir.resolve("access.log"), 4, 4, 60_000, 1024, 1);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            writer.log(entry("/api/books", 200));
+        }
+        long dropped = writer.getDropped();
+        writer.shutdown();
+
+        // Assert
+        assertTrue(dropped >= 2, "dropped " + dropped);
+        assertEquals(10, writer.getWritten() + writer.getDropped());
+    }
+
+    private AccessLogEntry entry(String path, int status) {
+        return new AccessLogEntry("2026-01-01T00:00:00Z", "GET", path, status, 1.5, 1L, "alice", 42);
+    }
+}
@@ -0,0 +1,60 @@
+package app.profiling;
+
+import app.dto.LatencySummaryDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyWindowTest {
+
+    @Test
+    @DisplayName("Latency window should report percentiles within the histogram's resolution")
+    void testPercentiles() {
+        // Arrange
+        LatencyWindow window = new LatencyWindow(6, 10_000);
+        for (int millis = 1; millis <= 100; millis++) {
+            window.record(1_000, TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        // Act
+        LatencySummaryDTO summary = window.summarize("GET /api/books", 1_000);
+
+        // Assert
+        assertEquals(100, summary.getCount());
+        assertEquals(50.5, summary.getMeanMillis(), 0.01);
+        assertEquals(50, summary.getP50Millis(), 50 * 0.25);
+        assertEquals(99, summary.getP99Millis(), 99 * 0.25);
+        assertEquals(100, summary.getMaxMillis(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Latency window should forget samples older than the window")
+    void testExpiry() {
+        // Arrange
+        LatencyWindow window = new LatencyWindow(6, 10_000);
+        window.record(0, TimeUnit.MILLISECONDS.toNanos(500));
+        window.record(59_000, TimeUnit.MILLISECONDS.toNanos(5));
+
+        // Act
+        LatencySummaryDTO withinWindow = window.summarize("q", 59_000);
+        LatencySummaryDTO afterExpiry = window.summarize("q", 61_000);
+
+        // Assert
+        assertEquals(2, withinWindow.getCount());
+        assertEquals(1, afterExpiry.getCount());
+        assertEquals(5, afterExpiry.getMaxMillis(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Histogram buckets should contain the values mapped to them")
+    void testBucketBounds() {
+        for (long micros = 0; micros < 100_000; micros++) {
+            int bucket = LatencyWindow.bucketOf(micros);
+            assertTrue(micros <= LatencyWindow.upperBound(bucket));
+            assertTrue(bucket == 0 || micros > LatencyWindow.upperBound(bucket - 1));
+        }
+    }
+}
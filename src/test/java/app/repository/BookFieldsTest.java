@@ -0,0 +1,34 @@
+package app.repository;
+
+import app.exceptions.BadRequestException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookFieldsTest {
+
+    @Test
+    @DisplayName("Parse should return the shared instance for a field set in any order")
+    void testParse() {
+        // Act
+        BookFields fields = BookFields.parse("title, id");
+
+        // Assert
+        assertSame(BookFields.of(BookFields.Field.ID, BookFields.Field.TITLE), fields);
+        assertTrue(fields.contains(BookFields.Field.TITLE));
+        assertFalse(fields.contains(BookFields.Field.TAGS));
+        assertArrayEquals(new String[]{"id", "title"}, fields.getProperties());
+        assertSame(BookFields.ALL, BookFields.parse(null));
+        assertSame(BookFields.ALL, BookFields.parse("id,title,author,tags"));
+    }
+
+    @Test
+    @DisplayName("Parse should reject unknown and empty field lists")
+    void testParseInvalid() {
+        // Act & Assert
+        BadRequestException unknown = assertThrows(BadRequestException.class, () -> BookFields.parse("id,isbn"));
+        assertEquals("Unknown field 'isbn': use id, title, author or tags", unknown.getMessage());
+        assertThrows(BadRequestException.class, () -> BookFields.parse(","));
+    }
+}
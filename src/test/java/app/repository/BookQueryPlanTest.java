@@ -0,0 +1,198 @@
+package app.repository;
+
+import app.config.Migrations;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs EXPLAIN on the SQL that {@link JpaBookRepository#findByUserId(Long, BookQuery)} actually
+ * generates, against a seeded Postgres, to check that every filter/sort combination reads a page
+ * as an index range scan in the requested order, with no separate sort step.
+ * Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class BookQueryPlanTest {
+
+    private static final int PAGE = 50;
+    private static final Pattern SORT_NODE = Pattern.compile("(?m)^\\s*(->\\s*)?(Incremental )?Sort\\b");
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final List<String> statements = new CopyOnWriteArrayList<>();
+    private static EntityManagerFactory emf;
+    private static JpaBookRepository bookRepository;
+    private static Long userId;
+    private static Long authorId;
+
+    @BeforeAll
+    static void setUp() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("jakarta.persistence.jdbc.url", postgres.getJdbcUrl());
+        properties.put("jakarta.persistence.jdbc.user", postgres.getUsername());
+        properties.put("jakarta.persistence.jdbc.password", postgres.getPassword());
+        properties.put("hibernate.session_factory.statement_inspector", (StatementInspector) sql -> {
+            statements.add(sql);
+            return sql;
+        });
+        emf = Persistence.createEntityManagerFactory("bookshelfPU", properties);
+        new Migrations(emf).run();
+        bookRepository = new JpaBookRepository(emf);
+
+        // 100 users with 200 books each, interleaved as if added over time, so one user's rows are a
+        // small slice of the table spread over many pages
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.createNativeQuery("INSERT INTO users (username, password, role) "
+                    + "SELECT 'user' || g, 'x', 'USER' FROM generate_series(1, 100) g").executeUpdate();
+            em.createNativeQuery("INSERT INTO authors (name, normalized_name) "
+                    + "SELECT 'Author ' || g, 'author ' || g FROM generate_series(1, 50) g").executeUpdate();
+            em.createNativeQuery("INSERT INTO books (title, author_id, user_id, created_at, updated_at) "
+                    + "SELECT 'Title ' || g, (SELECT min(id) FROM authors) + g % 2, u.id, "
+                    + "now() - g * interval '1 minute', now() "
+                    + "FROM generate_series(1, 200) g CROSS JOIN users u ORDER BY g, u.id").executeUpdate();
+            em.createNativeQuery("ANALYZE").executeUpdate();
+            em.getTransaction().commit();
+            userId = ((Number) em.createNativeQuery("SELECT min(id) FROM users").getSingleResult()).longValue();
+            authorId = ((Number) em.createNativeQuery("SELECT min(id) FROM authors").getSingleResult()).longValue();
+        }
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (emf != null) {
+            emf.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Default listing should scan the user's range of (user_id, id)")
+    void testDefaultListing() {
+        // Act
+        String plan = explain(new BookQuery(null, null, BookQuery.Sort.ID, false, PAGE, 0), userId);
+
+        // Assert
+        assertIndexRangeScan(plan, "idx_books_user_id");
+    }
+
+    @Test
+    @DisplayName("Author filter should scan (user_id, author_id, id)")
+    void testAuthorFilter() {
+        // Arrange
+        BookQuery query = new BookQuery(null, null, BookQuery.Sort.ID, false, PAGE, 0);
+        query.setAuthorId(authorId);
+
+        // Act
+        String plan = explain(query, userId, authorId);
+
+        // Assert
+        assertIndexRangeScan(plan, "idx_books_user_author");
+    }
+
+    @Test
+    @DisplayName("Title sort should read (user_id, lower(title), id) in order, both directions")
+    void testTitleSort() {
+        // Act
+        String ascending = explain(new BookQuery(null, null, BookQuery.Sort.TITLE, false, PAGE, 0), userId);
+        String descending = explain(new BookQuery(null, null, BookQuery.Sort.TITLE, true, PAGE, 0), userId);
+
+        // Assert
+        assertIndexRangeScan(ascending, "idx_books_user_title");
+        assertIndexRangeScan(descending, "idx_books_user_title");
+    }
+
+    @Test
+    @DisplayName("Title prefix with title sort should stay on (user_id, lower(title), id)")
+    void testTitlePrefix() {
+        // Act
+        String plan = explain(new BookQuery(null, "title 1", BookQuery.Sort.TITLE, false, PAGE, 0), userId, "title 1%");
+
+        // Assert
+        assertIndexRangeScan(plan, "idx_books_user_title");
+        assertTrue(plan.contains(">= 'title 1'"), "expected the prefix as an index bound:\n" + plan);
+    }
+
+    @Test
+    @DisplayName("Newest-first listing should read (user_id, created_at, id) backwards")
+    void testCreatedAtSort() {
+        // Act
+        String plan = explain(new BookQuery(null, null, BookQuery.Sort.CREATED_AT, true, PAGE, 0), userId);
+
+        // Assert
+        assertIndexRangeScan(plan, "idx_books_user_created");
+    }
+
+    /**
+     * Runs the query through the repository to capture its SQL, then explains that exact SQL as a
+     * prepared statement with the same parameter values.
+     */
+    private String explain(BookQuery query, Object... filterValues) {
+        statements.clear();
+        bookRepository.findByUserId(userId, query);
+        String sql = statements.stream()
+                .filter(statement -> statement.contains("from books") && !statement.contains("book_tags"))
+                .findFirst()
+                .orElseThrow();
+
+        StringBuilder positional = new StringBuilder();
+        int index = 0;
+        for (char c : sql.toCharArray()) {
+            positional.append(c == '?' ? "$" + (++index) : String.valueOf(c));
+        }
+        // Hibernate binds the page as "offset ? rows fetch first ? rows only", after the filters
+        List<Object> values = new ArrayList<>(Arrays.asList(filterValues));
+        values.add(query.getOffset());
+        values.add(query.getLimit());
+        StringBuilder arguments = new StringBuilder();
+        for (Object parameter : values) {
+            arguments.append(arguments.length() == 0 ? "" : ", ")
+                    .append(parameter instanceof String ? "'" + parameter + "'" : parameter);
+        }
+
+        StringBuilder plan = new StringBuilder();
+        try (EntityManager em = emf.createEntityManager()) {
+            em.unwrap(Session.class).doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("PREPARE listing AS " + positional);
+                    try (ResultSet rows = statement.executeQuery("EXPLAIN EXECUTE listing(" + arguments + ")")) {
+                        while (rows.next()) {
+                            plan.append(rows.getString(1)).append('\n');
+                        }
+                    } finally {
+                        statement.execute("DEALLOCATE listing");
+                    }
+                }
+            });
+        }
+        return plan.toString();
+    }
+
+    private void assertIndexRangeScan(String plan, String index) {
+        assertTrue(plan.contains("Index Scan") && plan.contains(index), "expected a scan of " + index + ":\n" + plan);
+        // The author row is joined by id; on a small authors table a sequential scan of it is the cheaper plan
+        assertFalse(plan.contains("Seq Scan on books"), "unexpected sequential scan:\n" + plan);
+        assertFalse(SORT_NODE.matcher(plan).find(), "unexpected sort step:\n" + plan);
+    }
+}
@@ -0,0 +1,143 @@
+package app.repository;
+
+import app.entities.Author;
+import app.entities.Book;
+import app.entities.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class BookWriteBatcherTest {
+
+    private BookRepository bookRepository;
+    private BookWriteBatcher batcher;
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        testUser = new User("testuser", "hashedpassword");
+        testUser.setId(1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent writes should be committed in shared batches")
+    void testCoalescesConcurrentWrites() {
+        // Arrange
+        AtomicLong ids = new AtomicLong();
+        AtomicInteger transactions = new AtomicInteger();
+        when(bookRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            transactions.incrementAndGet();
+            Thread.sleep(20); // simulated commit latency
+            List<Book> books = invocation.getArgument(0);
+            books.forEach(book -> book.setId(ids.incrementAndGet()));
+            return books;
+        });
+        batcher = new BookWriteBatcher(bookRepository, 64, 2000);
+
+        // Act
+        List<CompletableFuture<Book>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(batcher.submit(new Book("Title " + i, "Author", testUser)));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        // Assert
+        assertTrue(transactions.get() < 50);
+        for (int i = 0; i < 50; i++) {
+            Book saved = futures.get(i).join();
+            assertNotNull(saved.getId());
+            assertEquals("Title " + i, saved.getTitle());
+        }
+    }
+
+    @Test
+    @DisplayName("A failing write should only fail its own caller")
+    void testIsolatesFailures() {
+        // Arrange
+        AtomicLong ids = new AtomicLong();
+        when(bookRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            for (Book book : books) {
+                if (book.getTitle().equals("bad")) {
+                    throw new IllegalStateException("constraint violation");
+                }
+                book.setId(ids.incrementAndGet());
+            }
+            return books;
+        });
+        batcher = new BookWriteBatcher(bookRepository, 64, 50_000);
+
+        // Act
+        CompletableFuture<Book> good = batcher.submit(new Book("good", "Author", testUser));
+        CompletableFuture<Book> bad = batcher.submit(new Book("bad", "Author", testUser));
+
+        // Assert
+        assertEquals("good", good.join().getTitle());
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> batcher.write(new Book("bad", "Author", testUser)));
+        assertEquals("constraint violation", exception.getMessage());
+        assertTrue(bad.isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("A write that created an author should succeed when retried after its batch rolled back")
+    void testRetryResolvesAuthorAgain() {
+        // Arrange: authors are created in the batch transaction and vanish when it rolls back
+        AtomicLong ids = new AtomicLong();
+        Set<Author> rolledBack = new HashSet<>();
+        when(bookRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            List<Author> created = new ArrayList<>();
+            for (Book book : books) {
+                if (rolledBack.contains(book.getAuthor())) {
+                    throw new IllegalStateException("author_id foreign key violation");
+                }
+                if (book.getAuthor() == null) {
+                    Author author = new Author(book.getAuthorName());
+                    author.setId(ids.incrementAndGet());
+                    created.add(author);
+                    book.setAuthor(author);
+                }
+                if (book.getTitle().equals("bad")) {
+                    rolledBack.addAll(created);
+                    throw new IllegalStateException("constraint violation");
+                }
+                book.setId(ids.incrementAndGet());
+            }
+            return books;
+        });
+        batcher = new BookWriteBatcher(bookRepository, 64, 50_000);
+
+        // Act
+        CompletableFuture<Book> fresh = batcher.submit(new Book("good", "New Author", testUser));
+        CompletableFuture<Book> bad = batcher.submit(new Book("bad", "Author", testUser));
+
+        // Assert
+        Book saved = fresh.join();
+        assertNotNull(saved.getId());
+        assertFalse(rolledBack.contains(saved.getAuthor()));
+        assertEquals("New Author", saved.getAuthorName());
+        assertThrows(Exception.class, bad::join);
+    }
+}
@@ -0,0 +1,58 @@
+package app.repository;
+
+import app.exceptions.ServiceUnavailableException;
+import app.utils.CircuitBreaker;
+import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseCircuitTest {
+
+    @Test
+    @DisplayName("Connection failures should open the circuit, after which calls fail fast with 503")
+    void testConnectionFailuresOpen() {
+        // Arrange
+        CircuitBreaker breaker = new CircuitBreaker(10, 2, 0.5, 60_000, 1);
+        DatabaseCircuit circuit = new DatabaseCircuit(breaker);
+        PersistenceException refused = new PersistenceException("Unable to acquire JDBC Connection",
+                new SQLException("Connection refused", "08001"));
+        int[] calls = {0};
+
+        // Act
+        for (int i = 0; i < 2; i++) {
+            assertThrows(PersistenceException.class, () -> circuit.call(() -> {
+                calls[0]++;
+                throw refused;
+            }));
+        }
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(ServiceUnavailableException.class, () -> circuit.run(() -> calls[0]++));
+        assertEquals(2, calls[0]);
+    }
+
+    @Test
+    @DisplayName("Answers from a healthy database, such as a duplicate key, should not count as failures")
+    void testConstraintViolationIsNotOutage() {
+        // Arrange
+        CircuitBreaker breaker = new CircuitBreaker(10, 2, 0.5, 60_000, 1);
+        DatabaseCircuit circuit = new DatabaseCircuit(breaker);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            assertThrows(EntityExistsException.class, () -> circuit.call(() -> {
+                throw new EntityExistsException("Username already exists",
+                        new SQLException("duplicate key value", "23505"));
+            }));
+        }
+
+        // Assert
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
@@ -0,0 +1,48 @@
+package app.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadRouterTest {
+
+    @Test
+    @DisplayName("Reads should go to the replica when the user has not written")
+    void testReplicaByDefault() {
+        // Arrange
+        ReadRouter router = new ReadRouter(1000);
+
+        // Act & Assert
+        assertFalse(router.usePrimary(1L));
+        assertFalse(router.usePrimary("alice"));
+    }
+
+    @Test
+    @DisplayName("A write should pin only that user to the primary")
+    void testPinsWriter() {
+        // Arrange
+        ReadRouter router = new ReadRouter(10_000);
+
+        // Act
+        router.markWrite(1L);
+
+        // Assert
+        assertTrue(router.usePrimary(1L));
+        assertFalse(router.usePrimary(2L));
+    }
+
+    @Test
+    @DisplayName("The pin should expire after the read-your-writes window")
+    void testPinExpires() throws InterruptedException {
+        // Arrange
+        ReadRouter router = new ReadRouter(20);
+        router.markWrite("alice");
+
+        // Act
+        Thread.sleep(50);
+
+        // Assert
+        assertFalse(router.usePrimary("alice"));
+    }
+}
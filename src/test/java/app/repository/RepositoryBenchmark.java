@@ -0,0 +1,140 @@
+package app.repository;
+
+import app.config.DatabaseConfig;
+import app.config.Migrations;
+import app.entities.Book;
+import app.entities.User;
+import app.repository.memory.MemoryBookRepository;
+import app.repository.memory.MemoryStore;
+import app.repository.memory.MemoryUserRepository;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs the same repository workload against the embedded store and against Postgres and prints
+ * throughput and latency percentiles per operation. Not a unit test; run it by hand:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * DB_HOST=localhost java -cp target/classes:target/test-classes:$(cat cp.txt) \
+ *     app.repository.RepositoryBenchmark [memory] [postgres]
+ * </pre>
+ * Postgres is configured through the same DB_* variables as the app and should be a scratch
+ * database. BENCH_THREADS, BENCH_USERS and BENCH_BOOKS_PER_USER size the workload.
+ */
+public class RepositoryBenchmark {
+
+    private static final int THREADS = Integer.parseInt(env("BENCH_THREADS", "16"));
+    private static final int USERS = Integer.parseInt(env("BENCH_USERS", "64"));
+    private static final int BOOKS_PER_USER = Integer.parseInt(env("BENCH_BOOKS_PER_USER", "200"));
+    private static final int READS_PER_USER = 1000;
+
+    public static void main(String[] args) throws Exception {
+        List<String> backends = args.length > 0 ? Arrays.asList(args) : List.of("memory", "postgres");
+        System.out.printf("%d threads, %d users x %d books%n", THREADS, USERS, BOOKS_PER_USER);
+        System.out.printf("%-10s %-14s %12s %10s %10s %10s%n", "backend", "operation", "ops/s", "p50 us", "p99 us", "max us");
+
+        for (String backend : backends) {
+            if (backend.equals("memory")) {
+                Path dir = Files.createTempDirectory("bookshelf-bench");
+                MemoryStore store = MemoryStore.open(dir, true);
+                run(backend, new MemoryUserRepository(store), new MemoryBookRepository(store));
+                store.close();
+                deleteRecursively(dir);
+            } else {
+                EntityManagerFactory emf = DatabaseConfig.createEntityManagerFactory();
+                new Migrations(emf).run();
+                run(backend, new JpaUserRepository(emf), new JpaBookRepository(emf));
+                emf.close();
+            }
+        }
+    }
+
+    private static void run(String backend, UserRepository users, BookRepository books) throws Exception {
+        String prefix = "bench-" + System.nanoTime() + "-";
+        List<User> owners = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            owners.add(users.save(new User(prefix + i, "x")));
+        }
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            names.add("Bench Author " + i);
+        }
+        List<List<Long>> ids = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            ids.add(new ArrayList<>(BOOKS_PER_USER));
+        }
+
+        measure(backend, "save", USERS * BOOKS_PER_USER, user -> {
+            Book book = new Book("Title " + ThreadLocalRandom.current().nextInt(1_000_000),
+                    names.get(ThreadLocalRandom.current().nextInt(names.size())), owners.get(user));
+            Long id = books.save(book).getId();
+            synchronized (ids.get(user)) {
+                ids.get(user).add(id);
+            }
+        });
+        measure(backend, "findById", USERS * READS_PER_USER, user -> {
+            List<Long> own = ids.get(user);
+            books.findByIdAndUserId(own.get(ThreadLocalRandom.current().nextInt(own.size())), owners.get(user).getId());
+        });
+        BookQuery page = new BookQuery(null, null, BookQuery.Sort.TITLE, false, 50, 0);
+        measure(backend, "listPage", USERS * READS_PER_USER / 10, user ->
+                books.findByUserId(owners.get(user).getId(), page));
+    }
+
+    private interface Operation {
+        void run(int user) throws Exception;
+    }
+
+    // Spreads the operations over the threads, each thread cycling through its share of the users
+    private static void measure(String backend, String name, int operations, Operation operation) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        int perThread = operations / THREADS;
+        long start = System.nanoTime();
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            results.add(pool.submit(() -> {
+                long[] latencies = new long[perThread];
+                for (int i = 0; i < perThread; i++) {
+                    int user = (thread + i * THREADS) % USERS;
+                    long begin = System.nanoTime();
+                    operation.run(user);
+                    latencies[i] = System.nanoTime() - begin;
+                }
+                return latencies;
+            }));
+        }
+        long[] all = new long[perThread * THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            System.arraycopy(results.get(t).get(), 0, all, t * perThread, perThread);
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        Arrays.sort(all);
+        System.out.printf("%-10s %-14s %12.0f %10.1f %10.1f %10.1f%n", backend, name,
+                all.length / (elapsed / 1e9),
+                all[all.length / 2] / 1e3, all[(int) (all.length * 0.99)] / 1e3, all[all.length - 1] / 1e3);
+    }
+
+    private static String env(String name, String fallback) {
+        String value = System.getenv(name);
+        return value != null ? value : fallback;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (var files = Files.walk(dir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(file -> file.toFile().delete());
+        }
+    }
+}
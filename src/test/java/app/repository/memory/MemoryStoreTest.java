@@ -0,0 +1,207 @@
+package app.repository.memory;
+
+import app.entities.Author;
+import app.entities.Book;
+import app.entities.BookChange;
+import app.entities.User;
+import app.repository.BookQuery;
+import jakarta.persistence.EntityExistsException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Writes should survive a crash through write-ahead log replay")
+    void testRecoversFromLog() {
+        // Arrange
+        MemoryStore store = MemoryStore.open(dir, true);
+        User user = new MemoryUserRepository(store).save(new User("alice", "hash"));
+        MemoryBookRepository books = new MemoryBookRepository(store);
+        Book dune = books.save(book("Dune", "Frank Herbert", user));
+        Book emma = books.save(book("Emma", "Jane Austen", user));
+        books.delete(emma);
+
+        // Act: reopen without closing, as after a crash
+        MemoryStore recovered = MemoryStore.open(dir, true);
+
+        // Assert
+        MemoryBookRepository recoveredBooks = new MemoryBookRepository(recovered);
+        List<Book> remaining = recoveredBooks.findByUserId(user.getId());
+        assertEquals(1, remaining.size());
+        assertEquals("Dune", remaining.get(0).getTitle());
+        assertEquals("Frank Herbert", remaining.get(0).getAuthor().getName());
+        assertEquals(dune.getCreatedAt(), remaining.get(0).getCreatedAt());
+        assertEquals("alice", new MemoryUserRepository(recovered).findById(user.getId()).getUsername());
+        // A deleted id is never handed out again
+        assertTrue(recoveredBooks.save(book("Persuasion", "Jane Austen", user)).getId() > emma.getId());
+    }
+
+    @Test
+    @DisplayName("Snapshot should replace the log segments it covers and restore with the newer log")
+    void testSnapshotAndLog() throws IOException {
+        // Arrange
+        MemoryStore store = MemoryStore.open(dir, true);
+        User user = new MemoryUserRepository(store).save(new User("alice", "hash"));
+        MemoryBookRepository books = new MemoryBookRepository(store);
+        for (int i = 0; i < 100; i++) {
+            books.save(book("Book " + i, "Author " + (i % 7), user));
+        }
+        store.snapshot();
+        Book late = books.save(book("Written after the snapshot", "Author 1", user));
+
+        // Act
+        MemoryStore recovered = MemoryStore.open(dir, true);
+
+        // Assert
+        assertEquals(101, new MemoryBookRepository(recovered).findByUserId(user.getId()).size());
+        assertNotNull(new MemoryBookRepository(recovered).findByIdAndUserId(late.getId(), user.getId()));
+        assertEquals(101, new MemoryBookRepository(recovered)
+                .findChangesSince(user.getId(), 0L, 1000).size());
+        try (Stream<Path> files = Files.list(dir)) {
+            Set<String> names = files.map(file -> file.getFileName().toString()).collect(Collectors.toSet());
+            assertEquals(1, names.stream().filter(name -> name.startsWith("snapshot-")).count());
+            assertFalse(names.contains(WriteAheadLog.segmentFile(dir, 1).getFileName().toString()));
+        }
+    }
+
+    @Test
+    @DisplayName("Torn write at the end of the log should be cut off without losing earlier writes")
+    void testTornTail() throws IOException {
+        // Arrange
+        MemoryStore store = MemoryStore.open(dir, true);
+        User user = new MemoryUserRepository(store).save(new User("alice", "hash"));
+        new MemoryBookRepository(store).save(book("Dune", "Frank Herbert", user));
+        Path segment = WriteAheadLog.segmentFile(dir, 1);
+        long intact = Files.size(segment);
+        Files.write(segment, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        // Act
+        MemoryStore recovered = MemoryStore.open(dir, true);
+
+        // Assert
+        assertEquals(1, new MemoryBookRepository(recovered).findByUserId(user.getId()).size());
+        assertEquals(intact, Files.size(segment));
+    }
+
+    @Test
+    @DisplayName("Filtered listing should match the database semantics for filters, order and paging")
+    void testQuery() {
+        // Arrange
+        MemoryStore store = MemoryStore.open(dir, false);
+        User user = new MemoryUserRepository(store).save(new User("alice", "hash"));
+        User other = new MemoryUserRepository(store).save(new User("bob", "hash"));
+        MemoryBookRepository books = new MemoryBookRepository(store);
+        books.save(book("the Hobbit", "Tolkien", user));
+        books.save(book("Dune", "Herbert", user));
+        books.save(book("The Silmarillion", "TOLKIEN ", user));
+        books.save(book("The Road", "McCarthy", other));
+        Author tolkien = new MemoryAuthorRepository(store).findByNormalizedName("tolkien");
+
+        BookQuery byAuthor = new BookQuery(null, null, BookQuery.Sort.ID, true, null, 0);
+        byAuthor.setAuthorId(tolkien.getId());
+
+        // Act
+        List<Book> titled = books.findByUserId(user.getId(), new BookQuery(null, "the", BookQuery.Sort.TITLE, false, null, 0));
+        List<Book> authored = books.findByUserId(user.getId(), byAuthor);
+        List<Book> page = books.findByUserId(user.getId(), new BookQuery(null, null, BookQuery.Sort.TITLE, false, 1, 1));
+
+        // Assert
+        assertEquals(List.of("the Hobbit", "The Silmarillion"), titles(titled));
+        assertEquals(List.of("The Silmarillion", "the Hobbit"), titles(authored));
+        assertEquals(List.of("the Hobbit"), titles(page));
+        // Spelling variants share the author row but each book keeps its own, also after recovery
+        List<Book> recovered = new MemoryBookRepository(MemoryStore.open(dir, false)).findByUserId(user.getId(), byAuthor);
+        assertEquals(List.of("TOLKIEN ", "Tolkien"), recovered.stream().map(Book::getAuthorName).toList());
+    }
+
+    @Test
+    @DisplayName("Change feed should record creates, updates and deletes in order")
+    void testChanges() {
+        // Arrange
+        MemoryStore store = MemoryStore.open(dir, false);
+        User user = new MemoryUserRepository(store).save(new User("alice", "hash"));
+        MemoryBookRepository books = new MemoryBookRepository(store);
+        Book book = books.save(book("Dune", "Herbert", user));
+        Book stored = books.findByIdAndUserId(book.getId(), user.getId());
+        stored.setTitle("Dune Messiah");
+        books.update(stored);
+        books.delete(stored);
+
+        // Act
+        List<BookChange> all = books.findChangesSince(user.getId(), 0L, 10);
+        List<BookChange> afterFirst = books.findChangesSince(user.getId(), all.get(0).getId(), 10);
+
+        // Assert
+        assertEquals(List.of(BookChange.Type.CREATED, BookChange.Type.UPDATED, BookChange.Type.DELETED),
+                all.stream().map(BookChange::getType).collect(Collectors.toList()));
+        assertEquals("Dune Messiah", all.get(1).getTitle());
+        assertEquals(2, afterFirst.size());
+        assertNull(books.findById(book.getId()));
+    }
+
+    @Test
+    @DisplayName("Pruning should drop old changes, survive recovery and never reuse a pruned book id")
+    void testPruneChanges() {
+        // Arrange
+        MemoryStore store = MemoryStore.open(dir, true);
+        User user = new MemoryUserRepository(store).save(new User("alice", "hash"));
+        MemoryBookRepository books = new MemoryBookRepository(store);
+        books.save(book("Dune", "Frank Herbert", user));
+        Book emma = books.save(book("Emma", "Jane Austen", user));
+        books.delete(emma);
+        long oldest = books.findLatestChangeId(user.getId());
+
+        // Act
+        int pruned = books.pruneChanges(Instant.now().plusSeconds(1));
+        store.snapshot();
+        MemoryStore recovered = MemoryStore.open(dir, true);
+
+        // Assert
+        MemoryBookRepository recoveredBooks = new MemoryBookRepository(recovered);
+        assertEquals(3, pruned);
+        assertTrue(recoveredBooks.findChangesSince(user.getId(), 0L, 10).isEmpty());
+        assertEquals(oldest, recoveredBooks.getChangesPrunedThrough());
+        assertEquals(1, recoveredBooks.findByUserId(user.getId()).size());
+        assertTrue(recoveredBooks.save(book("Persuasion", "Jane Austen", user)).getId() > emma.getId());
+        assertTrue(recoveredBooks.findLatestChangeId(user.getId()) > oldest);
+    }
+
+    @Test
+    @DisplayName("Usernames should be unique and looked up regardless of case, also after recovery")
+    void testUsernameIgnoresCase() {
+        // Arrange
+        MemoryStore store = MemoryStore.open(dir, false);
+        MemoryUserRepository users = new MemoryUserRepository(store);
+        User alice = users.save(new User("Alice", "hash"));
+
+        // Act & Assert
+        assertThrows(EntityExistsException.class, () -> users.save(new User("ALICE", "hash")));
+        assertEquals(alice.getId(), users.findByUsername("alice").getId());
+        assertEquals("Alice", new MemoryUserRepository(MemoryStore.open(dir, false)).findByUsername("aLiCe").getUsername());
+    }
+
+    private static Book book(String title, String author, User user) {
+        return new Book(title, author, user);
+    }
+
+    private static List<String> titles(List<Book> books) {
+        return books.stream().map(Book::getTitle).collect(Collectors.toList());
+    }
+}
@@ -113,4 +113,20 @@ class JwtUtilTest {
         // Assert
         assertNull(role);
     }
+
+    @Test
+    @DisplayName("Each token should get its own id")
+    void testTokenId() {
+        // Arrange
+        String token1 = JwtUtil.generateToken("testuser", "USER");
+        String token2 = JwtUtil.generateToken("testuser", "USER");
+
+        // Act
+        String jti1 = JwtUtil.getTokenIdFromToken(token1);
+        String jti2 = JwtUtil.getTokenIdFromToken(token2);
+
+        // Assert
+        assertNotNull(jti1);
+        assertNotEquals(jti1, jti2);
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package app.security;
 
+import at.favre.lib.crypto.bcrypt.BCrypt;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
@@ -94,4 +95,57 @@ class PasswordUtilTest {
         assertNotNull(hashedPassword);
         assertTrue(isValid);
     }
+
+    @Test
+    @DisplayName("Calibrate should stay between the floor and the ceiling")
+    void testCalibrateBounds() {
+        // Arrange
+        int previousCost = PasswordUtil.getCost();
+        try {
+            // Act
+            int unreachable = PasswordUtil.calibrate(0, 11, 12);
+            int generous = PasswordUtil.calibrate(60_000, 4, 11);
+
+            // Assert
+            assertEquals(11, unreachable); // never below the floor, however slow the host
+            assertEquals(11, generous); // a requested floor below MIN_COST is raised to it
+            assertEquals(11, PasswordUtil.getCost());
+        } finally {
+            PasswordUtil.setCost(previousCost);
+        }
+    }
+
+    @Test
+    @DisplayName("Needs rehash should flag only hashes made at a lower cost")
+    void testNeedsRehash() {
+        // Arrange
+        int previousCost = PasswordUtil.getCost();
+        try {
+            PasswordUtil.setCost(PasswordUtil.MIN_COST);
+            String hashedPassword = PasswordUtil.hashPassword("password123");
+
+            // Act
+            boolean current = PasswordUtil.needsRehash(hashedPassword);
+            PasswordUtil.setCost(PasswordUtil.MIN_COST + 1);
+            boolean outdated = PasswordUtil.needsRehash(hashedPassword);
+            boolean stronger = PasswordUtil.needsRehash(BCrypt.withDefaults().hashToString(PasswordUtil.MIN_COST + 2,
+                    "password123".toCharArray()));
+
+            // Assert
+            assertEquals(PasswordUtil.MIN_COST, PasswordUtil.costOf(hashedPassword));
+            assertFalse(current);
+            assertTrue(outdated);
+            assertFalse(stronger);
+        } finally {
+            PasswordUtil.setCost(previousCost);
+        }
+    }
+
+    @Test
+    @DisplayName("Set cost should reject costs below the floor")
+    void testSetCostFloor() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> PasswordUtil.setCost(PasswordUtil.MIN_COST - 1));
+        assertThrows(IllegalArgumentException.class, () -> PasswordUtil.setCost(PasswordUtil.MAX_COST + 1));
+    }
 }
@@ -0,0 +1,83 @@
+package app.security;
+
+import app.entities.RevokedToken;
+import app.exceptions.BadRequestException;
+import app.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TokenDenylistTest {
+
+    private RevokedTokenRepository repository;
+    private TokenDenylist denylist;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RevokedTokenRepository.class);
+        denylist = new TokenDenylist(repository);
+    }
+
+    @Test
+    @DisplayName("Revoked token should be persisted and rejected")
+    void testRevoke() {
+        // Act
+        denylist.revoke("jti-1", Instant.now().plusSeconds(3600));
+
+        // Assert
+        assertTrue(denylist.isRevoked("jti-1"));
+        assertFalse(denylist.isRevoked("jti-2"));
+        verify(repository, times(1)).save(any(RevokedToken.class));
+    }
+
+    @Test
+    @DisplayName("Revoking a token id longer than the column should fail with 400 before touching the database")
+    void testRevokeRejectsLongJti() {
+        // Act
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> denylist.revoke("x".repeat(65), Instant.now().plusSeconds(3600)));
+
+        // Assert
+        assertEquals("Token id must be at most 64 characters", exception.getMessage());
+        verify(repository, never()).save(any(RevokedToken.class));
+    }
+
+    @Test
+    @DisplayName("Rebuild should load revocations from the database")
+    void testRebuildLoadsFromDatabase() {
+        // Arrange
+        when(repository.findActive(any(Instant.class)))
+                .thenReturn(List.of(new RevokedToken("from-other-instance", Instant.now().plusSeconds(3600))));
+
+        // Act
+        denylist.rebuild();
+
+        // Assert
+        assertTrue(denylist.isRevoked("from-other-instance"));
+        verify(repository, times(1)).deleteExpired(any(Instant.class));
+    }
+
+    @Test
+    @DisplayName("Rebuild should drop expired entries")
+    void testRebuildDropsExpired() {
+        // Arrange
+        denylist.revoke("expired", Instant.now().minusSeconds(1));
+        denylist.revoke("active", Instant.now().plusSeconds(3600));
+        when(repository.findActive(any(Instant.class))).thenReturn(List.of());
+
+        // Act
+        denylist.rebuild();
+
+        // Assert
+        assertFalse(denylist.isRevoked("expired"));
+        assertTrue(denylist.isRevoked("active"));
+        assertEquals(1, denylist.size());
+    }
+}
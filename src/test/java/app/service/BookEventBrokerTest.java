@@ -0,0 +1,145 @@
+package app.service;
+
+import app.dto.BookChangeDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookEventBrokerTest {
+
+    private BookEventBroker broker;
+
+    @BeforeEach
+    void setUp() {
+        broker = new BookEventBroker(4, 60_000, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        broker.shutdown();
+    }
+
+    @Test
+    @DisplayName("Broker should reject a buffer size that is not a power of two")
+    void testRejectsInvalidBufferSize() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new BookEventBroker(100, 60_000, 1));
+        assertThrows(IllegalArgumentException.class, () -> new BookEventBroker(0, 60_000, 1));
+    }
+
+    @Test
+    @DisplayName("Broker should deliver changes only to the owning user's subscribers")
+    void testDeliversToOwner() throws InterruptedException {
+        // Arrange
+        RecordingSink alice = new RecordingSink(1);
+        RecordingSink bob = new RecordingSink(1);
+        broker.subscribe(1L, alice);
+        broker.subscribe(2L, bob);
+
+        // Act
+        broker.onBookChanged(1L, change("CREATED", 10L));
+
+        // Assert
+        assertTrue(alice.await());
+        assertEquals("created", alice.events.get(0));
+        assertTrue(bob.events.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Broker should drop the backlog and send resync to a slow subscriber")
+    void testResyncOnOverflow() throws InterruptedException {
+        // Arrange
+        CountDownLatch blocked = new CountDownLatch(1);
+        RecordingSink slow = new RecordingSink(2) {
+            @Override
+            public void send(String event, Object data) {
+                super.send(event, data);
+                if (events.size() == 1) {
+                    awaitQuietly(blocked);
+                }
+            }
+        };
+        broker.subscribe(1L, slow);
+
+        // Act
+        broker.onBookChanged(1L, change("CREATED", 1L));
+        Thread.sleep(100);
+        for (long id = 2; id <= 10; id++) {
+            broker.onBookChanged(1L, change("UPDATED", id));
+        }
+        blocked.countDown();
+
+        // Assert
+        assertTrue(slow.awaitEvent(BookEventBroker.RESYNC_EVENT));
+        assertTrue(slow.events.size() < 10);
+    }
+
+    @Test
+    @DisplayName("Broker should forget closed subscribers")
+    void testUnsubscribe() {
+        // Arrange
+        BookEventBroker.Subscriber subscriber = broker.subscribe(1L, new RecordingSink(1));
+
+        // Act
+        broker.unsubscribe(subscriber);
+
+        // Assert
+        assertEquals(0, broker.subscriberCount());
+    }
+
+    private static BookChangeDTO change(String type, Long bookId) {
+        return new BookChangeDTO(null, type, bookId, "Title", "Author", "2025-01-01T00:00:00Z");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class RecordingSink implements BookEventBroker.EventSink {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch received;
+
+        RecordingSink(int expected) {
+            this.received = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void send(String event, Object data) {
+            events.add(event);
+            received.countDown();
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+
+        boolean await() throws InterruptedException {
+            return received.await(5, TimeUnit.SECONDS);
+        }
+
+        boolean awaitEvent(String event) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!events.contains(event) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            return events.contains(event);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package app.service;
+
+import app.dto.BookDTO;
+import app.dto.ImportResultDTO;
+import app.entities.User;
+import app.exceptions.PayloadTooLargeException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BookImportServiceTest {
+
+    private BookService bookService;
+    private BookImportService importService;
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        bookService = mock(BookService.class);
+        importService = new BookImportService(bookService, new ObjectMapper(), 2);
+        testUser = new User("testuser", "hashedpassword");
+        testUser.setId(1L);
+    }
+
+    @Test
+    @DisplayName("NDJSON import should write valid rows in batches and report bad rows")
+    void testNdjsonImport() {
+        // Arrange
+        String body = """
+                {"title":"The Hobbit","author":"J.R.R. Tolkien"}
+                {"title":"1984","author":"George Orwell"}
+                {"title":"","author":"Nobody"}
+                not json
+
+                {"title":"Dune","author":"Frank Herbert"}
+                """;
+
+        // Act
+        ImportResultDTO result = importService.importBooks(stream(body), BookImportService.Format.NDJSON, testUser);
+
+        // Assert
+        assertEquals(3, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertEquals(2, result.getBatches());
+        assertEquals(List.of("line 3: Title is required", "line 4: invalid JSON"), result.getErrors());
+        verify(bookService, times(2)).createBooks(anyList(), eq(testUser));
+    }
+
+    @Test
+    @DisplayName("NDJSON import should stop with 413 at a line longer than the limit")
+    void testNdjsonLineTooLong() {
+        // Arrange
+        importService.setMaxLineLength(64);
+        String body = "{\"title\":\"Dune\",\"author\":\"Frank Herbert\"}\n"
+                + "{\"title\":\"" + "x".repeat(10_000) + "\",\"author\":\"Nobody\"}\n"
+                + "{\"title\":\"Emma\",\"author\":\"Jane Austen\"}\n";
+        when(bookService.createBooks(anyList(), eq(testUser))).thenReturn(List.of());
+
+        // Act
+        PayloadTooLargeException exception = assertThrows(PayloadTooLargeException.class,
+                () -> importService.importBooks(stream(body), BookImportService.Format.NDJSON, testUser));
+
+        // Assert
+        assertEquals("Line 2 is longer than 64 characters; the import stopped there (books imported: 1)", exception.getMessage());
+        verify(bookService).createBooks(argThat((List<BookDTO> books) -> books.size() == 1), eq(testUser));
+    }
+
+    @Test
+    @DisplayName("CSV import should map columns by header name")
+    void testCsvImport() {
+        // Arrange
+        String body = "author,title\nJ.R.R. Tolkien,The Hobbit\n\"Orwell, George\",1984\n,Missing author\n";
+
+        // Act
+        ImportResultDTO result = importService.importBooks(stream(body), BookImportService.Format.CSV, testUser);
+
+        // Assert
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(List.of("line 4: Author is required"), result.getErrors());
+        verify(bookService).createBooks(argThat((List<BookDTO> books) ->
+                books.size() == 2 && books.get(1).getAuthor().equals("Orwell, George")), eq(testUser));
+    }
+
+    @Test
+    @DisplayName("A failed batch should be counted without stopping the import")
+    void testFailedBatch() {
+        // Arrange
+        when(bookService.createBooks(anyList(), eq(testUser)))
+                .thenThrow(new IllegalStateException("database down"))
+                .thenReturn(List.of());
+        String body = """
+                {"title":"A","author":"X"}
+                {"title":"B","author":"X"}
+                {"title":"C","author":"X"}
+                """;
+
+        // Act
+        ImportResultDTO result = importService.importBooks(stream(body), BookImportService.Format.NDJSON, testUser);
+
+        // Assert
+        assertEquals(1, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertEquals("lines 1-2: batch failed: database down", result.getErrors().get(0));
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,15 +1,26 @@
 package app.service;
 
+import app.dto.BookChangesDTO;
 import app.dto.BookDTO;
+import app.dto.BookLookupDTO;
+import app.entities.Author;
 import app.entities.Book;
+import app.entities.BookChange;
 import app.entities.User;
+import app.exceptions.BadRequestException;
+import app.exceptions.NotFoundException;
+import app.repository.AuthorRepository;
+import app.repository.BookFields;
+import app.repository.BookQuery;
 import app.repository.BookRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -17,13 +28,15 @@ import static org.mockito.Mockito.*;
 class BookServiceTest {
 
     private BookRepository bookRepository;
+    private AuthorRepository authorRepository;
     private BookService bookService;
     private User testUser;
 
     @BeforeEach
     void setUp() {
         bookRepository = mock(BookRepository.class);
-        bookService = new BookService(bookRepository);
+        authorRepository = mock(AuthorRepository.class);
+        bookService = new BookService(bookRepository, new AuthorCache(authorRepository));
         testUser = new User("testuser", "hashedpassword");
         testUser.setId(1L);
     }
@@ -75,13 +88,67 @@ class BookServiceTest {
         when(bookRepository.findByIdAndUserId(999L, 1L)).thenReturn(null);
 
         // Act & Assert
-        Exception exception = assertThrows(Exception.class, () -> {
+        NotFoundException exception = assertThrows(NotFoundException.class, () -> {
             bookService.getBookById(999L, 1L);
         });
 
         assertEquals("Book not found or does not belong to user", exception.getMessage());
     }
 
+    @Test
+    @DisplayName("Get book by ID with fields should load only those fields")
+    void testGetBookByIdNarrowed() {
+        // Arrange
+        BookFields fields = BookFields.parse("id,title");
+        Book book = new Book();
+        book.setId(1L);
+        book.setTitle("The Hobbit");
+        book.setTags(null);
+        when(bookRepository.findByIdAndUserId(1L, 1L, fields)).thenReturn(book);
+
+        // Act
+        BookDTO result = bookService.getBookById(1L, 1L, fields);
+
+        // Assert
+        assertEquals("The Hobbit", result.getTitle());
+        assertNull(result.getAuthor());
+        verify(bookRepository, never()).findByIdAndUserId(1L, 1L);
+    }
+
+    @Test
+    @DisplayName("Lookup should resolve ids in one query and report missing ones per item")
+    void testGetBooksByIds() {
+        // Arrange
+        Book book = new Book("The Hobbit", "J.R.R. Tolkien", testUser);
+        book.setId(3L);
+        when(bookRepository.findByIdsAndUserId(List.of(7L, 3L), 1L, BookFields.ALL)).thenReturn(List.of(book));
+
+        // Act
+        List<BookLookupDTO> result = bookService.getBooksByIds(1L, List.of(7L, 3L, 7L), BookFields.ALL);
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(7L, result.get(0).getId());
+        assertFalse(result.get(0).isFound());
+        assertEquals("Book not found or does not belong to user", result.get(0).getError());
+        assertTrue(result.get(1).isFound());
+        assertEquals("The Hobbit", result.get(1).getBook().getTitle());
+        verify(bookRepository, times(1)).findByIdsAndUserId(anyList(), eq(1L), eq(BookFields.ALL));
+    }
+
+    @Test
+    @DisplayName("Lookup should reject more ids than the configured maximum")
+    void testGetBooksByIdsTooMany() {
+        // Arrange
+        bookService.setMaxLookupIds(2);
+
+        // Act & Assert
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> bookService.getBooksByIds(1L, List.of(1L, 2L, 3L), BookFields.ALL));
+        assertEquals("At most 2 book IDs per lookup", exception.getMessage());
+        verifyNoInteractions(bookRepository);
+    }
+
     @Test
     @DisplayName("Create book should save and return book")
     void testCreateBook() {
@@ -103,6 +170,36 @@ class BookServiceTest {
         verify(bookRepository, times(1)).save(any(Book.class));
     }
 
+    @Test
+    @DisplayName("Create book should keep each book's spelling while spelling variants share one author row")
+    void testCreateBookKeepsAuthorSpelling() {
+        // Arrange
+        AtomicLong authorIds = new AtomicLong();
+        List<Book> saved = new ArrayList<>();
+        when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> {
+            Book book = invocation.getArgument(0);
+            saved.add(book);
+            // The repository resolves authors the cache did not know, in the write transaction
+            if (book.getAuthor() == null) {
+                Author author = new Author(book.getAuthorName());
+                author.setId(authorIds.incrementAndGet());
+                book.setAuthor(author);
+            }
+            return book;
+        });
+
+        // Act
+        BookDTO first = bookService.createBook(new BookDTO("The Hobbit", "J.R.R. Tolkien"), testUser);
+        BookDTO second = bookService.createBook(new BookDTO("The Silmarillion", "j.r.r.  tolkien"), testUser);
+
+        // Assert
+        assertEquals("J.R.R. Tolkien", first.getAuthor());
+        assertEquals("j.r.r.  tolkien", second.getAuthor());
+        assertSame(saved.get(0).getAuthor(), saved.get(1).getAuthor());
+        assertEquals(1, authorIds.get());
+        verifyNoInteractions(authorRepository);
+    }
+
     @Test
     @DisplayName("Update book should update and return book")
     void testUpdateBookSuccess() throws Exception {
@@ -133,7 +230,7 @@ class BookServiceTest {
         when(bookRepository.findByIdAndUserId(999L, 1L)).thenReturn(null);
 
         // Act & Assert
-        Exception exception = assertThrows(Exception.class, () -> {
+        NotFoundException exception = assertThrows(NotFoundException.class, () -> {
             bookService.updateBook(999L, updateDTO, 1L);
         });
 
@@ -162,10 +259,178 @@ class BookServiceTest {
         when(bookRepository.findByIdAndUserId(999L, 1L)).thenReturn(null);
 
         // Act & Assert
-        Exception exception = assertThrows(Exception.class, () -> {
+        NotFoundException exception = assertThrows(NotFoundException.class, () -> {
             bookService.deleteBook(999L, 1L);
         });
 
         assertEquals("Book not found or does not belong to user", exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Get changes should return changes after the cursor and advance it")
+    void testGetChangesSince() {
+        // Arrange
+        BookChange created = new BookChange(BookChange.Type.CREATED, 1L, 7L, "The Hobbit", "J.R.R. Tolkien");
+        created.setId(11L);
+        BookChange deleted = new BookChange(BookChange.Type.DELETED, 1L, 3L, null, null);
+        deleted.setId(12L);
+        when(bookRepository.findChangesSince(eq(1L), eq(10L), anyInt())).thenReturn(Arrays.asList(created, deleted));
+
+        // Act
+        BookChangesDTO result = bookService.getChangesSince(1L, 10L);
+
+        // Assert
+        assertEquals(2, result.getChanges().size());
+        assertEquals("CREATED", result.getChanges().get(0).getType());
+        assertEquals("The Hobbit", result.getChanges().get(0).getTitle());
+        assertEquals("DELETED", result.getChanges().get(1).getType());
+        assertNull(result.getChanges().get(1).getTitle());
+        assertEquals(12L, result.getCursor());
+        assertFalse(result.isHasMore());
+    }
+
+    @Test
+    @DisplayName("Get changes should keep the cursor when nothing changed")
+    void testGetChangesSinceEmpty() {
+        // Arrange
+        when(bookRepository.findChangesSince(eq(1L), eq(42L), anyInt())).thenReturn(new ArrayList<>());
+
+        // Act
+        BookChangesDTO result = bookService.getChangesSince(1L, 42L);
+
+        // Assert
+        assertTrue(result.getChanges().isEmpty());
+        assertEquals(42L, result.getCursor());
+        assertFalse(result.isHasMore());
+    }
+
+    @Test
+    @DisplayName("Get changes should ask for a resync when the cursor predates the pruned change log")
+    void testGetChangesSincePrunedCursor() {
+        // Arrange
+        when(bookRepository.findChangesSince(eq(1L), eq(42L), anyInt())).thenReturn(new ArrayList<>());
+        when(bookRepository.getChangesPrunedThrough()).thenReturn(100L);
+        when(bookRepository.findLatestChangeId(1L)).thenReturn(250L);
+
+        // Act
+        BookChangesDTO stale = bookService.getChangesSince(1L, 42L);
+        BookChangesDTO current = bookService.getChangesSince(1L, 100L);
+
+        // Assert
+        assertTrue(stale.isResync());
+        assertTrue(stale.getChanges().isEmpty());
+        assertEquals(250L, stale.getCursor());
+        assertFalse(current.isResync());
+        assertEquals(100L, current.getCursor());
+    }
+
+    @Test
+    @DisplayName("Get changes should report more pages when the page is full")
+    void testGetChangesSinceHasMore() {
+        // Arrange
+        List<BookChange> changes = new ArrayList<>();
+        for (long id = 1; id <= 501; id++) {
+            BookChange change = new BookChange(BookChange.Type.UPDATED, 1L, id, "Title " + id, "Author");
+            change.setId(id);
+            changes.add(change);
+        }
+        when(bookRepository.findChangesSince(eq(1L), eq(0L), anyInt())).thenReturn(changes);
+
+        // Act
+        BookChangesDTO result = bookService.getChangesSince(1L, 0L);
+
+        // Assert
+        assertEquals(500, result.getChanges().size());
+        assertEquals(500L, result.getCursor());
+        assertTrue(result.isHasMore());
+    }
+
+    @Test
+    @DisplayName("Filtered listing should return nothing for an unknown author without querying books")
+    void testGetBooksUnknownAuthor() {
+        // Arrange
+        when(authorRepository.findByNormalizedName("nobody")).thenReturn(null);
+        BookQuery query = BookQuery.parse("Nobody", null, null, null, null, null);
+
+        // Act
+        List<BookDTO> result = bookService.getBooks(1L, query, null);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(bookRepository, never()).findByUserId(anyLong(), any(BookQuery.class));
+    }
+
+    @Test
+    @DisplayName("Filtered listing should resolve the author to its id before querying")
+    void testGetBooksByAuthor() {
+        // Arrange
+        Author author = new Author("George Orwell");
+        author.setId(7L);
+        when(authorRepository.findByNormalizedName("george orwell")).thenReturn(author);
+        Book book = new Book("1984", "George Orwell", testUser);
+        book.setAuthor(author);
+        book.setId(3L);
+        when(bookRepository.findByUserId(eq(1L), any(BookQuery.class))).thenReturn(List.of(book));
+        BookQuery query = BookQuery.parse(" george  ORWELL", null, "title", "desc", "20", null);
+
+        // Act
+        List<BookDTO> result = bookService.getBooks(1L, query, null);
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(7L, query.getAuthorId());
+        assertEquals(BookQuery.Sort.TITLE, query.getSort());
+        assertTrue(query.isDescending());
+        assertEquals(20, query.getLimit());
+    }
+
+    @Test
+    @DisplayName("Tag-filtered listing should pass the matching ids to the query and leave paging to it")
+    void testGetBooksByTagPushesIdsDown() {
+        // Arrange
+        when(bookRepository.findTagsByUserId(1L)).thenReturn(List.of(
+                new Object[]{2L, "fiction"}, new Object[]{5L, "fiction"}, new Object[]{9L, "poetry"}));
+        Book book = new Book("Emma", "Jane Austen", testUser);
+        book.setId(5L);
+        when(bookRepository.findByUserId(eq(1L), any(BookQuery.class))).thenReturn(List.of(book));
+        BookQuery query = BookQuery.parse(null, null, "title", null, "1", "1");
+
+        // Act
+        List<BookDTO> result = bookService.getBooks(1L, query, TagIndex.Filter.parse("fiction", null));
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(5L, result.get(0).getId());
+        verify(bookRepository, times(1)).findByUserId(eq(1L), argThat(sent -> List.of(2L, 5L).equals(sent.getIds())
+                && sent.getLimit() == 1 && sent.getOffset() == 1));
+    }
+
+    @Test
+    @DisplayName("Tag filter matching too many books for an id list should walk the listing and stop at the page")
+    void testGetBooksByBroadTag() {
+        // Arrange: books 1-6000, of which 1-5000 are tagged
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= 5000; id++) {
+            rows.add(new Object[]{id, "fiction"});
+        }
+        when(bookRepository.findTagsByUserId(1L)).thenReturn(rows);
+        when(bookRepository.findByUserId(eq(1L), any(BookQuery.class))).thenAnswer(invocation -> {
+            BookQuery page = invocation.getArgument(1);
+            List<Book> books = new ArrayList<>();
+            for (long id = page.getOffset() + 1; id <= Math.min(6000, page.getOffset() + page.getLimit()); id++) {
+                Book book = new Book("Title " + id, "Author", testUser);
+                book.setId(id);
+                books.add(book);
+            }
+            return books;
+        });
+        BookQuery query = BookQuery.parse(null, null, null, null, "5", "4995");
+
+        // Act
+        List<BookDTO> result = bookService.getBooks(1L, query, TagIndex.Filter.parse("fiction", null));
+
+        // Assert
+        assertEquals(List.of(4996L, 4997L, 4998L, 4999L, 5000L), result.stream().map(BookDTO::getId).toList());
+        verify(bookRepository, times(5)).findByUserId(eq(1L), argThat(sent -> sent.getIds() == null));
+    }
+}
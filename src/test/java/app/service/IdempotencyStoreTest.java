@@ -0,0 +1,209 @@
+package app.service;
+
+import app.dto.BookDTO;
+import app.entities.IdempotencyRecord;
+import app.exceptions.BadRequestException;
+import app.exceptions.ConflictException;
+import app.exceptions.UnprocessableEntityException;
+import app.repository.IdempotencyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyStoreTest {
+
+    private IdempotencyRepository repository;
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(IdempotencyRepository.class);
+        when(repository.insert(any(IdempotencyRecord.class))).thenReturn(true);
+        store = new IdempotencyStore(repository, new ObjectMapper(), Duration.ofHours(1), 5000);
+    }
+
+    @Test
+    @DisplayName("Retry with the same key should replay the first response without running again")
+    void testReplay() {
+        // Arrange
+        AtomicInteger runs = new AtomicInteger();
+        String fingerprint = IdempotencyStore.fingerprint("POST", "/api/books", "{}");
+
+        // Act
+        IdempotencyStore.Response first = store.execute(1L, "key-1", fingerprint, 201, () -> book(runs.incrementAndGet()));
+        IdempotencyStore.Response retry = store.execute(1L, "key-1", fingerprint, 201, () -> book(runs.incrementAndGet()));
+
+        // Assert
+        assertEquals(1, runs.get());
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals(201, retry.status());
+        assertEquals(first.body(), retry.body());
+        verify(repository, times(1)).complete(argThat(claim -> claim.getId().equals("1:key-1")), eq(201), eq(first.body()));
+    }
+
+    @Test
+    @DisplayName("Concurrent duplicates should wait for the in-flight request and share its response")
+    void testConcurrentDuplicatesWait() throws Exception {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        String fingerprint = IdempotencyStore.fingerprint("POST", "/api/books", "{}");
+
+        CompletableFuture<IdempotencyStore.Response> first = CompletableFuture.supplyAsync(() ->
+                store.execute(1L, "key-1", fingerprint, 201, () -> {
+                    started.countDown();
+                    await(release);
+                    return book(runs.incrementAndGet());
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Act
+        CompletableFuture<IdempotencyStore.Response> duplicate = CompletableFuture.supplyAsync(() ->
+                store.execute(1L, "key-1", fingerprint, 201, () -> book(runs.incrementAndGet())));
+        Thread.sleep(50);
+        boolean waited = !duplicate.isDone();
+        release.countDown();
+
+        // Assert
+        assertTrue(waited);
+        assertEquals(first.get(5, TimeUnit.SECONDS).body(), duplicate.get(5, TimeUnit.SECONDS).body());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    @DisplayName("Key reused for a different request should be rejected")
+    void testDifferentRequestRejected() {
+        // Arrange
+        store.execute(1L, "key-1", IdempotencyStore.fingerprint("POST", "/api/books", "{\"title\":\"A\"}"), 201, () -> book(1));
+
+        // Act & Assert
+        assertThrows(UnprocessableEntityException.class, () -> store.execute(1L, "key-1",
+                IdempotencyStore.fingerprint("POST", "/api/books", "{\"title\":\"B\"}"), 201, () -> book(2)));
+        assertThrows(BadRequestException.class, () -> store.execute(1L, "", "x", 201, () -> book(3)));
+    }
+
+    @Test
+    @DisplayName("Stored response should be replayed from the database after a restart")
+    void testReplayFromDatabase() {
+        // Arrange
+        String fingerprint = IdempotencyStore.fingerprint("PUT", "/api/books/7", "{}");
+        IdempotencyRecord stored = new IdempotencyRecord("1:key-1", fingerprint, Instant.now().plusSeconds(60));
+        stored.setStatus(200);
+        stored.setBody("{\"id\":7}");
+        when(repository.findById("1:key-1")).thenReturn(stored);
+
+        // Act
+        IdempotencyStore.Response response = store.execute(1L, "key-1", fingerprint, 200, () -> fail("should not run"));
+
+        // Assert
+        assertTrue(response.replayed());
+        assertEquals("{\"id\":7}", response.body());
+        verify(repository, never()).insert(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    @DisplayName("Key held by another instance should be a conflict, and a failed request should release its key")
+    void testConflictAndRelease() {
+        // Arrange
+        String fingerprint = IdempotencyStore.fingerprint("POST", "/api/books", "{}");
+        when(repository.findById("1:held")).thenReturn(new IdempotencyRecord("1:held", fingerprint, Instant.now().plusSeconds(60)));
+
+        // Act & Assert
+        assertThrows(ConflictException.class, () -> store.execute(1L, "held", fingerprint, 201, () -> book(1)));
+        assertThrows(IllegalStateException.class, () -> store.execute(1L, "failing", fingerprint, 201, () -> {
+            throw new IllegalStateException("database down");
+        }));
+        verify(repository, times(1)).delete(argThat(claim -> claim.getId().equals("1:failing")));
+        assertEquals(201, store.execute(1L, "failing", fingerprint, 201, () -> book(1)).status());
+    }
+
+    @Test
+    @DisplayName("Claim left incomplete should block the key until it expires, then be taken over")
+    void testIncompleteClaimHeldUntilExpiry() {
+        // Arrange
+        AtomicInteger runs = new AtomicInteger();
+        String fingerprint = IdempotencyStore.fingerprint("POST", "/api/books", "{}");
+        IdempotencyRecord abandoned = new IdempotencyRecord("1:key-1", fingerprint, Instant.now().plusSeconds(60));
+        abandoned.setCreatedAt(Instant.now().minusSeconds(10));
+        IdempotencyRecord expired = new IdempotencyRecord("1:key-2", fingerprint, Instant.now().minusSeconds(1));
+        when(repository.findById("1:key-1")).thenReturn(abandoned);
+        when(repository.findById("1:key-2")).thenReturn(expired);
+        when(repository.reclaim(any(IdempotencyRecord.class))).thenReturn(true);
+
+        // Act
+        assertThrows(ConflictException.class,
+                () -> store.execute(1L, "key-1", fingerprint, 201, () -> book(runs.incrementAndGet())));
+        IdempotencyStore.Response response = store.execute(1L, "key-2", fingerprint, 201, () -> book(runs.incrementAndGet()));
+
+        // Assert
+        assertEquals(1, runs.get());
+        assertFalse(response.replayed());
+        verify(repository, times(1)).reclaim(argThat(claim -> claim.getId().equals("1:key-2")));
+        verify(repository, never()).insert(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    @DisplayName("A response that could not be stored should still be returned and replayed, never run again")
+    void testFailedCompleteKeepsClaim() {
+        // Arrange
+        store.setMaxEntries(0);
+        AtomicInteger runs = new AtomicInteger();
+        String fingerprint = IdempotencyStore.fingerprint("POST", "/api/books", "{}");
+        doThrow(new IllegalStateException("database down")).when(repository)
+                .complete(any(IdempotencyRecord.class), anyInt(), anyString());
+
+        // Act
+        IdempotencyStore.Response first = store.execute(1L, "key-1", fingerprint, 201, () -> book(runs.incrementAndGet()));
+        IdempotencyStore.Response retry = store.execute(1L, "key-1", fingerprint, 201, () -> book(runs.incrementAndGet()));
+
+        // Assert
+        assertEquals(1, runs.get());
+        assertEquals(201, first.status());
+        assertTrue(retry.replayed());
+        assertEquals(first.body(), retry.body());
+        verify(repository, never()).delete(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    @DisplayName("Only the most recent responses should be kept in memory")
+    void testMaxEntries() {
+        // Arrange
+        store.setMaxEntries(1);
+        String fingerprint = IdempotencyStore.fingerprint("POST", "/api/books", "{}");
+
+        // Act
+        store.execute(1L, "key-1", fingerprint, 201, () -> book(1));
+        store.execute(1L, "key-2", fingerprint, 201, () -> book(2));
+        store.execute(1L, "key-3", fingerprint, 201, () -> book(3));
+
+        // Assert
+        assertEquals(1, store.size());
+    }
+
+    private static BookDTO book(long id) {
+        return new BookDTO(id, "Dune", "Frank Herbert", List.of());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package app.service;
+
+import app.dto.AuthorCountDTO;
+import app.dto.StatsDTO;
+import app.repository.BookRepository;
+import app.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LibraryStatsTest {
+
+    private UserRepository userRepository;
+    private BookRepository bookRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        bookRepository = mock(BookRepository.class);
+        when(userRepository.count()).thenReturn(3L);
+        when(bookRepository.countBooksPerUser()).thenReturn(List.of(
+                new Object[]{1L, 12L},
+                new Object[]{2L, 1L}));
+        when(bookRepository.countBooksPerAuthor()).thenReturn(List.of(
+                new Object[]{"J.R.R. Tolkien", 8L},
+                new Object[]{"Jane Austen", 3L},
+                new Object[]{"George Orwell", 2L}));
+    }
+
+    @Test
+    @DisplayName("Stats should be seeded once and then follow creates and deletes")
+    void testSeedAndUpdates() {
+        // Arrange
+        LibraryStats stats = new LibraryStats(10);
+        stats.seed(userRepository, bookRepository);
+
+        // Act
+        stats.userRegistered();
+        stats.booksCreated(4L, "Frank Herbert", 2);
+        stats.bookDeleted(2L, "Jane Austen");
+        StatsDTO result = stats.getStats();
+
+        // Assert
+        assertEquals(4, result.getTotalUsers());
+        assertEquals(14, result.getTotalBooks());
+        assertEquals(2L, result.getBooksPerUser().get("0"));
+        assertEquals(1L, result.getBooksPerUser().get("2-10"));
+        assertEquals(1L, result.getBooksPerUser().get("11-50"));
+        verify(bookRepository, times(1)).countBooksPerAuthor();
+    }
+
+    @Test
+    @DisplayName("Top authors should be exact under capacity and follow author changes")
+    void testTopAuthors() {
+        // Arrange
+        LibraryStats stats = new LibraryStats(10);
+        stats.seed(userRepository, bookRepository);
+
+        // Act
+        stats.booksCreated(1L, "George Orwell", 4);
+        stats.bookUpdated("J.R.R. Tolkien", "Jane Austen");
+        List<AuthorCountDTO> top = stats.getTopAuthors(2);
+
+        // Assert
+        assertEquals(2, top.size());
+        assertEquals("J.R.R. Tolkien", top.get(0).getAuthor());
+        assertEquals(7, top.get(0).getCount());
+        assertEquals("George Orwell", top.get(1).getAuthor());
+        assertEquals(6, top.get(1).getCount());
+        assertEquals(0, top.get(1).getMaxError());
+    }
+
+    @Test
+    @DisplayName("An update from a book without an author should only count the new author")
+    void testBookUpdatedWithoutPreviousAuthor() {
+        // Arrange
+        LibraryStats stats = new LibraryStats(10);
+        stats.seed(userRepository, bookRepository);
+
+        // Act
+        stats.bookUpdated(null, "Jane Austen");
+        List<AuthorCountDTO> top = stats.getTopAuthors(2);
+
+        // Assert
+        assertEquals("J.R.R. Tolkien", top.get(0).getAuthor());
+        assertEquals(8, top.get(0).getCount());
+        assertEquals("Jane Austen", top.get(1).getAuthor());
+        assertEquals(4, top.get(1).getCount());
+    }
+
+    @Test
+    @DisplayName("A full sketch should evict the smallest author and keep the heavy hitters")
+    void testTopAuthorsEviction() {
+        // Arrange
+        LibraryStats stats = new LibraryStats(3);
+        stats.seed(userRepository, bookRepository);
+
+        // Act: each new author pushes out the smallest one and inherits its count as error
+        stats.booksCreated(1L, "Frank Herbert", 1);
+        stats.booksCreated(1L, "Mary Shelley", 1);
+        stats.booksCreated(1L, "Bram Stoker", 1);
+        List<AuthorCountDTO> top = stats.getTopAuthors(3);
+
+        // Assert
+        assertEquals(Set.of("J.R.R. Tolkien", "Mary Shelley", "Bram Stoker"),
+                top.stream().map(AuthorCountDTO::getAuthor).collect(Collectors.toSet()));
+        assertEquals("J.R.R. Tolkien", top.get(0).getAuthor());
+        assertEquals(8, top.get(0).getCount());
+        assertEquals(0, top.get(0).getMaxError());
+        // Overestimated, but never by more than the reported error
+        assertEquals(4, top.get(1).getCount());
+        assertEquals(1, top.get(1).getCount() - top.get(1).getMaxError());
+        assertEquals(1, top.get(2).getCount() - top.get(2).getMaxError());
+    }
+}
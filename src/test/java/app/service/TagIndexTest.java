@@ -0,0 +1,111 @@
+package app.service;
+
+import app.exceptions.BadRequestException;
+import app.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TagIndexTest {
+
+    private BookRepository bookRepository;
+    private TagIndex tagIndex;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        tagIndex = new TagIndex(bookRepository);
+
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{10L, "fiction"});
+        rows.add(new Object[]{10L, "unread"});
+        rows.add(new Object[]{20L, "poetry"});
+        rows.add(new Object[]{20L, "unread"});
+        rows.add(new Object[]{30L, "fiction"});
+        rows.add(new Object[]{30L, "wishlist"});
+        rows.add(new Object[]{40L, null});
+        when(bookRepository.findTagsByUserId(1L)).thenReturn(rows);
+    }
+
+    @Test
+    @DisplayName("Tag filter should combine OR clauses, AND between clauses and NOT exclusions")
+    void testBooleanFilter() {
+        // Act
+        List<Long> anyUnreadVerse = tagIndex.query(1L, TagIndex.Filter.parse("fiction|poetry,unread", null));
+        List<Long> fictionNotWished = tagIndex.query(1L, TagIndex.Filter.parse("fiction", "wishlist"));
+        List<Long> notWished = tagIndex.query(1L, TagIndex.Filter.parse(null, "wishlist"));
+
+        // Assert
+        assertEquals(Arrays.asList(10L, 20L), anyUnreadVerse);
+        assertEquals(List.of(10L), fictionNotWished);
+        assertEquals(Arrays.asList(10L, 20L, 40L), notWished);
+        verify(bookRepository, times(1)).findTagsByUserId(1L);
+    }
+
+    @Test
+    @DisplayName("Tag index should follow writes once loaded")
+    void testWritesUpdateIndex() {
+        // Arrange
+        tagIndex.query(1L, TagIndex.Filter.parse("fiction", null));
+
+        // Act
+        tagIndex.bookSaved(1L, 50L, List.of("fiction"));
+        tagIndex.bookSaved(1L, 10L, List.of("poetry"));
+        tagIndex.bookDeleted(1L, 30L);
+        List<Long> fiction = tagIndex.query(1L, TagIndex.Filter.parse("fiction", null));
+
+        // Assert
+        assertEquals(List.of(50L), fiction);
+    }
+
+    @Test
+    @DisplayName("Tag index should keep only the most recently queried users")
+    void testEvictsIdlestUser() {
+        // Arrange
+        TagIndex bounded = new TagIndex(bookRepository, 1, TagIndex.DEFAULT_MAX_AGE_MILLIS);
+        when(bookRepository.findTagsByUserId(2L)).thenReturn(List.of());
+        bounded.query(1L, TagIndex.Filter.parse("fiction", null));
+
+        // Act
+        bounded.query(2L, TagIndex.Filter.parse("fiction", null));
+        List<Long> reloaded = bounded.query(1L, TagIndex.Filter.parse("fiction", null));
+
+        // Assert
+        assertEquals(List.of(10L, 30L), reloaded);
+        assertEquals(1, bounded.loadedUsers());
+        verify(bookRepository, times(2)).findTagsByUserId(1L);
+    }
+
+    @Test
+    @DisplayName("Tag index should reload a user's index once it is older than the maximum age")
+    void testReloadsExpiredIndex() {
+        // Arrange
+        TagIndex expiring = new TagIndex(bookRepository, TagIndex.DEFAULT_MAX_USERS, 0);
+
+        // Act
+        expiring.query(1L, TagIndex.Filter.parse("fiction", null));
+        expiring.query(1L, TagIndex.Filter.parse("poetry", null));
+
+        // Assert
+        verify(bookRepository, times(2)).findTagsByUserId(1L);
+    }
+
+    @Test
+    @DisplayName("Tags should be normalized and invalid tags rejected")
+    void testNormalize() {
+        // Act
+        List<String> tags = TagIndex.normalize(Arrays.asList(" Fiction", "fiction", "sci-fi"));
+
+        // Assert
+        assertEquals(Arrays.asList("fiction", "sci-fi"), tags);
+        assertThrows(BadRequestException.class, () -> TagIndex.normalize(List.of("no spaces")));
+        assertThrows(BadRequestException.class, () -> TagIndex.Filter.parse("fiction,", null));
+    }
+}
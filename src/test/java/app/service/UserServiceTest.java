@@ -3,10 +3,18 @@ package app.service;
 import app.dto.AuthResponseDTO;
 import app.dto.UserDTO;
 import app.entities.User;
+import app.exceptions.BadRequestException;
+import app.exceptions.UnauthorizedException;
 import app.repository.UserRepository;
+import app.security.PasswordUtil;
+import at.favre.lib.crypto.bcrypt.BCrypt;
+import jakarta.persistence.EntityExistsException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,8 +35,6 @@ class UserServiceTest {
     void testRegisterSuccess() throws Exception {
         // Arrange
         UserDTO userDTO = new UserDTO("testuser", "password123");
-        when(userRepository.existsByUsername("testuser")).thenReturn(false);
-
         // Act
         UserDTO result = userService.register(userDTO);
 
@@ -44,15 +50,15 @@ class UserServiceTest {
     void testRegisterDuplicateUsername() {
         // Arrange
         UserDTO userDTO = new UserDTO("existinguser", "password123");
-        when(userRepository.existsByUsername("existinguser")).thenReturn(true);
+        when(userRepository.save(any(User.class))).thenThrow(new EntityExistsException("duplicate key"));
 
         // Act & Assert
-        Exception exception = assertThrows(Exception.class, () -> {
+        BadRequestException exception = assertThrows(BadRequestException.class, () -> {
             userService.register(userDTO);
         });
 
         assertEquals("Username already exists", exception.getMessage());
-        verify(userRepository, never()).save(any(User.class));
+        verify(userRepository, times(1)).save(any(User.class));
     }
 
     @Test
@@ -63,7 +69,7 @@ class UserServiceTest {
         when(userRepository.findByUsername("nonexistent")).thenReturn(null);
 
         // Act & Assert
-        Exception exception = assertThrows(Exception.class, () -> {
+        UnauthorizedException exception = assertThrows(UnauthorizedException.class, () -> {
             userService.login(userDTO);
         });
 
@@ -85,10 +91,48 @@ class UserServiceTest {
         UserDTO userDTO = new UserDTO(username, wrongPassword);
 
         // Act & Assert
-        Exception exception = assertThrows(Exception.class, () -> {
+        UnauthorizedException exception = assertThrows(UnauthorizedException.class, () -> {
             userService.login(userDTO);
         });
 
         assertEquals("Invalid username or password", exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Login should rehash a password stored at an outdated cost")
+    void testLoginRehashesOutdatedCost() {
+        // Arrange
+        int previousCost = PasswordUtil.getCost();
+        PasswordUtil.setCost(11);
+        try {
+            String stored = BCrypt.withDefaults().hashToString(10, "password123".toCharArray());
+            User user = new User("testuser", stored);
+            user.setId(7L);
+            when(userRepository.findByUsername("testuser")).thenReturn(user);
+            when(userRepository.countByPasswordCost()).thenReturn(List.<Object[]>of(new Object[]{10, 1L}));
+            userService.seedPasswordCosts();
+
+            // Act
+            AuthResponseDTO response = userService.login(new UserDTO("testuser", "password123"));
+
+            // Assert
+            assertNotNull(response.getToken());
+            ArgumentCaptor<String> rehashed = ArgumentCaptor.forClass(String.class);
+            verify(userRepository).updatePassword(eq(7L), rehashed.capture());
+            assertEquals(11, PasswordUtil.costOf(rehashed.getValue()));
+            assertTrue(PasswordUtil.verifyPassword("password123", rehashed.getValue()));
+            assertEquals(stored, user.getPassword()); // the loaded user may be shared; it is not touched
+            assertEquals(0, userService.getPasswordCostCount(10));
+            assertEquals(1, userService.getPasswordCostCount(11));
+
+            // A second login at the current cost leaves the hash alone
+            User rehashedUser = new User("testuser", rehashed.getValue());
+            rehashedUser.setId(7L);
+            when(userRepository.findByUsername("testuser")).thenReturn(rehashedUser);
+            userService.login(new UserDTO("testuser", "password123"));
+            verify(userRepository, times(1)).updatePassword(anyLong(), anyString());
+        } finally {
+            PasswordUtil.setCost(previousCost);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package app.tracing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TracerTest {
+
+    private final List<Trace> exported = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        Tracer.configure(null, 0, 0);
+    }
+
+    @Test
+    @DisplayName("Traceparent should be parsed and invalid headers rejected")
+    void testParseTraceparent() {
+        // Act
+        TraceParent parent = TraceParent.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+
+        // Assert
+        assertNotNull(parent);
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", parent.traceId());
+        assertEquals("00f067aa0ba902b7", parent.spanId());
+        assertNull(TraceParent.parse("00-00000000000000000000000000000000-00f067aa0ba902b7-01"));
+        assertNull(TraceParent.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00F067AA0BA902B7-01"));
+        assertNull(TraceParent.parse("garbage"));
+    }
+
+    @Test
+    @DisplayName("Child spans should continue the incoming trace and nest under the current span")
+    void testContinuesRemoteTrace() {
+        // Arrange
+        Tracer.configure(exported::add, 0, 0);
+
+        // Act
+        try (Span root = Tracer.startTrace("GET /api/books", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01")) {
+            root.setAttribute("http.route", "/api/books");
+            Tracer.trace("BookService.getAllBooks", () -> Tracer.trace("BookRepository.findAllByUserId", () -> 1));
+        }
+
+        // Assert
+        assertEquals(1, exported.size());
+        Trace trace = exported.get(0);
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", trace.getTraceId());
+        List<Span> spans = trace.getSpans();
+        assertEquals(3, spans.size());
+        Span repository = spans.get(0);
+        Span service = spans.get(1);
+        Span root = spans.get(2);
+        assertEquals(service.getSpanId(), repository.getParentSpanId());
+        assertEquals(root.getSpanId(), service.getParentSpanId());
+        assertEquals("00f067aa0ba902b7", root.getParentSpanId());
+        assertSame(Span.NOOP, Tracer.currentSpan());
+    }
+
+    @Test
+    @DisplayName("Tail sampling should keep failed traces and drop fast successful ones")
+    void testTailSampling() {
+        // Arrange
+        Tracer.configure(exported::add, 60_000, 0);
+
+        // Act
+        try (Span root = Tracer.startTrace("GET /api/books", null)) {
+            root.setAttribute("http.route", "/api/books");
+            Tracer.trace("fast", () -> 1);
+        }
+        try (Span root = Tracer.startTrace("POST /api/books", null)) {
+            root.setAttribute("http.route", "/api/books");
+            assertThrows(IllegalStateException.class, () -> Tracer.trace("failing", () -> {
+                throw new IllegalStateException("boom");
+            }));
+        }
+
+        // Assert
+        assertEquals(1, exported.size());
+        assertTrue(exported.get(0).hasError());
+    }
+
+    @Test
+    @DisplayName("Spans outside a trace should be no-ops")
+    void testNoTrace() {
+        // Arrange
+        Tracer.configure(exported::add, 0, 1);
+
+        // Act
+        Span span = Tracer.startSpan("orphan");
+        span.close();
+
+        // Assert
+        assertSame(Span.NOOP, span);
+        assertNull(Tracer.currentTraceparent());
+        assertTrue(exported.isEmpty());
+    }
+}
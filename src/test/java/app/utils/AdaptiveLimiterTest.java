@@ -0,0 +1,77 @@
+package app.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test
+    @DisplayName("Limiter should reject requests over the limit and admit again once a permit is released")
+    void testRejectsOverLimit() {
+        // Arrange
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 10, 100, 0.5);
+
+        // Act & Assert
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.getRejected());
+
+        limiter.release(FAST, false);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Limiter should shrink multiplicatively on slow or failed requests, down to the minimum")
+    void testBacksOffOnSlowRequests() {
+        // Arrange
+        AdaptiveLimiter limiter = new AdaptiveLimiter(16, 2, 100, 100, 0.5);
+
+        // Act
+        limiter.tryAcquire();
+        limiter.release(SLOW, false);
+        int afterSlow = limiter.getLimit();
+        limiter.tryAcquire();
+        limiter.release(FAST, true);
+        int afterFailure = limiter.getLimit();
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.release(SLOW, false);
+        }
+
+        // Assert
+        assertEquals(8, afterSlow);
+        assertEquals(4, afterFailure);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Limiter should grow additively only while the limit is actually in use")
+    void testGrowsWhenSaturated() {
+        // Arrange
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 5, 100, 0.5);
+
+        // Act: a lone request does not use the limit, so it must not raise it
+        limiter.tryAcquire();
+        limiter.release(FAST, false);
+        int afterIdle = limiter.getLimit();
+
+        for (int i = 0; i < 4; i++) {
+            limiter.tryAcquire();
+        }
+        for (int i = 0; i < 4; i++) {
+            limiter.release(FAST, false);
+        }
+
+        // Assert
+        assertEquals(4, afterIdle);
+        assertEquals(5, limiter.getLimit());
+    }
+}
@@ -0,0 +1,106 @@
+package app.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    @Test
+    @DisplayName("Breaker should open once the failure rate over the window reaches the threshold")
+    void testOpensOnFailureRate() {
+        // Arrange
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 60_000, 1);
+
+        // Act: one failure in three calls stays under the minimum, the fourth call decides
+        record(breaker, false);
+        record(breaker, true);
+        record(breaker, false);
+        CircuitBreaker.State beforeMinimum = breaker.getState();
+        record(breaker, true);
+
+        // Assert
+        assertEquals(CircuitBreaker.State.CLOSED, beforeMinimum);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.Permit.REJECTED, breaker.acquire());
+        assertEquals(1, breaker.getRejected());
+        assertEquals(1, breaker.getOpened());
+    }
+
+    @Test
+    @DisplayName("Half-open breaker should admit only the probes and close after they all succeed")
+    void testHalfOpenProbesClose() {
+        // Arrange
+        CircuitBreaker breaker = new CircuitBreaker(4, 1, 0.5, 0, 2);
+        record(breaker, true);
+
+        // Act
+        CircuitBreaker.Permit first = breaker.acquire();
+        CircuitBreaker.Permit second = breaker.acquire();
+        CircuitBreaker.Permit third = breaker.acquire();
+        breaker.release(first, false);
+        CircuitBreaker.State afterOne = breaker.getState();
+        breaker.release(second, false);
+
+        // Assert
+        assertEquals(CircuitBreaker.Permit.PROBE, first);
+        assertEquals(CircuitBreaker.Permit.PROBE, second);
+        assertEquals(CircuitBreaker.Permit.REJECTED, third);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, afterOne);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(CircuitBreaker.Permit.CALL, breaker.acquire());
+    }
+
+    @Test
+    @DisplayName("A failed probe should reopen the breaker and a late result should not close it")
+    void testFailedProbeReopens() {
+        // Arrange
+        CircuitBreaker breaker = new CircuitBreaker(4, 1, 0.5, 0, 1);
+        CircuitBreaker.Permit straggler = breaker.acquire();
+        record(breaker, true);
+
+        // Act
+        breaker.release(breaker.acquire(), true);
+        CircuitBreaker.State afterProbe = breaker.getState();
+        breaker.release(straggler, false);
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, afterProbe);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getOpened());
+    }
+
+    @Test
+    @DisplayName("Concurrent calls should keep an exact window while closed and open the breaker once")
+    void testConcurrentCalls() throws Exception {
+        // Arrange
+        CircuitBreaker healthy = new CircuitBreaker(100, 10, 0.5, 60_000, 1);
+        CircuitBreaker failing = new CircuitBreaker(100, 10, 0.5, 60_000, 1);
+        Thread[] threads = new Thread[8];
+
+        // Act: each thread fails one call in four, after three successes, so the healthy breaker stays under the threshold
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    record(healthy, i % 4 == 3);
+                    record(failing, true);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Assert
+        assertEquals(CircuitBreaker.State.CLOSED, healthy.getState());
+        assertEquals(0, healthy.getOpened());
+        assertEquals(CircuitBreaker.State.OPEN, failing.getState());
+        assertEquals(1, failing.getOpened());
+    }
+
+    private static void record(CircuitBreaker breaker, boolean failed) {
+        breaker.release(breaker.acquire(), failed);
+    }
+}
@@ -0,0 +1,65 @@
+package app.utils;
+
+import app.exceptions.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test
+    @DisplayName("CSV reader should split simple records")
+    void testSimpleRecords() throws IOException {
+        // Arrange
+        CsvReader reader = new CsvReader(new StringReader("title,author\nThe Hobbit,J.R.R. Tolkien\r\n1984,George Orwell"));
+
+        // Act & Assert
+        assertEquals(List.of("title", "author"), reader.readRecord());
+        assertEquals(List.of("The Hobbit", "J.R.R. Tolkien"), reader.readRecord());
+        assertEquals(List.of("1984", "George Orwell"), reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    @DisplayName("CSV reader should handle quoted fields with commas, quotes and line breaks")
+    void testQuotedFields() throws IOException {
+        // Arrange
+        CsvReader reader = new CsvReader(new StringReader("\"Hello, World\",\"Say \"\"hi\"\"\"\n\"Two\nLines\",x\n"));
+
+        // Act & Assert
+        assertEquals(List.of("Hello, World", "Say \"hi\""), reader.readRecord());
+        assertEquals(List.of("Two\nLines", "x"), reader.readRecord());
+        assertEquals(4, reader.getLine());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    @DisplayName("CSV reader should reject unterminated quotes")
+    void testUnterminatedQuote() {
+        // Arrange
+        CsvReader reader = new CsvReader(new StringReader("\"never closed,x"));
+
+        // Act & Assert
+        assertThrows(IOException.class, reader::readRecord);
+    }
+
+    @Test
+    @DisplayName("CSV reader should stop at a record longer than the limit without buffering the rest")
+    void testMaxRecordLength() throws IOException {
+        // Arrange
+        StringReader input = new StringReader("a,b\n\"never closed," + "x".repeat(1000) + "\nTAIL");
+        CsvReader reader = new CsvReader(input, 16);
+
+        // Act & Assert
+        assertEquals(List.of("a", "b"), reader.readRecord());
+        BadRequestException exception = assertThrows(BadRequestException.class, reader::readRecord);
+        assertEquals("Record at line 2 is longer than 16 characters", exception.getMessage());
+        char[] rest = new char[2000];
+        assertTrue(input.read(rest) > 900); // the oversized field was not read to its end
+    }
+}
@@ -0,0 +1,61 @@
+package app.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashMapTest {
+
+    @Test
+    @DisplayName("Long hash map should behave like a HashMap under random puts and removes")
+    void testMatchesHashMap() {
+        // Arrange
+        LongHashMap<String> map = new LongHashMap<>(4);
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // Act: a small key range forces collisions, growth and backward shifts
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(2000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+
+        // Assert
+        assertEquals(expected.size(), map.size());
+        for (long key = -100; key < 1900; key++) {
+            assertEquals(expected.get(key), map.get(key));
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+        Map<Long, String> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    @DisplayName("Long hash map should store zero as an ordinary key")
+    void testZeroKey() {
+        // Arrange
+        LongHashMap<String> map = new LongHashMap<>();
+
+        // Act
+        map.put(0, "zero");
+        map.put(1, "one");
+
+        // Assert
+        assertEquals("zero", map.get(0));
+        assertEquals(2, map.size());
+        assertEquals("zero", map.remove(0));
+        assertNull(map.get(0));
+        assertEquals(1, map.size());
+    }
+}
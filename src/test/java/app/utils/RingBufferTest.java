@@ -0,0 +1,82 @@
+package app.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferTest {
+
+    @Test
+    @DisplayName("Ring buffer should return items in FIFO order")
+    void testFifoOrder() {
+        // Arrange
+        RingBuffer<String> buffer = new RingBuffer<>(4);
+
+        // Act
+        buffer.offer("a");
+        buffer.offer("b");
+        buffer.offer("c");
+
+        // Assert
+        assertEquals(3, buffer.size());
+        assertEquals("a", buffer.poll());
+        assertEquals("b", buffer.poll());
+        assertEquals("c", buffer.poll());
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Ring buffer should reject offers when full instead of blocking")
+    void testRejectsWhenFull() {
+        // Arrange
+        RingBuffer<Integer> buffer = new RingBuffer<>(2);
+
+        // Act & Assert
+        assertTrue(buffer.offer(1));
+        assertTrue(buffer.offer(2));
+        assertFalse(buffer.offer(3));
+        assertEquals(1, buffer.poll());
+        assertTrue(buffer.offer(3));
+    }
+
+    @Test
+    @DisplayName("Ring buffer should require a power of two capacity")
+    void testCapacityValidation() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<String>(3));
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<String>(0));
+    }
+
+    @Test
+    @DisplayName("Ring buffer should not lose items with concurrent producers")
+    void testConcurrentProducers() throws InterruptedException {
+        // Arrange
+        RingBuffer<Integer> buffer = new RingBuffer<>(1024);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    buffer.offer(i);
+                }
+            }));
+        }
+
+        // Act
+        producers.forEach(Thread::start);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        int count = 0;
+        while (buffer.poll() != null) {
+            count++;
+        }
+
+        // Assert
+        assertEquals(800, count);
+    }
+}
@@ -0,0 +1,134 @@
+package app.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    @DisplayName("Single flight should share one load between concurrent callers for the same key")
+    void testCoalescesConcurrentCalls() throws Exception {
+        // Arrange
+        SingleFlight<Long, String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            // Act
+            Future<String> first = executor.submit(() -> flight.execute(1L, () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "books";
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            List<Future<String>> others = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                others.add(executor.submit(() -> flight.execute(1L, () -> {
+                    loads.incrementAndGet();
+                    return "fresh";
+                })));
+            }
+            while (flight.getCoalesced() < 3) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            // Assert
+            assertEquals("books", first.get(5, TimeUnit.SECONDS));
+            for (Future<String> other : others) {
+                assertEquals("books", other.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(3, flight.getCoalesced());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Single flight should not cache results once the load has finished")
+    void testNoCaching() {
+        // Arrange
+        SingleFlight<Long, Integer> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        flight.execute(1L, loads::incrementAndGet);
+        int second = flight.execute(1L, loads::incrementAndGet);
+
+        // Assert
+        assertEquals(2, second);
+        assertEquals(0, flight.getCoalesced());
+    }
+
+    @Test
+    @DisplayName("Single flight should propagate the loader's exception and allow a retry")
+    void testExceptionPropagates() {
+        // Arrange
+        SingleFlight<Long, String> flight = new SingleFlight<>();
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> flight.execute(1L, () -> {
+            throw new IllegalStateException("database down");
+        }));
+        assertEquals("ok", flight.execute(1L, () -> "ok"));
+    }
+
+    @Test
+    @DisplayName("Single flight should give each caller that joins a load its own copy of the result")
+    void testJoinedCallersGetCopies() throws Exception {
+        // Arrange
+        SingleFlight<Long, StringBuilder> flight = new SingleFlight<>(StringBuilder::new);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // Act
+            Future<StringBuilder> first = executor.submit(() -> flight.execute(1L, () -> {
+                loading.countDown();
+                await(release);
+                return new StringBuilder("alice");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<StringBuilder> joined = executor.submit(() -> flight.execute(1L, () -> new StringBuilder("fresh")));
+            while (flight.getCoalesced() < 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            StringBuilder loaded = first.get(5, TimeUnit.SECONDS);
+            StringBuilder copy = joined.get(5, TimeUnit.SECONDS);
+            loaded.append(" (changed)");
+
+            // Assert
+            assertNotSame(loaded, copy);
+            assertEquals("alice", copy.toString());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
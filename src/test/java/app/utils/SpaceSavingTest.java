@@ -0,0 +1,94 @@
+package app.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTest {
+
+    @Test
+    @DisplayName("Space-Saving should report exact counts while under capacity")
+    void testExactUnderCapacity() {
+        // Arrange
+        SpaceSaving sketch = new SpaceSaving(10);
+        sketch.offer("Tolkien", 3);
+        sketch.offer("Austen", 1);
+        sketch.offer("Tolkien", 2);
+
+        // Act
+        List<SpaceSaving.Entry> top = sketch.top(10);
+
+        // Assert
+        assertEquals(2, top.size());
+        assertEquals("Tolkien", top.get(0).getKey());
+        assertEquals(5, top.get(0).getCount());
+        assertEquals(0, top.get(0).getError());
+    }
+
+    @Test
+    @DisplayName("Space-Saving should keep heavy hitters when the stream exceeds capacity")
+    void testHeavyHittersSurvive() {
+        // Arrange
+        SpaceSaving sketch = new SpaceSaving(5);
+        for (int i = 0; i < 1000; i++) {
+            sketch.offer("heavy", 1);
+            sketch.offer("rare-" + i, 1);
+        }
+
+        // Act
+        List<SpaceSaving.Entry> top = sketch.top(1);
+
+        // Assert
+        assertEquals("heavy", top.get(0).getKey());
+        assertTrue(top.get(0).getCount() >= 1000);
+        assertTrue(top.get(0).getCount() - top.get(0).getError() <= 1000);
+    }
+
+    @Test
+    @DisplayName("Space-Saving should evict the smallest count and hand it on as the newcomer's error")
+    void testEvictsSmallest() {
+        // Arrange
+        SpaceSaving sketch = new SpaceSaving(3);
+        sketch.offer("Tolkien", 7);
+        sketch.offer("Austen", 2);
+        sketch.offer("Orwell", 6);
+        sketch.offer("Austen", 2);
+
+        // Act
+        sketch.offer("Herbert", 1);
+
+        // Assert
+        List<SpaceSaving.Entry> top = sketch.top(3);
+        assertEquals(List.of("Tolkien", "Orwell", "Herbert"), top.stream().map(SpaceSaving.Entry::getKey).toList());
+        assertEquals(5, top.get(2).getCount());
+        assertEquals(4, top.get(2).getError());
+    }
+
+    @Test
+    @DisplayName("Space-Saving should drop a key whose count is decremented to zero")
+    void testDecrement() {
+        // Arrange
+        SpaceSaving sketch = new SpaceSaving(10);
+        sketch.offer("Austen", 1);
+        sketch.offer("Tolkien", 2);
+
+        // Act
+        sketch.decrement("Austen", 1);
+        sketch.decrement("Tolkien", 1);
+
+        // Assert
+        List<SpaceSaving.Entry> top = sketch.top(10);
+        assertEquals(1, top.size());
+        assertEquals(1, top.get(0).getCount());
+    }
+
+    @Test
+    @DisplayName("Space-Saving should reject a capacity below one")
+    void testRejectsInvalidCapacity() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSaving(0));
+    }
+}